@@ -6,16 +6,10 @@ import android.util.Log;
 import android.widget.Button;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,8 +22,7 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
     // Variables
     private RecyclerView editPurchasedRecyclerView;
     private ShoppingListAdapter adapter;
-    private DatabaseReference shoppingListReference;
-    private DatabaseReference purchasedItemsReference;
+    private ShoppingRepository repository;
     private List<Item> purchasedItems;
     private PurchasedRecord purchasedRecord;
     private String userGroupId;
@@ -48,14 +41,8 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
         userGroupId = getIntent().getStringExtra("GROUP_ID");
         purchaseId = getIntent().getStringExtra("PURCHASE_ID");
 
-        // Initialize Firebase Database references
-        purchasedItemsReference = FirebaseDatabase.getInstance()
-                .getReference("PurchasedItems")
-                .child(userGroupId)
-                .child(purchaseId);
-        shoppingListReference = FirebaseDatabase.getInstance()
-                .getReference("ShoppingList")
-                .child(userGroupId);
+        // Reads and writes of the group's data go through the repository
+        repository = new FirebaseShoppingRepository(userGroupId);
 
         // Obtain the Recycler View object
         editPurchasedRecyclerView = findViewById(R.id.editPurchasedRecyclerView);
@@ -64,7 +51,7 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
         // Start purchased items list
         purchasedItems = new ArrayList<>();
         // Initialize adapter
-        adapter = new ShoppingListAdapter(purchasedItems, new ShoppingListAdapter.OnItemClickListener() {
+        adapter = new ShoppingListAdapter(new ShoppingListAdapter.OnItemClickListener() {
             @Override
             public void onItemEditClick(Item item) {
                 Toast.makeText(EditPurchasedRecordActivity.this, "Editing is not allowed here.", Toast.LENGTH_SHORT).show();
@@ -100,21 +87,17 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
      * Get the current items that are market at purchased in the Firebase database
      */
     private void loadPurchasedItems() {
-        purchasedItemsReference.addListenerForSingleValueEvent(new com.google.firebase.database.ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                purchasedRecord = snapshot.getValue(PurchasedRecord.class);
-                if (purchasedRecord != null) {
-                    purchasedItems.clear();
-                    purchasedItems.addAll(purchasedRecord.getItems());
-                    adapter.notifyDataSetChanged();
-                }
-            }
-
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
+        repository.loadRecord(purchaseId, (record, error) -> {
+            if (error != null) {
                 Toast.makeText(EditPurchasedRecordActivity.this, "Failed to load purchased items.", Toast.LENGTH_SHORT).show();
                 Log.e("EditPurchasedRecord", "Error: " + error.getMessage());
+                return;
+            }
+            purchasedRecord = record;
+            if (purchasedRecord != null) {
+                purchasedItems.clear();
+                purchasedItems.addAll(purchasedRecord.getItems());
+                adapter.submitList(new ArrayList<>(purchasedItems));
             }
         });
     }
@@ -126,10 +109,10 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
      */
     private void moveItemBackToShoppingList(Item item) {
         item.setPurchased(false);
-        shoppingListReference.child(item.getItemId()).setValue(item).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                purchasedItems.remove(item);
-                adapter.notifyDataSetChanged();
+        repository.updateItem(item, (result, error) -> {
+            if (error == null) {
+                purchasedItems.removeIf(purchased -> purchased.getItemId().equals(item.getItemId()));
+                adapter.submitList(new ArrayList<>(purchasedItems));
                 Toast.makeText(EditPurchasedRecordActivity.this, "Item moved back to shopping list.", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(EditPurchasedRecordActivity.this, "Failed to move item.", Toast.LENGTH_SHORT).show();
@@ -139,15 +122,9 @@ public class EditPurchasedRecordActivity extends AppCompatActivity {
 
     // Saves the updated records and recalculate the prices
     private void saveChanges() {
-        purchasedRecord.setItems(new ArrayList<>(purchasedItems));
-        double newTotalPrice = 0.0;
-        for (Item item : purchasedItems) {
-            newTotalPrice += item.getPrice();
-        }
-        purchasedRecord.setTotalPrice(newTotalPrice);
-
-        purchasedItemsReference.setValue(purchasedRecord).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
+        // The record, its summary and the purchaser's ledger entry are written together
+        repository.saveRecord(purchasedRecord, purchasedItems, (result, error) -> {
+            if (error == null) {
                 Toast.makeText(EditPurchasedRecordActivity.this, "Changes saved successfully!", Toast.LENGTH_SHORT).show();
                 Intent intent = new Intent(EditPurchasedRecordActivity.this, PurchasedItemsActivity.class);
                 intent.putExtra("GROUP_ID", userGroupId);
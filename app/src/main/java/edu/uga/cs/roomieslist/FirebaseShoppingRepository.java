@@ -0,0 +1,247 @@
+package edu.uga.cs.roomieslist;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.ServerValue;
+import com.google.firebase.database.Transaction;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the group's data in the Firebase Realtime Database.
+ * Updates go out as one updateChildren call, so they are applied to the disk cache right away,
+ * queued while offline and committed atomically by the server.
+ * Results of reads are decoded on the worker of SnapshotDecoder and delivered on the UI thread.
+ */
+public class FirebaseShoppingRepository extends AbstractShoppingRepository {
+
+    // Variables
+    private static final String DEBUG_TAG = "FirebaseShoppingRepo";
+    private final DatabaseReference root;
+
+    /**
+     * Constructor
+     * @param groupId group whose data is read and written
+     */
+    public FirebaseShoppingRepository(String groupId) {
+        super(groupId);
+        this.root = FirebaseDatabase.getInstance().getReference();
+    }
+
+    /**
+     * Get the reference of one of the group's nodes, for the screens that listen to it
+     * @param node for example ShoppingList
+     * @return the reference
+     */
+    public DatabaseReference getGroupReference(String node) {
+        return root.child(node).child(groupId);
+    }
+
+    @Override
+    protected String newKey(String node) {
+        return getGroupReference(node).push().getKey();
+    }
+
+    @Override
+    protected void commit(GroupUpdate update, Callback<Void> callback) {
+        if (update.isEmpty()) {
+            callback.onComplete(null, null);
+            return;
+        }
+        Map<String, Object> all = update.toPaths();
+
+        // Send the update to the deepest node containing every path, so a change of a
+        // few fields of one item does not repeat the item's whole path for each field
+        String location = DataTree.commonParent(all.keySet());
+        Map<String, Object> paths = new HashMap<>();
+        for (Map.Entry<String, Object> path : all.entrySet()) {
+            Object value = path.getValue();
+            if (value instanceof GroupUpdate.Increment) {
+                // Added on the server, so concurrent increments from other devices are not lost
+                value = ServerValue.increment(((GroupUpdate.Increment) value).getDelta());
+            }
+            paths.put(DataTree.relativePath(location, path.getKey()), value);
+        }
+        DatabaseReference target = location.isEmpty() ? root : root.child(location);
+        target.updateChildren(paths).addOnCompleteListener(task -> {
+            if (task.isSuccessful()) {
+                callback.onComplete(null, null);
+            } else {
+                Exception error = task.getException();
+                callback.onComplete(null, error != null ? error : new IllegalStateException("Update failed"));
+            }
+        });
+    }
+
+    @Override
+    protected void runTransaction(String path, Mutation mutation, Callback<Object> callback) {
+        // The handler can run several times, only the outcome of the last run counts
+        ItemConflictException[] conflict = new ItemConflictException[1];
+        root.child(path).runTransaction(new Transaction.Handler() {
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                try {
+                    conflict[0] = null;
+                    currentData.setValue(mutation.apply(currentData.getValue()));
+                    return Transaction.success(currentData);
+                } catch (ItemConflictException e) {
+                    conflict[0] = e;
+                    return Transaction.abort();
+                }
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    callback.onComplete(null, error.toException());
+                } else if (!committed) {
+                    callback.onComplete(null, conflict[0] != null ? conflict[0] : new ItemConflictException(null));
+                } else {
+                    callback.onComplete(snapshot != null ? snapshot.getValue() : null, null);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void loadValue(String path, Callback<Object> callback) {
+        root.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decode(snapshot, DataSnapshot::getValue, value -> callback.onComplete(value, null));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onComplete(null, error.toException());
+            }
+        });
+    }
+
+    @Override
+    protected void loadItems(String node, Callback<List<Item>> callback) {
+        getGroupReference(node).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decodeChildren(snapshot, SnapshotDecoder::item, items -> callback.onComplete(items, null));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onComplete(null, error.toException());
+            }
+        });
+    }
+
+    @Override
+    public void loadRecord(String purchaseId, Callback<PurchasedRecord> callback) {
+        getGroupReference(GroupUpdate.PURCHASED_ITEMS).child(purchaseId).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decode(snapshot, SnapshotDecoder::record, record -> callback.onComplete(record, null));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onComplete(null, error.toException());
+            }
+        });
+    }
+
+    @Override
+    protected void loadAisleCounts(Callback<Map<String, Map<String, Long>>> callback) {
+        getGroupReference(GroupUpdate.AISLE_ORDER).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decode(snapshot, counts -> ModelCodec.decodeAisleCounts(counts.getValue()),
+                        counts -> callback.onComplete(counts, null));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(DEBUG_TAG, "Failed to load the aisle order: " + error.getMessage());
+                callback.onComplete(null, error.toException());
+            }
+        });
+    }
+
+    @Override
+    protected void loadRollups(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback) {
+        // Bucket keys sort by time, so the range is read with a key query
+        getGroupReference(GroupUpdate.SPENDING).child(period).orderByKey().startAt(fromBucket).endAt(toBucket)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        SnapshotDecoder.decode(snapshot, buckets -> ModelCodec.decodeSpending(period, buckets.getValue()),
+                                rollup -> callback.onComplete(rollup, null));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(DEBUG_TAG, "Failed to load spending: " + error.getMessage());
+                        callback.onComplete(null, error.toException());
+                    }
+                });
+    }
+
+    @Override
+    protected void loadMemberIndex(Callback<Map<String, String>> callback) {
+        root.child(GroupUpdate.GROUPS).child(groupId).child(GroupUpdate.MEMBERS)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        SnapshotDecoder.decode(snapshot, members -> {
+                            Map<String, String> names = new HashMap<>();
+                            for (DataSnapshot child : members.getChildren()) {
+                                names.put(child.getKey(), child.getValue(String.class));
+                            }
+                            return names;
+                        }, names -> callback.onComplete(names, null));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(DEBUG_TAG, "Failed to load group members: " + error.getMessage());
+                        callback.onComplete(null, error.toException());
+                    }
+                });
+    }
+
+    @Override
+    protected void loadGroupUsers(Callback<Map<String, User>> callback) {
+        root.child(GroupUpdate.USERS).orderByChild(ModelCodec.GROUP_ID).equalTo(groupId)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        SnapshotDecoder.decode(snapshot, matches -> {
+                            Map<String, User> users = new HashMap<>();
+                            for (DataSnapshot child : matches.getChildren()) {
+                                User user = SnapshotDecoder.user(child);
+                                if (user != null) {
+                                    users.put(child.getKey(), user);
+                                }
+                            }
+                            return users;
+                        }, users -> callback.onComplete(users, null));
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(DEBUG_TAG, "Failed to load the users of the group: " + error.getMessage());
+                        callback.onComplete(null, error.toException());
+                    }
+                });
+    }
+
+}
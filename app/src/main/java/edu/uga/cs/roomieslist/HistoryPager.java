@@ -0,0 +1,214 @@
+package edu.uga.cs.roomieslist;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads a node ordered by timestamp one page at a time, newest first.
+ * The newest page is kept live through the ListenerRegistry, older pages are read once
+ * when the user scrolls near the end of the list, using the oldest loaded record as the cursor.
+ * @param <T> type of the records
+ */
+public class HistoryPager<T> {
+
+    // Variables
+    private static final String DEBUG_TAG = "HistoryPager";
+    private static final int PREFETCH_DISTANCE = 3;
+    private final DatabaseReference reference;
+    private final int pageSize;
+    private final SnapshotDecoder.Decoder<T> decoder;
+    private final Cursor<T> cursor;
+    private final Listener<T> listener;
+    private List<T> latestPage = new ArrayList<>();
+    private final List<T> olderPages = new ArrayList<>();
+    private boolean loadingOlder;
+    private boolean hasMore = true;
+
+    /**
+     * Constructor
+     * @param reference node whose children are paged
+     * @param pageSize number of records per page
+     * @param decoder turns one child into a record
+     * @param cursor gives the key and timestamp of a record
+     * @param listener gets the records every time they change
+     */
+    public HistoryPager(DatabaseReference reference, int pageSize, SnapshotDecoder.Decoder<T> decoder,
+                        Cursor<T> cursor, Listener<T> listener) {
+        this.reference = reference;
+        this.pageSize = pageSize;
+        this.decoder = decoder;
+        this.cursor = cursor;
+        this.listener = listener;
+    }
+
+    /**
+     * Start listening to the newest page
+     * @param registry registry of the Activity showing the records
+     */
+    public void start(ListenerRegistry registry) {
+        Query newest = reference.orderByChild(ModelCodec.TIMESTAMP).limitToLast(pageSize);
+        registry.addValueListener("page:" + reference, newest, new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decodeChildren(snapshot, decoder, records -> onLatestPage(newestFirst(records)));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(DEBUG_TAG, "Failed to load newest page: " + error.getMessage());
+                listener.onPageFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Load the next older page when the user scrolls close to the end of the list
+     * @param recyclerView list that shows the records, must use a LinearLayoutManager
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView view, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) view.getLayoutManager();
+                if (dy > 0 && layoutManager != null
+                        && layoutManager.findLastVisibleItemPosition() >= layoutManager.getItemCount() - PREFETCH_DISTANCE) {
+                    loadOlder();
+                }
+            }
+        });
+    }
+
+    /**
+     * Read the page right before the oldest record loaded so far
+     */
+    public void loadOlder() {
+        List<T> loaded = getRecords();
+        if (loadingOlder || !hasMore || loaded.size() < pageSize) {
+            return;
+        }
+        loadingOlder = true;
+        T oldest = loaded.get(loaded.size() - 1);
+        Query older = reference.orderByChild(ModelCodec.TIMESTAMP)
+                .endBefore(cursor.timestamp(oldest), cursor.key(oldest))
+                .limitToLast(pageSize);
+        older.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decodeChildren(snapshot, decoder, records -> {
+                    loadingOlder = false;
+                    hasMore = records.size() == pageSize;
+                    olderPages.addAll(newestFirst(records));
+                    publish();
+                });
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                loadingOlder = false;
+                Log.e(DEBUG_TAG, "Failed to load older page: " + error.getMessage());
+                listener.onPageFailed(error);
+            }
+        });
+    }
+
+    /**
+     * Get every record loaded so far, newest first
+     * @return unmodifiable list of the records
+     */
+    public List<T> getRecords() {
+        List<T> records = new ArrayList<>(latestPage.size() + olderPages.size());
+        Set<String> keys = new HashSet<>();
+        for (T record : latestPage) {
+            keys.add(cursor.key(record));
+            records.add(record);
+        }
+        for (T record : olderPages) {
+            if (keys.add(cursor.key(record))) {
+                records.add(record);
+            }
+        }
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * The newest page changed. Records that slid out of it because newer ones arrived are kept
+     * with the older pages, records that disappeared while still inside the window were deleted.
+     * @param page
+     */
+    private void onLatestPage(List<T> page) {
+        if (page.isEmpty()) {
+            // The whole history was cleared
+            olderPages.clear();
+            hasMore = false;
+        } else {
+            T oldestInPage = page.get(page.size() - 1);
+            List<T> slidOut = new ArrayList<>();
+            for (T record : latestPage) {
+                if (!contains(page, record) && isOlder(record, oldestInPage)) {
+                    slidOut.add(record);
+                }
+            }
+            olderPages.addAll(0, slidOut);
+            hasMore = hasMore || page.size() == pageSize;
+        }
+        latestPage = page;
+        publish();
+    }
+
+    private void publish() {
+        listener.onRecordsChanged(getRecords());
+    }
+
+    private boolean contains(List<T> records, T record) {
+        String key = cursor.key(record);
+        for (T candidate : records) {
+            if (cursor.key(candidate).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOlder(T record, T than) {
+        long a = cursor.timestamp(record);
+        long b = cursor.timestamp(than);
+        return a < b || (a == b && cursor.key(record).compareTo(cursor.key(than)) < 0);
+    }
+
+    private List<T> newestFirst(List<T> oldestFirst) {
+        List<T> reversed = new ArrayList<>(oldestFirst);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    /**
+     * Gives the position of a record in the timestamp order
+     */
+    public interface Cursor<T> {
+        String key(T record);
+        long timestamp(T record);
+    }
+
+    /**
+     * Gets the loaded records
+     */
+    public interface Listener<T> {
+        void onRecordsChanged(List<T> records);
+        void onPageFailed(DatabaseError error);
+    }
+}
@@ -0,0 +1,55 @@
+package edu.uga.cs.roomieslist;
+
+import android.content.Context;
+import android.widget.ArrayAdapter;
+import android.widget.Filter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests item names bought before while a name is typed.
+ * The names come from the {@link PriceHistoryIndex}, which is looked up on the filter's worker
+ * thread, so the drop down shows the same names the index ranks first.
+ */
+public class HistorySuggestionAdapter extends ArrayAdapter<String> {
+
+    // Variables
+    private final PriceHistoryIndex history;
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            List<String> names = constraint != null
+                    ? history.complete(constraint.toString(), PriceHistoryIndex.SUGGESTIONS)
+                    : Collections.<String>emptyList();
+            FilterResults results = new FilterResults();
+            results.values = names;
+            results.count = names.size();
+            return results;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            clear();
+            if (results.values != null) {
+                addAll((List<String>) results.values);
+            }
+        }
+    };
+
+    /**
+     * Constructor
+     * @param context
+     * @param history names bought by the group
+     */
+    public HistorySuggestionAdapter(Context context, PriceHistoryIndex history) {
+        super(context, android.R.layout.simple_dropdown_item_1line);
+        this.history = history;
+    }
+
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+}
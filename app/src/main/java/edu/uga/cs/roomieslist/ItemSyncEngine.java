@@ -0,0 +1,262 @@
+package edu.uga.cs.roomieslist;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a list of items in sync with a Firebase node.
+ * Instead of rebuilding the whole list on every change, each child event is applied
+ * to the list and its indexes on its own, then the listener is told the items changed.
+ * The rows are in store order and filtered by the search, not in the order of the node,
+ * so the adapter finds the changed rows by diffing instead of by the positions kept here.
+ * Snapshots are decoded on the SnapshotDecoder worker and applied on the UI thread in order.
+ */
+public class ItemSyncEngine implements ChildEventListener, ListenerRegistry.Detachable {
+
+    // Variables
+    private static final String DEBUG_TAG = "ItemSyncEngine";
+    private final List<Item> items;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Listener listener;
+    private final List<ItemIndex> indexes = new ArrayList<>();
+    private int generation;
+
+    /**
+     * Constructor
+     * @param items list that is shown by the adapter
+     * @param listener gets told about every change
+     */
+    public ItemSyncEngine(List<Item> items, Listener listener) {
+        this.items = items;
+        this.listener = listener;
+        reindexFrom(0);
+    }
+
+    /**
+     * Keep an index up to date with the same changes that are applied to the list
+     * @param index
+     */
+    public void addIndex(ItemIndex index) {
+        indexes.add(index);
+        for (Item item : items) {
+            index.put(item);
+        }
+    }
+
+    /**
+     * A new item was added to the node, insert it right after its previous sibling
+     * @param snapshot
+     * @param previousChildName
+     */
+    @Override
+    public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        int eventGeneration = generation;
+        SnapshotDecoder.decode(snapshot, SnapshotDecoder::item, item -> {
+            if (eventGeneration == generation) {
+                applyAdded(snapshot.getKey(), item, previousChildName);
+            }
+        });
+    }
+
+    /**
+     * An item was edited, only its row is updated
+     * @param snapshot
+     * @param previousChildName
+     */
+    @Override
+    public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        int eventGeneration = generation;
+        SnapshotDecoder.decode(snapshot, SnapshotDecoder::item, item -> {
+            if (eventGeneration == generation && item != null) {
+                item.setItemId(snapshot.getKey());
+                replace(snapshot.getKey(), item);
+            }
+        });
+    }
+
+    /**
+     * An item was deleted or moved to another node.
+     * Goes through the decoder too so that it is applied after the events before it.
+     * @param snapshot
+     */
+    @Override
+    public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+        int eventGeneration = generation;
+        SnapshotDecoder.decode(snapshot, DataSnapshot::getKey, itemId -> {
+            if (eventGeneration == generation) {
+                applyRemoved(itemId);
+            }
+        });
+    }
+
+    /**
+     * The sort order of an item changed
+     * @param snapshot
+     * @param previousChildName
+     */
+    @Override
+    public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+        int eventGeneration = generation;
+        SnapshotDecoder.decode(snapshot, DataSnapshot::getKey, itemId -> {
+            if (eventGeneration == generation) {
+                applyMoved(itemId, previousChildName);
+            }
+        });
+    }
+
+    @Override
+    public void onCancelled(@NonNull DatabaseError error) {
+        Log.e(DEBUG_TAG, "Sync cancelled: " + error.getMessage());
+        listener.onSyncCancelled(error);
+    }
+
+    /**
+     * The listener was detached, so removals made meanwhile would be missed.
+     * Drop everything; Firebase adds the children back from its cache once re-attached.
+     */
+    @Override
+    public void onDetached() {
+        // Results of events that are still being decoded are dropped
+        generation++;
+        int count = items.size();
+        items.clear();
+        positions.clear();
+        for (ItemIndex index : indexes) {
+            index.clear();
+        }
+        if (count > 0) {
+            listener.onItemsChanged();
+        }
+    }
+
+    /**
+     * Get the position of an item
+     * @param itemId
+     * @return position in the list or -1 if the item is not there
+     */
+    public int positionOf(String itemId) {
+        Integer position = positions.get(itemId);
+        return position != null ? position : -1;
+    }
+
+    /**
+     * Insert a decoded item, or replace it if it is already in the list (listener re-attached)
+     * @param itemId
+     * @param item
+     * @param previousChildName
+     */
+    private void applyAdded(String itemId, Item item, @Nullable String previousChildName) {
+        if (item == null || itemId == null) {
+            return;
+        }
+        item.setItemId(itemId);
+        if (positions.containsKey(itemId)) {
+            replace(itemId, item);
+            return;
+        }
+
+        int position = positionAfter(previousChildName);
+        items.add(position, item);
+        reindexFrom(position);
+        for (ItemIndex index : indexes) {
+            index.put(item);
+        }
+        listener.onItemsChanged();
+    }
+
+    /**
+     * Remove an item and shift the positions after it
+     * @param itemId
+     */
+    private void applyRemoved(String itemId) {
+        Integer position = positions.remove(itemId);
+        if (position == null) {
+            return;
+        }
+        items.remove((int) position);
+        reindexFrom(position);
+        for (ItemIndex index : indexes) {
+            index.remove(itemId);
+        }
+        listener.onItemsChanged();
+    }
+
+    /**
+     * Move an item right after its new previous sibling
+     * @param itemId
+     * @param previousChildName
+     */
+    private void applyMoved(String itemId, @Nullable String previousChildName) {
+        Integer from = positions.get(itemId);
+        if (from == null) {
+            return;
+        }
+        Item item = items.remove((int) from);
+        positions.remove(itemId);
+        reindexFrom(from);
+        int to = positionAfter(previousChildName);
+        items.add(to, item);
+        reindexFrom(Math.min(from, to));
+        listener.onItemsChanged();
+    }
+
+    /**
+     * Replace the item with the same id
+     * @param itemId
+     * @param item
+     */
+    private void replace(String itemId, Item item) {
+        Integer position = positions.get(itemId);
+        if (position == null) {
+            return;
+        }
+        items.set(position, item);
+        for (ItemIndex index : indexes) {
+            index.put(item);
+        }
+        listener.onItemsChanged();
+    }
+
+    /**
+     * Get the position right after the previous sibling
+     * @param previousChildName
+     * @return position to insert at
+     */
+    private int positionAfter(@Nullable String previousChildName) {
+        if (previousChildName == null) {
+            return 0;
+        }
+        Integer previous = positions.get(previousChildName);
+        return previous != null ? previous + 1 : items.size();
+    }
+
+    /**
+     * Update the index for every item starting at the given position.
+     * Adding at the end of the list (the usual case for push keys) only touches one entry.
+     * @param start
+     */
+    private void reindexFrom(int start) {
+        for (int i = start; i < items.size(); i++) {
+            positions.put(items.get(i).getItemId(), i);
+        }
+    }
+
+    /**
+     * Gets told when the list changed, once per child event
+     */
+    public interface Listener {
+        void onItemsChanged();
+        void onSyncCancelled(DatabaseError error);
+    }
+}
@@ -0,0 +1,208 @@
+package edu.uga.cs.roomieslist;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.firebase.database.ChildEventListener;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Owns the Firebase listeners of one Activity.
+ * There is at most one listener per database path, listeners are attached while the
+ * Activity is started and detached in onStop, and everything is dropped in onDestroy.
+ */
+public class ListenerRegistry implements DefaultLifecycleObserver {
+
+    // Variables
+    private static final String DEBUG_TAG = "ListenerRegistry";
+    public static final String LIVE_LISTENERS = "firebase.listeners.live";
+    private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    private boolean started;
+
+    /**
+     * Constructor
+     * @param owner Activity whose lifecycle scopes the listeners
+     */
+    public ListenerRegistry(LifecycleOwner owner) {
+        owner.getLifecycle().addObserver(this);
+        started = owner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+    }
+
+    /**
+     * Register a value listener, replacing any listener already registered for the same path
+     * @param query
+     * @param listener
+     */
+    public void addValueListener(Query query, ValueEventListener listener) {
+        addValueListener(query.getRef().toString(), query, listener);
+    }
+
+    /**
+     * Register a value listener under a custom key, used when the same path is queried in different ways
+     * @param key
+     * @param query
+     * @param listener
+     */
+    public void addValueListener(String key, Query query, ValueEventListener listener) {
+        register(key, new Subscription(query, listener, null));
+    }
+
+    /**
+     * Register a child listener, replacing any listener already registered for the same path
+     * @param query
+     * @param listener
+     */
+    public void addChildListener(Query query, ChildEventListener listener) {
+        addChildListener(query.getRef().toString(), query, listener);
+    }
+
+    /**
+     * Register a child listener under a custom key
+     * @param key
+     * @param query
+     * @param listener
+     */
+    public void addChildListener(String key, Query query, ChildEventListener listener) {
+        register(key, new Subscription(query, null, listener));
+    }
+
+    /**
+     * Detach and forget the listener registered under a key
+     * @param key
+     */
+    public void remove(String key) {
+        Subscription subscription = subscriptions.remove(key);
+        if (subscription != null) {
+            subscription.detach();
+        }
+    }
+
+    /**
+     * Get the number of listeners this registry has attached right now
+     * @return live listener count
+     */
+    public int getLiveCount() {
+        int count = 0;
+        for (Subscription subscription : subscriptions.values()) {
+            if (subscription.attached) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of listeners attached by all registries in the app
+     * @return live listener count
+     */
+    public static long getGlobalLiveCount() {
+        return PerfMetrics.get(LIVE_LISTENERS);
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        started = true;
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.attach();
+        }
+        Log.d(DEBUG_TAG, "Started, live listeners: " + getGlobalLiveCount());
+    }
+
+    @Override
+    public void onStop(@NonNull LifecycleOwner owner) {
+        started = false;
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.detach();
+        }
+        Log.d(DEBUG_TAG, "Stopped, live listeners: " + getGlobalLiveCount());
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        for (Subscription subscription : new ArrayList<>(subscriptions.values())) {
+            subscription.detach();
+        }
+        subscriptions.clear();
+        owner.getLifecycle().removeObserver(this);
+    }
+
+    /**
+     * Store the subscription and attach it right away if the Activity is already started
+     * @param key
+     * @param subscription
+     */
+    private void register(String key, Subscription subscription) {
+        Subscription previous = subscriptions.put(key, subscription);
+        if (previous != null) {
+            Log.d(DEBUG_TAG, "Replacing duplicate listener for " + key);
+            previous.detach();
+        }
+        if (started) {
+            subscription.attach();
+        }
+    }
+
+    /**
+     * Listeners that want to know when they stop receiving events, so they can drop
+     * state that would otherwise go stale while detached
+     */
+    public interface Detachable {
+        void onDetached();
+    }
+
+    /**
+     * One query with its value or child listener
+     */
+    private static class Subscription {
+        private final Query query;
+        private final ValueEventListener valueListener;
+        private final ChildEventListener childListener;
+        private boolean attached;
+
+        Subscription(Query query, ValueEventListener valueListener, ChildEventListener childListener) {
+            this.query = query;
+            this.valueListener = valueListener;
+            this.childListener = childListener;
+        }
+
+        void attach() {
+            if (attached) {
+                return;
+            }
+            if (valueListener != null) {
+                query.addValueEventListener(valueListener);
+            } else {
+                query.addChildEventListener(childListener);
+            }
+            attached = true;
+            PerfMetrics.increment(LIVE_LISTENERS);
+        }
+
+        void detach() {
+            if (!attached) {
+                return;
+            }
+            if (valueListener != null) {
+                query.removeEventListener(valueListener);
+            } else {
+                query.removeEventListener(childListener);
+            }
+            attached = false;
+            PerfMetrics.add(LIVE_LISTENERS, -1);
+
+            Object listener = valueListener != null ? valueListener : childListener;
+            if (listener instanceof Detachable) {
+                ((Detachable) listener).onDetached();
+            }
+        }
+    }
+}
@@ -8,19 +8,12 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 /**
  * This class handles the login process of a user
@@ -85,44 +78,22 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     /**
-     * If the user is authenticated then take them to the shopping list activity
+     * If the user is authenticated then take them to the shopping list activity.
+     * The group id is read from the database only if this user's session is not cached.
      */
     private void navigateToShoppingList() {
-        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
-
-        // Make sure that the user was logged in
-        if (currentUser != null) {
-            // Get the users id
-            String userId = currentUser.getUid();
-            DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("Users").child(userId);
-
-            userRef.child("groupId").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists()) {
-                        String groupId = snapshot.getValue(String.class);
-                        if (groupId != null) {
-                            // If the group id was found, then take the user to the shopping list
-                            Intent intent = new Intent(LoginActivity.this, ShoppingListActivity.class);
-                            intent.putExtra("GROUP_ID", groupId);
-                            startActivity(intent);
-                            finish();
-                        } else {
-                            // If groupId is null
-                            Toast.makeText(LoginActivity.this, "Group ID was not found.", Toast.LENGTH_SHORT).show();
-                        }
-                    } else {
-                        Toast.makeText(LoginActivity.this, "Group ID does not exist for this user.", Toast.LENGTH_SHORT).show();
-                    }
-                }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Toast.makeText(LoginActivity.this, "Failed to retrieve Group ID.", Toast.LENGTH_SHORT).show();
-                }
-            });
-        } else {
-            Toast.makeText(this, "User is not logged in.", Toast.LENGTH_SHORT).show();
-        }
+        SessionCache.resolve(this, (session, error) -> {
+            if (error != null) {
+                Toast.makeText(LoginActivity.this, "Failed to retrieve Group ID.", Toast.LENGTH_SHORT).show();
+            } else if (session == null) {
+                Toast.makeText(LoginActivity.this, "Group ID does not exist for this user.", Toast.LENGTH_SHORT).show();
+            } else {
+                // If the group id was found, then take the user to the shopping list
+                Intent intent = new Intent(LoginActivity.this, ShoppingListActivity.class);
+                intent.putExtra("GROUP_ID", session.groupId);
+                startActivity(intent);
+                finish();
+            }
+        });
     }
-}
\ No newline at end of file
+}
@@ -12,7 +12,6 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
 
 /**
  * This is the main Activity. The splash screen when the user first opens the app
@@ -39,6 +38,11 @@ public class MainActivity extends AppCompatActivity {
             return insets;
         });
 
+        // A returning user goes straight to the shopping list
+        if (FirebaseAuth.getInstance().getCurrentUser() != null) {
+            openShoppingList();
+        }
+
         // Obtain object Views
         loginButton = findViewById(R.id.loginButton);
         signUpLink = findViewById(R.id.signUpLink);
@@ -54,4 +58,21 @@ public class MainActivity extends AppCompatActivity {
         });
 
     }
+
+    /**
+     * Open the shopping list of the signed in user. With a cached session nothing is read
+     * from the database first, the session is checked again once the list is open.
+     */
+    private void openShoppingList() {
+        SessionCache.resolve(this, (session, error) -> {
+            if (session == null) {
+                // Stay on this screen so the user can log in again
+                return;
+            }
+            Intent intent = new Intent(MainActivity.this, ShoppingListActivity.class);
+            intent.putExtra("GROUP_ID", session.groupId);
+            startActivity(intent);
+            finish();
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package edu.uga.cs.roomieslist;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.firebase.database.FirebaseDatabase;
+
+/**
+ * Local persistence for the group's data.
+ * Firebase keeps a disk cache of every synced node, so the screens render from disk right away
+ * and reconcile with the server when it answers. Writes made offline are queued on disk
+ * and replayed once the connection comes back.
+ */
+public final class OfflineStore {
+
+    // Variables
+    private static final String DEBUG_TAG = "OfflineStore";
+    private static final long CACHE_SIZE_BYTES = 50L * 1024 * 1024;
+    // Summaries per page of the purchase history, only the newest page is kept synced
+    public static final int HISTORY_PAGE_SIZE = 20;
+    private static String syncedGroupId;
+
+    private OfflineStore() {}
+
+    /**
+     * Turn on the disk cache, this has to run before any other use of the database
+     */
+    public static void enable() {
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        database.setPersistenceEnabled(true);
+        database.setPersistenceCacheSizeBytes(CACHE_SIZE_BYTES);
+    }
+
+    /**
+     * Keep the group's nodes synced to disk even when no screen is listening to them,
+     * so that opening the basket or the purchase history does not wait for the network
+     * @param groupId
+     */
+    public static synchronized void keepGroupSynced(String groupId) {
+        if (groupId == null || groupId.equals(syncedGroupId)) {
+            return;
+        }
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+
+        // Stop syncing the group of a previous session
+        if (syncedGroupId != null) {
+            setGroupSynced(database, syncedGroupId, false);
+        }
+        setGroupSynced(database, groupId, true);
+        syncedGroupId = groupId;
+        Log.d(DEBUG_TAG, "Keeping group synced: " + groupId);
+    }
+
+    private static void setGroupSynced(FirebaseDatabase database, String groupId, boolean synced) {
+        database.getReference(GroupUpdate.SHOPPING_LIST).child(groupId).keepSynced(synced);
+        database.getReference(GroupUpdate.SHOPPING_BASKET).child(groupId).keepSynced(synced);
+        // Only the newest page of summaries, the same query the history opens with.
+        // Older pages are fetched while scrolling, full records when one is edited.
+        database.getReference(GroupUpdate.PURCHASE_SUMMARIES).child(groupId)
+                .orderByChild(ModelCodec.TIMESTAMP).limitToLast(HISTORY_PAGE_SIZE).keepSynced(synced);
+        database.getReference(GroupUpdate.LEDGER).child(groupId).keepSynced(synced);
+        database.getReference(GroupUpdate.AISLE_ORDER).child(groupId).keepSynced(synced);
+        database.getReference(GroupUpdate.PRICE_HISTORY).child(groupId)
+                .orderByChild(ModelCodec.TIMESTAMP).limitToLast(PriceHistoryIndex.MAX_NAMES).keepSynced(synced);
+        // Read before every checkout and every edit of a purchase
+        database.getReference(GroupUpdate.GROUPS).child(groupId).child(GroupUpdate.TIME_ZONE).keepSynced(synced);
+        database.getReference(GroupUpdate.MIGRATIONS).child(groupId).keepSynced(synced);
+    }
+
+    /**
+     * Start measuring the time until a screen shows its first row
+     * @param screen name used for the metric
+     * @return the started timer
+     */
+    public static FirstRowTimer startFirstRowTimer(String screen) {
+        return new FirstRowTimer(screen);
+    }
+
+    /**
+     * Measures the time from the creation of a screen to its first rendered row.
+     * Only the first call to {@link #onRowsShown(int)} with rows is recorded.
+     */
+    public static final class FirstRowTimer {
+        private final String metric;
+        private final long startMillis;
+        private boolean recorded;
+
+        private FirstRowTimer(String screen) {
+            this.metric = "ttfr." + screen;
+            this.startMillis = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * Called every time the screen shows rows
+         * @param rowCount number of rows shown
+         */
+        public void onRowsShown(int rowCount) {
+            if (recorded || rowCount == 0) {
+                return;
+            }
+            recorded = true;
+            long elapsed = SystemClock.elapsedRealtime() - startMillis;
+            PerfMetrics.recordTime(metric, elapsed);
+            Log.d(DEBUG_TAG, metric + ": " + elapsed + "ms");
+        }
+    }
+}
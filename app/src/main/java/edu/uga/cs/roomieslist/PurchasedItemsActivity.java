@@ -7,22 +7,17 @@ import android.util.Log;
 import android.widget.Button;
 import android.widget.Toast;
 
-import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 /**
  * This class allows the user to edit the total price, view the purchased records, and settle the cost
@@ -34,10 +29,17 @@ public class PurchasedItemsActivity extends AppCompatActivity {
     private static final String DEBUG_TAG = "PurchasedItemsActivity";
     private RecyclerView purchasedItemsRecyclerView;
     private PurchasedItemsAdapter adapter;
-    private DatabaseReference purchasedItemsReference;
-    private DatabaseReference shoppingListReference;
-    private List<PurchasedRecord> purchasedRecords;
+    private FirebaseShoppingRepository repository;
+    private DatabaseReference summariesReference;
+    private List<PurchaseSummary> purchaseSummaries;
     private String userGroupId;
+    private ListenerRegistry listenerRegistry;
+    private OfflineStore.FirstRowTimer firstRowTimer;
+    private HistoryPager<PurchaseSummary> historyPager;
+    private static final int PAGE_SIZE = OfflineStore.HISTORY_PAGE_SIZE;
+    private static final int SPENDING_WEEKS = 8;
+    private static final int SPENDING_MONTHS = 6;
+    private static final int TOP_ITEMS = 5;
 
     /**
      * Calle when the Activity is created
@@ -48,30 +50,63 @@ public class PurchasedItemsActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_purchased_items);
 
-        // Initialize Firebase references
+        // Listeners are attached while the Activity is visible and removed in onStop
+        listenerRegistry = new ListenerRegistry(this);
+
+        // Reads and writes of the group's data go through the repository,
+        // the history is paged from the summary index
         userGroupId = getIntent().getStringExtra("GROUP_ID");
-        purchasedItemsReference = FirebaseDatabase.getInstance().getReference("PurchasedItems").child(userGroupId);
-        shoppingListReference = FirebaseDatabase.getInstance().getReference("ShoppingList").child(userGroupId);
+        repository = new FirebaseShoppingRepository(userGroupId);
+        summariesReference = repository.getGroupReference(GroupUpdate.PURCHASE_SUMMARIES);
+
+        // Rows come from the disk cache first, then from the server
+        firstRowTimer = OfflineStore.startFirstRowTimer(DEBUG_TAG);
+        OfflineStore.keepGroupSynced(userGroupId);
 
         // Initialize RecyclerView
         purchasedItemsRecyclerView = findViewById(R.id.purchasedItemsRecyclerView);
         purchasedItemsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
-        purchasedRecords = new ArrayList<>();
-        adapter = new PurchasedItemsAdapter(purchasedRecords, userGroupId, new PurchasedItemsAdapter.OnItemClickListener() {
+        purchaseSummaries = new ArrayList<>();
+        adapter = new PurchasedItemsAdapter(purchaseSummaries, userGroupId, new PurchasedItemsAdapter.OnItemClickListener() {
             @Override
-            public void onUpdatePriceClick(PurchasedRecord record, double newPrice) {
-                updatePurchasePrice(record, newPrice);
+            public void onUpdatePriceClick(PurchaseSummary summary, double newPrice) {
+                updatePurchasePrice(summary, newPrice);
             }
         });
         purchasedItemsRecyclerView.setAdapter(adapter);
 
-        // Get purchased items
+        // Get purchased items, records saved before the summary index get their summaries once
         loadPurchasedItems();
+        repository.backfillSummaries((written, error) -> {
+            if (error != null) {
+                Log.e(DEBUG_TAG, "Failed to backfill purchase summaries.", error);
+            } else if (written > 0) {
+                Log.d(DEBUG_TAG, "Backfilled purchase summaries: " + written);
+            }
+        });
+        repository.backfillRollups((rolledUp, error) -> {
+            if (error != null) {
+                Log.e(DEBUG_TAG, "Failed to backfill spending rollups.", error);
+            } else if (rolledUp > 0) {
+                Log.d(DEBUG_TAG, "Backfilled spending rollups: " + rolledUp);
+            }
+        });
+        repository.backfillPriceHistory((indexed, error) -> {
+            if (error != null) {
+                Log.e(DEBUG_TAG, "Failed to backfill price history.", error);
+            } else if (indexed > 0) {
+                Log.d(DEBUG_TAG, "Backfilled price history: " + indexed);
+            }
+        });
 
         // Settle Costs button
         Button settleCostsButton = findViewById(R.id.settleCostsButton);
         settleCostsButton.setOnClickListener(v -> settleCosts());
 
+        // Spending button
+        Button spendingButton = findViewById(R.id.spendingButton);
+        spendingButton.setOnClickListener(v -> showSpending());
+
         // Back to Shopping List button
         Button backToShoppingListButton = findViewById(R.id.backToShoppingListButton);
         backToShoppingListButton.setOnClickListener(v -> {
@@ -84,7 +119,7 @@ public class PurchasedItemsActivity extends AppCompatActivity {
 
         // Handle Logout Button Click
         findViewById(R.id.logoutButton3).setOnClickListener(v -> {
-            FirebaseAuth.getInstance().signOut(); // Sign out the user
+            SessionCache.signOut(this); // Sign out the user and forget the session
             Intent intent = new Intent(PurchasedItemsActivity.this, MainActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
             startActivity(intent);
@@ -93,42 +128,50 @@ public class PurchasedItemsActivity extends AppCompatActivity {
     }
 
     /**
-     * Gets the purchased items from the Firebase Database.
-     * Updates the RecyclerView
+     * Gets the purchase summaries from the Firebase Database one page at a time, newest first.
+     * The newest page stays live, older pages are loaded while scrolling.
+     * The full records are only loaded by EditPurchasedRecordActivity.
      */
     private void loadPurchasedItems() {
-        purchasedItemsReference.addValueEventListener(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                purchasedRecords.clear();
-                for (DataSnapshot recordSnapshot : snapshot.getChildren()) {
-                    PurchasedRecord record = recordSnapshot.getValue(PurchasedRecord.class);
-                    if (record != null) {
-                        record.setId(recordSnapshot.getKey());
-                        purchasedRecords.add(record);
+        historyPager = new HistoryPager<>(summariesReference, PAGE_SIZE, SnapshotDecoder::summary,
+                new HistoryPager.Cursor<PurchaseSummary>() {
+                    @Override
+                    public String key(PurchaseSummary summary) {
+                        return summary.getId();
                     }
-                }
-                adapter.notifyDataSetChanged();
-            }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(PurchasedItemsActivity.this, "Failed to load purchased items.", Toast.LENGTH_SHORT).show();
-                Log.e(DEBUG_TAG, "Error: " + error.getMessage());
-            }
-        });
+                    @Override
+                    public long timestamp(PurchaseSummary summary) {
+                        return summary.getTimestamp();
+                    }
+                },
+                new HistoryPager.Listener<PurchaseSummary>() {
+                    @Override
+                    public void onRecordsChanged(List<PurchaseSummary> summaries) {
+                        purchaseSummaries.clear();
+                        purchaseSummaries.addAll(summaries);
+                        adapter.notifyDataSetChanged();
+                        firstRowTimer.onRowsShown(purchaseSummaries.size());
+                    }
+
+                    @Override
+                    public void onPageFailed(DatabaseError error) {
+                        Toast.makeText(PurchasedItemsActivity.this, "Failed to load purchased items.", Toast.LENGTH_SHORT).show();
+                        Log.e(DEBUG_TAG, "Error: " + error.getMessage());
+                    }
+                });
+        historyPager.start(listenerRegistry);
+        historyPager.attachTo(purchasedItemsRecyclerView);
     }
 
     /**
-     * Update the total price of the purchased items
-     * @param record
+     * Update the total price of the purchased items, in the record and in its summary
+     * @param summary
      * @param newPrice
      */
-    private void updatePurchasePrice(PurchasedRecord record, double newPrice) {
-        purchasedItemsReference.child(record.getId()).child("totalPrice").setValue(newPrice).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                record.setTotalPrice(newPrice);
-                adapter.notifyDataSetChanged();
+    private void updatePurchasePrice(PurchaseSummary summary, double newPrice) {
+        repository.updatePurchasePrice(summary, newPrice, (result, error) -> {
+            if (error == null) {
                 Toast.makeText(PurchasedItemsActivity.this, "Purchase price updated.", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(PurchasedItemsActivity.this, "Failed to update purchase price.", Toast.LENGTH_SHORT).show();
@@ -137,51 +180,51 @@ public class PurchasedItemsActivity extends AppCompatActivity {
     }
 
     /**
-     * Calculates how much each roommate need to pay
+     * Calculates how much each roommate need to pay and who pays whom.
+     * The ledger keeps a running total per roommate, so only one small node is read
+     * no matter how long the history is.
      */
     private void settleCosts() {
-        if (purchasedRecords.isEmpty()) {
-            Toast.makeText(this, "No purchases to settle!", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        double totalCost = 0.0;
-        Map<String, Double> roommateSpending = new HashMap<>();
-
-        // Calculate total cost and spending per roommate
-        for (PurchasedRecord record : purchasedRecords) {
-            totalCost += record.getTotalPrice();
-
-            String roommate = record.getPurchasedBy();
-            roommateSpending.put(roommate, roommateSpending.getOrDefault(roommate, 0.0) + record.getTotalPrice());
-        }
-
-        // Calculate average spending
-        int roommateCount = roommateSpending.size();
-        double averageSpending = totalCost / roommateCount;
+        repository.settle((settlement, error) -> {
+            if (error != null) {
+                Toast.makeText(PurchasedItemsActivity.this, "Failed to load purchases.", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Error: " + error.getMessage());
+            } else if (settlement.getTotalCents() == 0) {
+                Toast.makeText(PurchasedItemsActivity.this, "No purchases to settle!", Toast.LENGTH_SHORT).show();
+            } else {
+                showSettlement(settlement);
+            }
+        });
+    }
 
+    /**
+     * Show the shares and the transfers in a dialog
+     * @param settlement
+     */
+    private void showSettlement(SettlementCalculator.Settlement settlement) {
         // Build the formatted dialog
         StringBuilder results = new StringBuilder();
 
         // Roommates (Spent) Section
         results.append("<b><u>Roommates (Spent):</u></b><br>");
-        for (Map.Entry<String, Double> entry : roommateSpending.entrySet()) {
-            String roommate = entry.getKey();
-            double spent = entry.getValue();
-            results.append(String.format("\u2022 %s: $%.2f<br>", roommate, spent));
+        for (Map.Entry<String, Long> entry : settlement.getSpentCents().entrySet()) {
+            results.append(String.format("\u2022 %s: %s<br>", entry.getKey(), Money.format(entry.getValue())));
         }
 
-        // Total and Average Section
-        results.append(String.format("<br><b>Total:</b> $%.2f<br>", totalCost));
-        results.append(String.format("<b>Average:</b> $%.2f<br>", averageSpending));
-
-        // Difference from Average Section
-        results.append("<br><b><u>Difference from Average:</u></b><br>");
-        for (Map.Entry<String, Double> entry : roommateSpending.entrySet()) {
-            String roommate = entry.getKey();
-            double spent = entry.getValue();
-            double difference = spent - averageSpending;
-            results.append(String.format("\u2022 %s: $%.2f<br>", roommate, difference));
+        // Total and Share Section
+        results.append(String.format("<br><b>Total:</b> %s<br>", Money.format(settlement.getTotalCents())));
+        results.append(String.format("<b>Share:</b> %s each (%d roommates)<br>",
+                Money.format(settlement.getTotalCents() / settlement.getShareCents().size()),
+                settlement.getShareCents().size()));
+
+        // Who Pays Whom Section
+        results.append("<br><b><u>Who Pays Whom:</u></b><br>");
+        if (settlement.getTransfers().isEmpty()) {
+            results.append("Everyone is even!<br>");
+        }
+        for (SettlementCalculator.Transfer transfer : settlement.getTransfers()) {
+            results.append(String.format("\u2022 %s pays %s: %s<br>",
+                    transfer.getFrom(), transfer.getTo(), Money.format(transfer.getCents())));
         }
 
         // Show the results in a dialog
@@ -193,14 +236,100 @@ public class PurchasedItemsActivity extends AppCompatActivity {
                 .show();
     }
 
+    /**
+     * Show what the group spent in the last weeks and months, per roommate and per item.
+     * Only the rollup buckets of the range are read, they are kept by every checkout and edit
+     * and stay when the history is cleared.
+     */
+    private void showSpending() {
+        repository.loadTimeZone((zone, zoneError) -> {
+            if (zoneError != null) {
+                Toast.makeText(PurchasedItemsActivity.this, "Failed to load spending.", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Error: " + zoneError.getMessage());
+                return;
+            }
+            showSpending(zone);
+        });
+    }
+
+    /**
+     * Show the spending of the weeks and months up to now in the group's time zone
+     * @param zone
+     */
+    private void showSpending(TimeZone zone) {
+        long now = System.currentTimeMillis();
+        String firstWeek = SpendingRollup.bucketOf(SpendingRollup.WEEK, now, 1 - SPENDING_WEEKS, zone);
+        String thisWeek = SpendingRollup.bucketOf(SpendingRollup.WEEK, now, 0, zone);
+        String firstMonth = SpendingRollup.bucketOf(SpendingRollup.MONTH, now, 1 - SPENDING_MONTHS, zone);
+        String thisMonth = SpendingRollup.bucketOf(SpendingRollup.MONTH, now, 0, zone);
+
+        repository.loadSpending(SpendingRollup.WEEK, firstWeek, thisWeek, (weeks, error) -> {
+            if (error != null) {
+                Toast.makeText(PurchasedItemsActivity.this, "Failed to load spending.", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Error: " + error.getMessage());
+                return;
+            }
+            repository.loadSpending(SpendingRollup.MONTH, firstMonth, thisMonth, (months, monthsError) -> {
+                if (monthsError != null) {
+                    Toast.makeText(PurchasedItemsActivity.this, "Failed to load spending.", Toast.LENGTH_SHORT).show();
+                    Log.e(DEBUG_TAG, "Error: " + monthsError.getMessage());
+                    return;
+                }
+                StringBuilder results = new StringBuilder();
+
+                // Weeks Section, one bar per week
+                results.append("<b><u>Weeks:</u></b><br>");
+                appendBars(results, weeks.series(firstWeek, thisWeek));
+
+                // Months Section
+                results.append("<br><b><u>Months:</u></b><br>");
+                appendBars(results, months.series(firstMonth, thisMonth));
+
+                // Roommates and Items Sections, over the months shown
+                results.append(String.format("<br><b><u>Roommates (last %d months):</u></b><br>", SPENDING_MONTHS));
+                for (Map.Entry<String, Long> entry : months.byRoommate().entrySet()) {
+                    results.append(String.format("\u2022 %s: %s<br>", entry.getKey(), Money.format(entry.getValue())));
+                }
+                results.append(String.format("<br><b><u>Top Items (last %d months):</u></b><br>", SPENDING_MONTHS));
+                for (Map.Entry<String, Long> entry : months.byItem(TOP_ITEMS).entrySet()) {
+                    results.append(String.format("\u2022 %s: %s<br>", entry.getKey(), Money.format(entry.getValue())));
+                }
+
+                new AlertDialog.Builder(this)
+                        .setTitle("Spending")
+                        .setMessage(android.text.Html.fromHtml(results.toString())) // Supports formatting
+                        .setPositiveButton("OK", null)
+                        .show();
+            });
+        });
+    }
+
+    /**
+     * Add a line with a text bar for every bucket, the longest bar is the bucket with the most spending
+     * @param results
+     * @param series bucket key to cents
+     */
+    private static void appendBars(StringBuilder results, Map<String, Long> series) {
+        long max = 1;
+        for (long cents : series.values()) {
+            max = Math.max(max, cents);
+        }
+        for (Map.Entry<String, Long> entry : series.entrySet()) {
+            int length = (int) (Math.max(0, entry.getValue()) * 10 / max);
+            StringBuilder bar = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                bar.append('\u2588');
+            }
+            results.append(String.format("%s %s %s<br>", entry.getKey(), bar, Money.format(entry.getValue())));
+        }
+    }
+
     /**
      * Clear all purchased records once the cost has been settled
      */
     private void clearPurchasedItems() {
-        purchasedItemsReference.removeValue().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                purchasedRecords.clear();
-                adapter.notifyDataSetChanged();
+        repository.clearHistory((result, error) -> {
+            if (error == null) {
                 Toast.makeText(this, "All purchases cleared!", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(this, "Failed to clear purchases.", Toast.LENGTH_SHORT).show();
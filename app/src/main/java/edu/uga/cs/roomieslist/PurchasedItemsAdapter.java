@@ -18,23 +18,24 @@ import java.util.List;
 import java.util.Locale;
 
 /**
- * Adapter for displaying the purchased records
+ * Adapter for displaying the purchased records.
+ * Shows the summaries from the history index, the full record is only loaded when it is edited.
  */
 public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAdapter.ViewHolder> {
 
     // Variables
-    private final List<PurchasedRecord> purchasedRecords;
+    private final List<PurchaseSummary> summaries;
     private final OnItemClickListener listener;
     private final String groupId;
 
     // Interface for click actions
     public interface OnItemClickListener {
-        void onUpdatePriceClick(PurchasedRecord record, double newPrice);
+        void onUpdatePriceClick(PurchaseSummary summary, double newPrice);
     }
 
     // Constructor
-    public PurchasedItemsAdapter(List<PurchasedRecord> purchasedRecords, String groupId, OnItemClickListener listener) {
-        this.purchasedRecords = purchasedRecords;
+    public PurchasedItemsAdapter(List<PurchaseSummary> summaries, String groupId, OnItemClickListener listener) {
+        this.summaries = summaries;
         this.groupId = groupId;
         this.listener = listener;
     }
@@ -49,31 +50,20 @@ public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAd
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        PurchasedRecord record = purchasedRecords.get(position);
+        PurchaseSummary summary = summaries.get(position);
 
         // Bind data to views and total price
-        String purchaserName = record.getPurchasedBy() != null ? record.getPurchasedBy() : "Unknown User";
+        String purchaserName = summary.getPurchasedBy() != null ? summary.getPurchasedBy() : "Unknown User";
         holder.purchaseRoommateTextView.setText("Purchased by: " + purchaserName);
-        holder.purchaseTotalPriceTextView.setText(String.format(Locale.US, "Total Price: $%.2f", record.getTotalPrice()));
+        holder.purchaseTotalPriceTextView.setText(String.format(Locale.US, "Total Price: $%.2f", summary.getTotalPrice()));
 
         // Convert timestamp to readable date
-        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(record.getTimestamp());
+        String date = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(summary.getTimestamp());
         holder.purchaseTimestampTextView.setText("Purchased on: " + date);
 
-        // Build a comma-separated string of items
-        List<Item> items = record.getItems();
-        if (items != null && !items.isEmpty()) {
-            StringBuilder itemsStringBuilder = new StringBuilder("Items: ");
-            for (Item item : items) {
-                if (item != null && item.getName() != null) { // Check for null item and name
-                    itemsStringBuilder.append(item.getName()).append(", ");
-                }
-            }
-            String itemsString = itemsStringBuilder.toString().trim();
-            if (itemsString.endsWith(",")) {
-                itemsString = itemsString.substring(0, itemsString.length() - 1); // Remove trailing comma
-            }
-            holder.purchaseItemsTextView.setText(itemsString);
+        // The item names were joined when the record was saved
+        if (summary.getItemCount() > 0) {
+            holder.purchaseItemsTextView.setText("Items: " + summary.getItemNames());
         } else {
             holder.purchaseItemsTextView.setText("Items: None");
         }
@@ -83,14 +73,14 @@ public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAd
             Context context = v.getContext();
             Intent intent = new Intent(context, EditPurchasedRecordActivity.class);
             intent.putExtra("GROUP_ID", groupId); // Pass groupId directly
-            intent.putExtra("PURCHASE_ID", record.getId());
+            intent.putExtra("PURCHASE_ID", summary.getId());
             context.startActivity(intent);
         });
 
         // Handle updating the price when the item view is clicked
         holder.itemView.setOnClickListener(v -> {
             if (listener != null) {
-                showUpdatePriceDialog(v.getContext(), record);
+                showUpdatePriceDialog(v.getContext(), summary);
             }
         });
     }
@@ -101,7 +91,7 @@ public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAd
      */
     @Override
     public int getItemCount() {
-        return purchasedRecords.size();
+        return summaries.size();
     }
 
     /**
@@ -128,9 +118,9 @@ public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAd
     /**
      * Update dialog is displayed to allow user to edit the price on the total purchased items
      * @param context
-     * @param record
+     * @param summary
      */
-    private void showUpdatePriceDialog(Context context, PurchasedRecord record) {
+    private void showUpdatePriceDialog(Context context, PurchaseSummary summary) {
         android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(context);
         builder.setTitle("Update Purchase Price");
 
@@ -144,7 +134,7 @@ public class PurchasedItemsAdapter extends RecyclerView.Adapter<PurchasedItemsAd
             if (!inputText.isEmpty()) {
                 double newPrice = Double.parseDouble(inputText);
                 if (listener != null) {
-                    listener.onUpdatePriceClick(record, newPrice);
+                    listener.onUpdatePriceClick(summary, newPrice);
                 }
             }
         });
@@ -0,0 +1,17 @@
+package edu.uga.cs.roomieslist;
+
+import android.app.Application;
+
+/**
+ * Application class, sets up the things that have to exist before the first Activity
+ */
+public class RoomiesListApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // The disk cache has to be turned on before any database reference is created
+        OfflineStore.enable();
+    }
+}
@@ -0,0 +1,171 @@
+package edu.uga.cs.roomieslist;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * Keeps the signed in user's id, group id and name on the device, so a returning user
+ * opens the shopping list without waiting for Users/[userId] to be read.
+ * The cached values are checked against the database in the background with {@link #revalidate}.
+ */
+public final class SessionCache {
+
+    // Variables
+    private static final String DEBUG_TAG = "SessionCache";
+    private static final String PREFERENCES = "session";
+    private static final String KEY_USER_ID = "userId";
+    private static final String KEY_GROUP_ID = "groupId";
+    private static final String KEY_NAME = "name";
+    private static final String UNKNOWN_USER = "Unknown User";
+    private static Session current;
+
+    private SessionCache() {}
+
+    /**
+     * Get the cached session of the signed in user, without reading the database
+     * @param context
+     * @return the session, or null if nobody is signed in or the session of this user was never saved
+     */
+    public static synchronized Session get(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return null;
+        }
+        if (current == null) {
+            SharedPreferences preferences = preferences(context);
+            String userId = preferences.getString(KEY_USER_ID, null);
+            String groupId = preferences.getString(KEY_GROUP_ID, null);
+            if (userId != null && groupId != null) {
+                current = new Session(userId, groupId, preferences.getString(KEY_NAME, UNKNOWN_USER));
+            }
+        }
+        // A session saved for someone else who used this device before
+        return current != null && current.userId.equals(user.getUid()) ? current : null;
+    }
+
+    /**
+     * Get the name of the signed in user, from the cache when there is one
+     * @param context
+     * @return the name, "Unknown User" if it is not known
+     */
+    public static String getName(Context context) {
+        Session session = get(context);
+        if (session != null) {
+            return session.name;
+        }
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user != null && user.getDisplayName() != null && !user.getDisplayName().isEmpty()) {
+            return user.getDisplayName();
+        }
+        return UNKNOWN_USER;
+    }
+
+    /**
+     * Save the session of a user
+     * @param context
+     * @param userId
+     * @param groupId
+     * @param name
+     */
+    public static synchronized void save(Context context, String userId, String groupId, String name) {
+        current = new Session(userId, groupId, name != null && !name.isEmpty() ? name : UNKNOWN_USER);
+        preferences(context).edit()
+                .putString(KEY_USER_ID, current.userId)
+                .putString(KEY_GROUP_ID, current.groupId)
+                .putString(KEY_NAME, current.name)
+                .apply();
+    }
+
+    /**
+     * Forget the cached session and sign the user out
+     * @param context
+     */
+    public static synchronized void signOut(Context context) {
+        current = null;
+        preferences(context).edit().clear().apply();
+        FirebaseAuth.getInstance().signOut();
+    }
+
+    /**
+     * Get the session of the signed in user, from the cache, or by reading Users/[userId] once
+     * if it is not cached yet
+     * @param context
+     * @param callback gets the session, or null if the user has no group; runs on the UI thread
+     */
+    public static void resolve(Context context, ShoppingRepository.Callback<Session> callback) {
+        Session session = get(context);
+        if (session != null) {
+            callback.onComplete(session, null);
+            return;
+        }
+        revalidate(context, callback);
+    }
+
+    /**
+     * Read Users/[userId] of the signed in user and save what is stored there as the session
+     * @param context
+     * @param callback gets the fresh session, or null if the user has no group; runs on the UI thread
+     */
+    public static void revalidate(Context context, ShoppingRepository.Callback<Session> callback) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            callback.onComplete(null, new IllegalStateException("User is not logged in"));
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        String userId = user.getUid();
+        FirebaseDatabase.getInstance().getReference(GroupUpdate.USERS).child(userId)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(@NonNull DataSnapshot snapshot) {
+                        SnapshotDecoder.decode(snapshot, SnapshotDecoder::user, stored -> {
+                            if (stored == null || stored.groupId == null) {
+                                callback.onComplete(null, null);
+                                return;
+                            }
+                            Session cached = get(appContext);
+                            if (cached != null && !cached.groupId.equals(stored.groupId)) {
+                                Log.w(DEBUG_TAG, "Group changed from " + cached.groupId + " to " + stored.groupId);
+                            }
+                            save(appContext, userId, stored.groupId, stored.name != null ? stored.name : user.getDisplayName());
+                            callback.onComplete(get(appContext), null);
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(@NonNull DatabaseError error) {
+                        Log.e(DEBUG_TAG, "Failed to read the user: " + error.getMessage());
+                        callback.onComplete(null, error.toException());
+                    }
+                });
+    }
+
+    private static SharedPreferences preferences(Context context) {
+        return context.getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Who is signed in and the group they shop for
+     */
+    public static final class Session {
+        public final String userId;
+        public final String groupId;
+        public final String name;
+
+        Session(String userId, String groupId, String name) {
+            this.userId = userId;
+            this.groupId = groupId;
+            this.name = name;
+        }
+    }
+}
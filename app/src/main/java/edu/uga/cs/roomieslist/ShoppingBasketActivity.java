@@ -1,9 +1,14 @@
 package edu.uga.cs.roomieslist;
 
+import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.InputType;
 import android.util.Log;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
@@ -12,11 +17,9 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
@@ -30,12 +33,15 @@ public class ShoppingBasketActivity extends AppCompatActivity {
 
     // Variables
     private static final String DEBUG_TAG = "ShoppingBasketActivity";
+    public static final String CHECKOUT_COMMIT = "checkout.commit";
     private RecyclerView shoppingBasketRecyclerView;
     private ShoppingListAdapter adapter;
     private DatabaseReference basketReference;
+    private ShoppingRepository repository;
     private String userGroupId;
     private List<Item> basketItems;
-    private DatabaseReference shoppingListReference;
+    private ListenerRegistry listenerRegistry;
+    private OfflineStore.FirstRowTimer firstRowTimer;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,11 +57,18 @@ public class ShoppingBasketActivity extends AppCompatActivity {
             return;
         }
 
-        // Create the Firebase reference for the shopping basket
-        basketReference = FirebaseDatabase.getInstance().getReference("ShoppingBasket").child(userGroupId);
+        // Listeners are attached while the Activity is visible and removed in onStop
+        listenerRegistry = new ListenerRegistry(this);
 
-        // Create a reference to the Firebase for shopping list
-        shoppingListReference = FirebaseDatabase.getInstance().getReference("ShoppingList").child(userGroupId);
+        // Rows come from the disk cache first, then from the server
+        firstRowTimer = OfflineStore.startFirstRowTimer(DEBUG_TAG);
+        OfflineStore.keepGroupSynced(userGroupId);
+
+        // Reads and writes of the group's data go through the repository,
+        // the basket itself is kept live from the basket node
+        FirebaseShoppingRepository firebaseRepository = new FirebaseShoppingRepository(userGroupId);
+        repository = firebaseRepository;
+        basketReference = firebaseRepository.getGroupReference(GroupUpdate.SHOPPING_BASKET);
 
         // Obtain object View
         shoppingBasketRecyclerView = findViewById(R.id.shoppingBasketRecyclerView);
@@ -65,7 +78,7 @@ public class ShoppingBasketActivity extends AppCompatActivity {
         basketItems = new ArrayList<>();
 
         // Use adapter
-        adapter = new ShoppingListAdapter(basketItems, new ShoppingListAdapter.OnItemClickListener() {
+        adapter = new ShoppingListAdapter(new ShoppingListAdapter.OnItemClickListener() {
 
             /**
              * Item will not be edited in basket Activity
@@ -101,7 +114,7 @@ public class ShoppingBasketActivity extends AppCompatActivity {
 
         // Handle Logout Button Click
         findViewById(R.id.logoutButton2).setOnClickListener(v -> {
-            FirebaseAuth.getInstance().signOut(); // Sign out the user
+            SessionCache.signOut(this); // Sign out the user and forget the session
             Intent intent = new Intent(ShoppingBasketActivity.this, MainActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
             startActivity(intent);
@@ -125,17 +138,15 @@ public class ShoppingBasketActivity extends AppCompatActivity {
      * Get the items from the basket from Firebase
      */
     private void loadBasketItems() {
-        basketReference.addValueEventListener(new ValueEventListener() {
+        listenerRegistry.addValueListener(basketReference, new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                basketItems.clear();
-                for (DataSnapshot itemSnapshot : snapshot.getChildren()) {
-                    Item item = itemSnapshot.getValue(Item.class);
-                    if (item != null) {
-                        basketItems.add(item);
-                    }
-                }
-                adapter.notifyDataSetChanged();
+                SnapshotDecoder.decodeChildren(snapshot, SnapshotDecoder::item, items -> {
+                    basketItems.clear();
+                    basketItems.addAll(items);
+                    adapter.submitList(new ArrayList<>(basketItems));
+                    firstRowTimer.onRowsShown(basketItems.size());
+                });
             }
 
             @Override
@@ -151,29 +162,19 @@ public class ShoppingBasketActivity extends AppCompatActivity {
      * @param item
      */
     private void deleteItemMoveBackToList(Item item) {
-        // Remove the item from the basket list
-        basketReference.child(item.getItemId()).removeValue().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                // Set the values back to default
-                item.setPurchased(false);
-                item.setPurchasedBy(null);
-                item.setSelected(false);
-                item.setPrice(0.0);
-
-                // Send the item back to the shopping list
-                shoppingListReference.child(item.getItemId()).setValue(item).addOnCompleteListener(addTask -> {
-                    if (addTask.isSuccessful()) {
-                        basketItems.remove(item);
-                        adapter.notifyDataSetChanged();
-                        Toast.makeText(this, "Item moved back to shopping list", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Log.e(DEBUG_TAG, "Failed to add item back to shopping list.");
-                        Toast.makeText(this, "Failed to move item to shopping list", Toast.LENGTH_SHORT).show();
-                    }
-                });
+        // Set the values back to default
+        item.setPurchased(false);
+        item.setPurchasedBy(null);
+        item.setSelected(false);
+        item.setPrice(0.0);
+
+        // Remove the item from the basket and send it back to the shopping list in one update
+        repository.moveToList(item, (result, error) -> {
+            if (error == null) {
+                Toast.makeText(this, "Item moved back to shopping list", Toast.LENGTH_SHORT).show();
             } else {
-                Log.e(DEBUG_TAG, "Failed to remove item from basket.");
-                Toast.makeText(this, "Failed to remove item from basket", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Failed to move item back to shopping list.", error);
+                Toast.makeText(this, "Failed to move item to shopping list", Toast.LENGTH_SHORT).show();
             }
         });
     }
@@ -183,36 +184,24 @@ public class ShoppingBasketActivity extends AppCompatActivity {
      * @param item
      */
     private void itemPurchaseStatus(Item item) {
+        ShoppingRepository.Callback<Void> callback = (result, error) -> {
+            if (error != null) {
+                Log.e(DEBUG_TAG, "Failed to move item " + item.getName(), error);
+            }
+        };
         if (item.isPurchased()) {
-            // If item is purchased, mark as purchased
-            // Then move the item to the basket list
-            basketReference.child(item.getItemId()).setValue(item).addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    shoppingListReference.child(item.getItemId()).removeValue().addOnCompleteListener(removeTask -> {
-                        if (removeTask.isSuccessful()) {
-                            loadBasketItems();
-                        }
-                    });
-                }
-            });
+            // The item is already in the basket, only write the fields that changed
+            repository.updateBasketItemFields(item, callback);
         } else {
-            // If item is unpurchased, unmark as purchased
-            // Then move the item back to the shopping list and remove from basket
+            // If item is unpurchased, move the item back to the shopping list
             item.setPurchasedBy(null);
-            shoppingListReference.child(item.getItemId()).setValue(item).addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    basketReference.child(item.getItemId()).removeValue().addOnCompleteListener(removeTask -> {
-                        if (removeTask.isSuccessful()) {
-                            loadBasketItems();
-                        }
-                    });
-                }
-            });
+            repository.moveToList(item, callback);
         }
     }
 
     /**
-     * Handles the checkout process
+     * Handles the checkout process.
+     * Items were checked off without a price, so the price of each one without it is asked for first.
      */
     private void checkoutItems() {
         if (basketItems.isEmpty()) {
@@ -220,65 +209,81 @@ public class ShoppingBasketActivity extends AppCompatActivity {
             return;
         }
 
-        // Retrieve the current user's name
-        String userName = FirebaseAuth.getInstance().getCurrentUser().getDisplayName();
-        if (userName == null || userName.isEmpty()) {
-            userName = "Unknown User";
+        List<Item> items = new ArrayList<>();
+        List<Item> unpriced = new ArrayList<>();
+        for (Item basketItem : basketItems) {
+            Item item = new Item(basketItem);
+            items.add(item);
+            if (item.getPrice() <= 0) {
+                unpriced.add(item);
+            }
         }
-
-        // Calculate total price
-        double totalPrice = 0.0;
-        for (Item item : basketItems) {
-            totalPrice += item.getPrice();
+        if (unpriced.isEmpty()) {
+            checkout(items);
+            return;
         }
 
-        // Generate unique ID for the purchase record
-        String purchaseId = FirebaseDatabase.getInstance()
-                .getReference("PurchasedItems")
-                .child(userGroupId)
-                .push().getKey();
-
-        if (purchaseId == null) {
-            Toast.makeText(this, "Failed to generate purchase ID.", Toast.LENGTH_SHORT).show();
-            return;
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Enter Prices");
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        List<EditText> priceInputs = new ArrayList<>();
+        for (Item item : unpriced) {
+            EditText priceInput = new EditText(this);
+            priceInput.setHint("Price of " + item.getName());
+            priceInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+            layout.addView(priceInput);
+            priceInputs.add(priceInput);
         }
+        builder.setView(layout);
+
+        builder.setPositiveButton("Checkout", (dialog, which) -> {
+            for (int i = 0; i < unpriced.size(); i++) {
+                String priceText = priceInputs.get(i).getText().toString().trim();
+                if (priceText.isEmpty()) {
+                    Toast.makeText(this, "Enter the price of every item to check out", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                unpriced.get(i).setPrice(Double.parseDouble(priceText));
+            }
+            checkout(items);
+        });
+        builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
+        builder.show();
+    }
 
-        // Create the purchased record
-        PurchasedRecord record = new PurchasedRecord(
-                userName, // purchasedBy
-                new ArrayList<>(basketItems), // items
-                totalPrice, // totalPrice
-                System.currentTimeMillis() // timestamp
-        );
-
-        // Reference to the purchased items node
-        DatabaseReference purchasedItemsRef = FirebaseDatabase.getInstance()
-                .getReference("PurchasedItems")
-                .child(userGroupId)
-                .child(purchaseId);
-
-        // Save the record to Firebase
-        purchasedItemsRef.setValue(record).addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                // Clear the basket after successful checkout
-                basketReference.removeValue().addOnCompleteListener(clearTask -> {
-                    if (clearTask.isSuccessful()) {
-                        basketItems.clear();
-                        adapter.notifyDataSetChanged();
-                        Toast.makeText(this, "Checkout successful!", Toast.LENGTH_SHORT).show();
-
-                        // Navigate to the Purchased Items Page
-                        Intent intent = new Intent(ShoppingBasketActivity.this, PurchasedItemsActivity.class);
-                        intent.putExtra("GROUP_ID", userGroupId);
-                        startActivity(intent);
-                        finish(); // Close the basket page
-                    } else {
-                        Toast.makeText(this, "Failed to clear basket.", Toast.LENGTH_SHORT).show();
-                    }
-                });
+    /**
+     * Save the purchase and go to the purchase history
+     * @param items the basket items with their prices
+     */
+    private void checkout(List<Item> items) {
+        // Retrieve the current user's name from the session
+        String userName = SessionCache.getName(this);
+
+        // Write the record and remove the checked-out items from the basket in one update.
+        // The update is applied to the local cache right away (and queued if offline),
+        // the callback only reports when the server has committed it.
+        long commitStart = SystemClock.elapsedRealtime();
+        repository.checkout(userName, items, (result, error) -> {
+            long commitMillis = SystemClock.elapsedRealtime() - commitStart;
+            PerfMetrics.recordTime(CHECKOUT_COMMIT, commitMillis);
+            Log.d(DEBUG_TAG, "Checkout commit took " + commitMillis + "ms, success: " + (error == null));
+
+            // The Activity is finished by now, so the result is shown with the application context
+            if (error == null) {
+                Toast.makeText(getApplicationContext(), "Checkout successful!", Toast.LENGTH_SHORT).show();
             } else {
-                Toast.makeText(this, "Checkout failed.", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Checkout failed.", error);
+                Toast.makeText(getApplicationContext(), "Checkout failed.", Toast.LENGTH_SHORT).show();
             }
         });
+        // Only queued so far, it is sent when there is a connection
+        Toast.makeText(this, "Checkout saved", Toast.LENGTH_SHORT).show();
+
+        // Navigate to the Purchased Items Page
+        Intent intent = new Intent(ShoppingBasketActivity.this, PurchasedItemsActivity.class);
+        intent.putExtra("GROUP_ID", userGroupId);
+        startActivity(intent);
+        finish(); // Close the basket page
     }
 }
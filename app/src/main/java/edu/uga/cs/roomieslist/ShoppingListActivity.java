@@ -3,8 +3,13 @@ package edu.uga.cs.roomieslist;
 import android.app.AlertDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
 import android.text.InputType;
+import android.text.TextWatcher;
 import android.util.Log;
+import android.widget.AutoCompleteTextView;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.Toast;
@@ -12,19 +17,19 @@ import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.ValueEventListener;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * This class handles the shopping list.
@@ -34,13 +39,32 @@ public class ShoppingListActivity extends AppCompatActivity {
 
     // Variables
     private static final String DEBUG_TAG = "ShoppingListActivity";
+    // Check boxes ticked within this time are written together
+    private static final long TOGGLE_WINDOW_MILLIS = 1500;
+    private static final int MAX_PENDING_TOGGLES = 50;
     private RecyclerView shoppingListRecyclerView;
     private ShoppingListAdapter adapter;
     private DatabaseReference databaseReference;
+    private DatabaseReference historyReference;
+    private ShoppingRepository repository;
+    private WriteCoalescer toggleWriter;
     private String userGroupId;
     private List<Item> shoppingList;
-    private String userName = "Unknown User";
-    private DatabaseReference basketReference;
+    private String userName;
+    private ItemSyncEngine syncEngine;
+    private ListenerRegistry listenerRegistry;
+    private OfflineStore.FirstRowTimer firstRowTimer;
+    private final ItemSearchIndex searchIndex = new ItemSearchIndex();
+    private final ItemNameIndex nameIndex = new ItemNameIndex();
+    private AisleOrder aisleOrder = new AisleOrder();
+    private final AisleOrderedList aisleList = new AisleOrderedList(aisleOrder);
+    // Names of the items checked off since the last trip, in the order they were ticked
+    private final List<String> tripSequence = new ArrayList<>();
+    private String searchQuery = "";
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // A new list is already going to be shown in this frame
+    private boolean showPosted;
+    private final PriceHistoryIndex priceHistory = new PriceHistoryIndex();
 
 
     @Override
@@ -52,11 +76,40 @@ public class ShoppingListActivity extends AppCompatActivity {
         // Get user group id from profile when user first gets to the list
         userGroupId = getIntent().getStringExtra("GROUP_ID");
 
-        // Create a reference to the Firebase for shopping list
-        databaseReference = FirebaseDatabase.getInstance().getReference("ShoppingList").child(userGroupId);
-
-        // Create the Firebase reference for the shopping basket
-        basketReference = FirebaseDatabase.getInstance().getReference("ShoppingBasket").child(userGroupId);
+        // Listeners are attached while the Activity is visible and removed in onStop
+        listenerRegistry = new ListenerRegistry(this);
+
+        // Rows come from the disk cache first, then from the server
+        firstRowTimer = OfflineStore.startFirstRowTimer(DEBUG_TAG);
+        OfflineStore.keepGroupSynced(userGroupId);
+
+        // Reads and writes of the group's data go through the repository,
+        // the list itself is kept live from the shopping list node
+        FirebaseShoppingRepository firebaseRepository = new FirebaseShoppingRepository(userGroupId);
+        repository = firebaseRepository;
+        databaseReference = firebaseRepository.getGroupReference(GroupUpdate.SHOPPING_LIST);
+        historyReference = firebaseRepository.getGroupReference(GroupUpdate.PRICE_HISTORY);
+
+        // Check box changes wait a moment and go out together, and are all written when the
+        // Activity is no longer visible
+        toggleWriter = new WriteCoalescer(repository, mainHandler::postDelayed, TOGGLE_WINDOW_MILLIS, MAX_PENDING_TOGGLES);
+        toggleWriter.setFlushListener((items, error) -> {
+            if (error instanceof ItemConflictException) {
+                // Only the items changed by someone else were not written, the list shows their change
+                Toast.makeText(ShoppingListActivity.this, "Someone else changed this item, try again", Toast.LENGTH_SHORT).show();
+                showShoppingList();
+            } else if (error != null) {
+                Log.e(DEBUG_TAG, "Failed to update " + items + " items.", error);
+                Toast.makeText(ShoppingListActivity.this, "Failed to update item status", Toast.LENGTH_SHORT).show();
+                showShoppingList();
+            }
+        });
+        getLifecycle().addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStop(@NonNull LifecycleOwner owner) {
+                toggleWriter.flush();
+            }
+        });
 
         // Obtain object View
         shoppingListRecyclerView = findViewById(R.id.shoppingListRecyclerView);
@@ -64,7 +117,7 @@ public class ShoppingListActivity extends AppCompatActivity {
         shoppingList = new ArrayList<>();
 
         // Use adapter
-        adapter = new ShoppingListAdapter(shoppingList, new ShoppingListAdapter.OnItemClickListener() {
+        adapter = new ShoppingListAdapter(new ShoppingListAdapter.OnItemClickListener() {
 
             /**
              * Handles when the item clicked on to edit it
@@ -72,6 +125,8 @@ public class ShoppingListActivity extends AppCompatActivity {
              */
             @Override
             public void onItemEditClick(Item item) {
+                // The dialog edits the item as stored, with the ticked check boxes written first
+                toggleWriter.flush();
                 showEditItemDialog(item);
             }
 
@@ -90,16 +145,36 @@ public class ShoppingListActivity extends AppCompatActivity {
              */
             @Override
             public void updateItemInFirebase(Item item) {
-                showMarkPurchasedDialog(item);
+                toggleItem(item);
             }
         });
         shoppingListRecyclerView.setAdapter(adapter);
 
         // Get shopping list items
         loadShoppingList();
+        loadPriceHistory();
+
+        // The name comes from the cached session, the session is read again in the background
+        userName = SessionCache.getName(this);
+        revalidateSession();
 
-        // Get user's name from the Firebase
-        getNameFromFirebase();
+        // Filter the list while the user types, from the index kept by the sync engine
+        EditText searchEditText = findViewById(R.id.searchEditText);
+        searchEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString();
+                showShoppingList();
+            }
+        });
 
         // Button for adding new items
         findViewById(R.id.addItemButton).setOnClickListener(v -> showAddItemDialog());
@@ -116,7 +191,7 @@ public class ShoppingListActivity extends AppCompatActivity {
 
         // Handle Logout Button Click
         findViewById(R.id.logoutButton).setOnClickListener(v -> {
-            FirebaseAuth.getInstance().signOut();
+            SessionCache.signOut(this);
             Intent intent = new Intent(ShoppingListActivity.this, MainActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK); // Clear back stack
             startActivity(intent);
@@ -125,27 +200,98 @@ public class ShoppingListActivity extends AppCompatActivity {
     }
 
     /**
-     * Get the items from the shopping list
+     * Get the items from the shopping list.
+     * Each added, changed, removed or moved child only updates the list and its indexes,
+     * the rows are redrawn once per frame.
      */
     private void loadShoppingList() {
-        databaseReference.addValueEventListener(new ValueEventListener() {
+        syncEngine = new ItemSyncEngine(shoppingList, new ItemSyncEngine.Listener() {
+            @Override
+            public void onItemsChanged() {
+                showShoppingList();
+            }
+
+            @Override
+            public void onSyncCancelled(DatabaseError error) {
+                Toast.makeText(ShoppingListActivity.this, "Failed to load shopping list.", Toast.LENGTH_SHORT).show();
+            }
+        });
+        syncEngine.addIndex(searchIndex);
+        syncEngine.addIndex(nameIndex);
+        syncEngine.addIndex(aisleList);
+        listenerRegistry.addChildListener(databaseReference, syncEngine);
+        loadAisleOrder();
+    }
+
+    /**
+     * Get the names and prices bought by the group, for the name suggestions and the price
+     * of checked items. Every checkout keeps one small node per name, so only the names
+     * bought most recently are read, never the purchased records.
+     */
+    private void loadPriceHistory() {
+        listenerRegistry.addChildListener(historyReference.orderByChild(ModelCodec.TIMESTAMP)
+                .limitToLast(PriceHistoryIndex.MAX_NAMES), new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                SnapshotDecoder.decode(snapshot, SnapshotDecoder::priceHistoryEntry, priceHistory::put);
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                SnapshotDecoder.decode(snapshot, SnapshotDecoder::priceHistoryEntry, priceHistory::put);
+            }
+
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                shoppingList.clear();
-                for (DataSnapshot itemSnapshot : snapshot.getChildren()) {
-                    Item item = itemSnapshot.getValue(Item.class);
-                    // Avoid duplicate items
-                    if (item != null && !shoppingList.contains(item)){
-                        shoppingList.add(item);
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                SnapshotDecoder.decode(snapshot, SnapshotDecoder::priceHistoryEntry, entry -> {
+                    if (entry != null) {
+                        priceHistory.remove(entry.getName());
                     }
-                }
-                adapter.notifyDataSetChanged();
+                });
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
             }
 
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(ShoppingListActivity.this, "Failed to load shopping list.", Toast.LENGTH_SHORT).show();
+                Log.e(DEBUG_TAG, "Failed to load the price history: " + error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Get the store order learned from the group's trips and sort the list by it
+     */
+    private void loadAisleOrder() {
+        repository.loadAisleOrder((order, error) -> {
+            if (error != null) {
+                // The list stays in the order items were added
+                Log.e(DEBUG_TAG, "Failed to load the aisle order.", error);
+                return;
             }
+            aisleOrder = order;
+            aisleList.setOrder(order);
+            showShoppingList();
+        });
+    }
+
+    /**
+     * Hand the items matching the search to the adapter in store order,
+     * which diffs them on a background thread.
+     * Many changes in the same frame (like the first load) build the list only once.
+     */
+    private void showShoppingList() {
+        if (showPosted) {
+            return;
+        }
+        showPosted = true;
+        mainHandler.post(() -> {
+            showPosted = false;
+            // Queued check box changes are only applied to the matching rows
+            adapter.submitList(toggleWriter.applyPending(searchIndex.filter(aisleList, searchQuery)));
+            firstRowTimer.onRowsShown(shoppingList.size());
         });
     }
 
@@ -161,8 +307,11 @@ public class ShoppingListActivity extends AppCompatActivity {
         LinearLayout layout = new LinearLayout(this);
         layout.setOrientation(LinearLayout.VERTICAL);
 
-        final EditText input = new EditText(this);
+        // Names bought before are suggested while typing
+        final AutoCompleteTextView input = new AutoCompleteTextView(this);
         input.setHint("Item Name");
+        input.setThreshold(1);
+        input.setAdapter(new HistorySuggestionAdapter(this, priceHistory));
         layout.addView(input);
 
         final EditText amountInput = new EditText(this);
@@ -172,23 +321,29 @@ public class ShoppingListActivity extends AppCompatActivity {
 
         builder.setView(layout);
 
-        // When add is clicked create a new item
+        // When add is clicked create a new item, unless it is already on the list
         builder.setPositiveButton("Add", (dialog, which) -> {
             String itemName = input.getText().toString();
             String amountText = amountInput.getText().toString();
 
             if (!itemName.isEmpty()) {
                 int amount = Integer.parseInt(amountText);
-                DatabaseReference groupReference = FirebaseDatabase.getInstance().getReference("ShoppingList").child(userGroupId);
-                String itemId = groupReference.push().getKey();
-                Item newItem = new Item(itemId, itemName, 0.0, null, userName, userGroupId, amount);
-                groupReference.child(itemId).setValue(newItem).addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        Toast.makeText(ShoppingListActivity.this, "Item added successfully", Toast.LENGTH_SHORT).show();
-                    } else {
-                        Toast.makeText(ShoppingListActivity.this, "Failed to add item", Toast.LENGTH_SHORT).show();
-                    }
-                });
+
+                // "milk", "Milk " and "Milks" are the same item, only its amount goes up
+                Item same = findListItem(nameIndex.findSame(itemName));
+                if (same != null) {
+                    increaseAmount(same, itemName, amount);
+                    return;
+                }
+
+                // A close name is probably a typo of an item that is already there
+                List<String> similar = nameIndex.findSimilar(itemName, 1);
+                Item close = similar.isEmpty() ? null : findListItem(similar.get(0));
+                if (close != null) {
+                    showSimilarItemDialog(close, itemName, amount);
+                } else {
+                    addNewItem(itemName, amount);
+                }
             }
         });
 
@@ -196,9 +351,67 @@ public class ShoppingListActivity extends AppCompatActivity {
         builder.show();
     }
 
+    /**
+     * Ask if the user meant an item that is already on the list
+     * @param close item with a similar name
+     * @param itemName name typed by the user
+     * @param amount
+     */
+    private void showSimilarItemDialog(Item close, String itemName, int amount) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle("Already on the list?");
+        builder.setMessage("\"" + close.getName() + "\" is already on the list. Add " + amount + " to it?");
+        builder.setPositiveButton("Add to it", (dialog, which) -> increaseAmount(close, itemName, amount));
+        builder.setNegativeButton("Add as new", (dialog, which) -> addNewItem(itemName, amount));
+        builder.show();
+    }
+
+    /**
+     * Add the amount to an item already on the list. If the item left the list in the
+     * meantime, the database refuses the change and the item is added as a new one.
+     * @param existing
+     * @param itemName name typed by the user
+     * @param amount
+     */
+    private void increaseAmount(Item existing, String itemName, int amount) {
+        repository.increaseAmount(existing.getItemId(), amount, (result, error) -> {
+            if (error == null) {
+                Toast.makeText(ShoppingListActivity.this, "Added " + amount + " more " + existing.getName(), Toast.LENGTH_SHORT).show();
+            } else {
+                Log.w(DEBUG_TAG, "Could not add to " + existing.getItemId() + ", adding a new item", error);
+                addNewItem(itemName, amount);
+            }
+        });
+    }
+
+    /**
+     * Push a new item to the shopping list
+     * @param itemName
+     * @param amount
+     */
+    private void addNewItem(String itemName, int amount) {
+        repository.addItem(itemName, amount, userName, (result, error) -> {
+            if (error == null) {
+                Toast.makeText(ShoppingListActivity.this, "Item added successfully", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(ShoppingListActivity.this, "Failed to add item", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    /**
+     * Get an item of the shopping list by its id
+     * @param itemId
+     * @return the item, null if it is not on the list
+     */
+    private Item findListItem(String itemId) {
+        int position = itemId != null ? syncEngine.positionOf(itemId) : -1;
+        return position >= 0 ? shoppingList.get(position) : null;
+    }
+
     /**
      * If the user wants to edit the item, the user will just click on the item and
-     * change the item name and/or item amount
+     * change the item name, item amount and/or the price it was bought for
      * @param item
      */
     private void showEditItemDialog(Item item) {
@@ -220,30 +433,38 @@ public class ShoppingListActivity extends AppCompatActivity {
         amountInput.setInputType(InputType.TYPE_CLASS_NUMBER);
         layout.addView(amountInput);
 
+        // The price is only asked for items that are checked
+        final EditText priceInput = createPriceInput(item);
+        if (item.isPurchased()) {
+            layout.addView(priceInput);
+        }
+
         builder.setView(layout);
 
         // When save is clicked the item is updated in the Firebase
         builder.setPositiveButton("Save", (dialog, which) -> {
             String newName = nameInput.getText().toString();
             String newAmountStr = amountInput.getText().toString();
+            String priceText = priceInput.getText().toString().trim();
 
             if (!newName.isEmpty() && !newAmountStr.isEmpty()) {
                 int newAmount = Integer.parseInt(newAmountStr);
                 item.setName(newName);
                 item.setAmount(newAmount);
-                FirebaseDatabase.getInstance()
-                        .getReference("ShoppingList")
-                        .child(userGroupId)
-                        .child(item.getItemId())
-                        .setValue(item)
-                        .addOnCompleteListener(task -> {
-                            if (task.isSuccessful()) {
-                                Toast.makeText(this, "Item updated", Toast.LENGTH_SHORT).show();
-                                adapter.notifyDataSetChanged();
-                            } else {
-                                Toast.makeText(this, "Failed to update item", Toast.LENGTH_SHORT).show();
-                            }
-                        });
+                if (item.isPurchased() && !priceText.isEmpty()) {
+                    item.setPrice(Double.parseDouble(priceText));
+                }
+
+                // Only saved if nobody changed the item since the dialog was opened
+                repository.compareAndSetItem(item, (result, error) -> {
+                    if (error == null) {
+                        Toast.makeText(this, "Item updated", Toast.LENGTH_SHORT).show();
+                    } else if (error instanceof ItemConflictException) {
+                        Toast.makeText(this, "Someone else changed this item, try again", Toast.LENGTH_SHORT).show();
+                    } else {
+                        Toast.makeText(this, "Failed to update item", Toast.LENGTH_SHORT).show();
+                    }
+                });
             }
         });
 
@@ -252,46 +473,49 @@ public class ShoppingListActivity extends AppCompatActivity {
     }
 
     /**
-     * If the item is unmark, then allow the user to do and set the item as unpurchased
+     * Creates the price field for an item, filled in with what was paid for it last time
      * @param item
+     * @return the field
      */
-    private void showMarkPurchasedDialog(Item item) {
-        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+    private EditText createPriceInput(Item item) {
+        EditText priceInput = new EditText(this);
+        priceInput.setHint("Enter Price");
+        if (item.getPrice() > 0) {
+            priceInput.setText(String.valueOf(item.getPrice()));
+        } else {
+            // Start from what was paid last time, the usual price is shown when cleared
+            Long lastCents = priceHistory.lastPriceCents(item.getName());
+            Long usualCents = priceHistory.usualPriceCents(item.getName());
+            if (lastCents != null) {
+                priceInput.setText(String.format(Locale.US, "%.2f", Money.toDollars(lastCents)));
+            }
+            if (usualCents != null) {
+                priceInput.setHint("Usually " + Money.format(usualCents));
+            }
+        }
+        priceInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        return priceInput;
+    }
 
-        // If item is unmarked
-        if (!item.isPurchased()) {
-            builder.setTitle("Unmark as Purchased");
-            builder.setMessage("Do you want to mark this item as unpurchased?");
-            builder.setPositiveButton("Yes", (dialog, which) -> {
-                item.setPurchased(false);
-                item.setPrice(0.0);
-                item.setPurchasedBy(null);
-                item.setSelected(false);
-                updateItemInFirebase(item);
-            });
-            builder.setNegativeButton("No", (dialog, which) -> dialog.cancel());
+    /**
+     * Handles when the check box of an item is ticked or unticked. The change shows right away
+     * and is written together with the other check boxes ticked in the next moment.
+     * The price is asked for at checkout, or can be added by clicking on the item.
+     * @param item copy of the item with the new purchase state
+     */
+    private void toggleItem(Item item) {
+        tripSequence.remove(item.getName());
+        if (item.isPurchased()) {
+            item.setPurchasedBy(userName);
+            item.setSelected(true);
+            tripSequence.add(item.getName());
         } else {
-            builder.setTitle("Mark as Purchased");
-
-            final EditText input = new EditText(this);
-            input.setHint("Enter Price");
-            input.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
-            builder.setView(input);
-
-            builder.setPositiveButton("Save", (dialog, which) -> {
-                String priceText = input.getText().toString().trim();
-                if (!priceText.isEmpty()) {
-                    double price = Double.parseDouble(priceText);
-                    item.setPurchased(true);
-                    item.setPrice(price);
-                    item.setPurchasedBy(FirebaseAuth.getInstance().getCurrentUser().getDisplayName());
-                    item.setSelected(true);
-                    updateItemInFirebase(item);
-                }
-            });
-            builder.setNegativeButton("Cancel", (dialog, which) -> dialog.cancel());
+            item.setPrice(0.0);
+            item.setPurchasedBy(null);
+            item.setSelected(false);
         }
-        builder.show();
+        toggleWriter.enqueue(item);
+        showShoppingList();
     }
 
     /**
@@ -302,47 +526,48 @@ public class ShoppingListActivity extends AppCompatActivity {
     private void markItemsAsPurchased(Runnable onComplete) {
         List<Item> itemsToUpdate = new ArrayList<>();
 
-        // Get items that are marked as purchased to send them to the basket
-        for (Item item : shoppingList) {
-            if (item.isSelected()) {
+        // Get items that are marked as purchased to send them to the basket,
+        // including check boxes that were ticked but not written yet
+        for (Item listItem : toggleWriter.applyPending(shoppingList)) {
+            if (listItem.isSelected()) {
+                Item item = new Item(listItem);
                 item.setPurchased(true);
-                item.setPurchasedBy(FirebaseAuth.getInstance().getCurrentUser() != null ? FirebaseAuth.getInstance().getCurrentUser().getDisplayName() : "Unknown User");
+                item.setPurchasedBy(userName);
                 itemsToUpdate.add(item);
 
             }
         }
 
-        // Loop over the items that have been marked as purchased
-        for (Item item : itemsToUpdate) {
-            String itemId = item.getItemId();
-
-            // Add the item to the basket in the Firebase
-            basketReference.child(itemId).setValue(item).addOnCompleteListener(task -> {
-                if (task.isSuccessful()) {
-                    Log.d(DEBUG_TAG, "Item added to basket: " + item.getName());
-
-                    // Remove the item from the shopping list once it is added to the basket
-                    databaseReference.child(itemId).removeValue().addOnCompleteListener(removeTask -> {
-                        if (removeTask.isSuccessful()) {
-                            Log.d(DEBUG_TAG, "Item removed from shopping list: " + item.getName());
-                            shoppingList.remove(item);
-                            adapter.notifyDataSetChanged();
-
-                        } else {
-                            Log.e(DEBUG_TAG, "Failed to remove item from shopping list.");
-                        }
-                    });
-                } else {
-                    Log.e(DEBUG_TAG, "Failed to add item to basket.");
+        // The ticked check boxes are written before the items are moved, so the fields they
+        // change can not bring a moved item back to the list
+        toggleWriter.flush();
+
+        // The order the items were checked off in teaches the group where they are in the store
+        if (tripSequence.size() > 1) {
+            repository.recordTrip(aisleOrder, new ArrayList<>(tripSequence), (result, error) -> {
+                if (error != null) {
+                    Log.e(DEBUG_TAG, "Failed to save the aisle order.", error);
                 }
             });
+            aisleList.setOrder(aisleOrder);
         }
+        tripSequence.clear();
+
+        // Move every selected item to the basket in one atomic update.
+        // The update is applied to the local cache right away (and queued if offline),
+        // so the basket can be opened without waiting for the server.
+        repository.moveToBasket(itemsToUpdate, (result, error) -> {
+            if (error == null) {
+                Log.d(DEBUG_TAG, "Items moved to basket: " + itemsToUpdate.size());
+            } else {
+                Log.e(DEBUG_TAG, "Failed to move items to basket.", error);
+                Toast.makeText(ShoppingListActivity.this, "Failed to move items to basket", Toast.LENGTH_SHORT).show();
+            }
+        });
 
         if (onComplete != null) {
             onComplete.run();
         }
-
-        adapter.notifyDataSetChanged();
     }
 
     /**
@@ -351,10 +576,8 @@ public class ShoppingListActivity extends AppCompatActivity {
      * @param item
      */
     private void deleteItem(Item item) {
-        databaseReference.child(item.getItemId()).removeValue().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                shoppingList.remove(item);
-                adapter.notifyDataSetChanged();
+        repository.deleteItem(item, (result, error) -> {
+            if (error == null) {
                 Toast.makeText(ShoppingListActivity.this, "Item deleted", Toast.LENGTH_SHORT).show();
             } else {
                 Toast.makeText(ShoppingListActivity.this, "Failed to delete item", Toast.LENGTH_SHORT).show();
@@ -363,55 +586,19 @@ public class ShoppingListActivity extends AppCompatActivity {
     }
 
     /**
-     * Handles the updates of the Firebase
-     * @param item
-     */
-    public void updateItemInFirebase(Item item) {
-        databaseReference.child(item.getItemId()).setValue(item)
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        Toast.makeText(this, "Item status updated", Toast.LENGTH_SHORT).show();
-                        adapter.notifyDataSetChanged();
-                    } else {
-                        Toast.makeText(this, "Failed to update item status", Toast.LENGTH_SHORT).show();
-                    }
-                });
-    }
-
-
-    /**
-     * Get users name from the Firebase database
+     * Check the cached session against the user's node in the database, without blocking the list
      */
-    public void getNameFromFirebase(){
-        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
-
-        // Ensure that the user is not null
-        if (user != null) {
-            String userId = user.getUid();
-            DatabaseReference userRef = FirebaseDatabase.getInstance().getReference("Users").child(userId);
-
-            // Get the user's name
-            userRef.child("name").addListenerForSingleValueEvent(new ValueEventListener() {
-                @Override
-                public void onDataChange(@NonNull DataSnapshot snapshot) {
-                    if (snapshot.exists() && snapshot.getValue() != null) {
-                        userName = snapshot.getValue(String.class);
-                    }
+    private void revalidateSession() {
+        SessionCache.revalidate(this, (session, error) -> {
+            if (error != null) {
+                Log.w(DEBUG_TAG, "Could not check the session", error);
+            } else if (session != null) {
+                userName = session.name;
+                if (!session.groupId.equals(userGroupId)) {
+                    // The next start opens the new group
+                    Log.w(DEBUG_TAG, "User moved to group " + session.groupId);
                 }
-
-                @Override
-                public void onCancelled(@NonNull DatabaseError error) {
-                    Toast.makeText(ShoppingListActivity.this, "Failed to load user name.", Toast.LENGTH_SHORT).show();
-                }
-            });
-        }
-    }
-
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadShoppingList();
+            }
+        });
     }
-
 }
-
@@ -7,28 +7,45 @@ import android.widget.CheckBox;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 /**
  * This is an adapter for the ShoppingListActivity.
  * Binds the data from the shopping list to the Views and enables users to edit, delete, and
  * update the items.
+ * New lists are diffed on a background thread by item id, so only the rows that really
+ * changed are bound again.
  */
-public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapter.ViewHolder> {
+public class ShoppingListAdapter extends ListAdapter<Item, ShoppingListAdapter.ViewHolder> {
+
+    /**
+     * Items are the same row when they have the same id, and the row is redrawn only
+     * when the content of the item changed
+     */
+    private static final DiffUtil.ItemCallback<Item> DIFF_CALLBACK = new DiffUtil.ItemCallback<Item>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.getItemId() != null && oldItem.getItemId().equals(newItem.getItemId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Item oldItem, @NonNull Item newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
 
     // Variables
-    private List<Item> shoppingList;
-    private OnItemClickListener listener;
+    private final OnItemClickListener listener;
 
     /**
      * Constructor
-     * @param shoppingList
      * @param listener
      */
-    public ShoppingListAdapter(List<Item> shoppingList, OnItemClickListener listener){
-        this.shoppingList = shoppingList;
+    public ShoppingListAdapter(OnItemClickListener listener){
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).build());
         this.listener = listener;
     }
 
@@ -47,19 +64,10 @@ public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapte
      */
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Item item = shoppingList.get(position);
+        Item item = getItem(position);
         holder.bind(item);
     }
 
-    /**
-     * Gets the total number of items at the shopping list
-     * @return
-     */
-    @Override
-    public int getItemCount() {
-        return shoppingList.size();
-    }
-
     /**
      * Manages each individual item View
      */
@@ -80,7 +88,8 @@ public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapte
             selectedCheckBox.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    Item item = shoppingList.get(position);
+                    // Work on a copy, the item in the list only changes when the database does
+                    Item item = new Item(getItem(position));
 
                     // If the checkbox is checked then the item is purchased
                     item.setPurchased(selectedCheckBox.isChecked());
@@ -96,15 +105,16 @@ public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapte
                         listener.updateItemInFirebase(item);
                     }
 
+                    // Show the stored state again until the database confirms the change
+                    notifyItemChanged(position);
                 }
-                notifyDataSetChanged();
             });
 
             // If item is clicked then it can be edited
             itemView.setOnClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    listener.onItemEditClick(shoppingList.get(position));
+                    listener.onItemEditClick(new Item(getItem(position)));
                 }
             });
 
@@ -112,7 +122,7 @@ public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapte
             itemView.setOnLongClickListener(v -> {
                 int position = getAdapterPosition();
                 if (position != RecyclerView.NO_POSITION) {
-                    listener.onItemDeleteClick(shoppingList.get(position));
+                    listener.onItemDeleteClick(new Item(getItem(position)));
                 }
                 return true;
             });
@@ -131,17 +141,17 @@ public class ShoppingListAdapter extends RecyclerView.Adapter<ShoppingListAdapte
             } else {
                 purchaseStatusTextView.setText("Not Purchased");
             }
-            String addedBy = item.getAddedBy() != null ? item.getAddedBy() : "Unknown User";
             itemAmountTextView.setText("Amount: " + item.getAmount());
         }
     }
 
     /**
-     * Handles the items clicked
+     * Handles the items clicked.
+     * The items passed to these methods are copies and can be changed freely.
      */
     public interface OnItemClickListener {
         void onItemEditClick(Item item);
         void onItemDeleteClick(Item item);
         void updateItemInFirebase(Item item);
     }
-}
\ No newline at end of file
+}
@@ -18,8 +18,6 @@ import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.UserProfileChangeRequest;
-import com.google.firebase.database.DatabaseReference;
-import com.google.firebase.database.FirebaseDatabase;
 
 /**
  * This class handles when a user wants to create an account
@@ -32,7 +30,6 @@ public class SignupActivity extends AppCompatActivity {
     private Button signUpButton;
     private TextView loginLink;
     private FirebaseAuth mAuth;
-    private DatabaseReference databaseReference;
 
     /**
      * It is initialize when the Activity is first created
@@ -46,7 +43,6 @@ public class SignupActivity extends AppCompatActivity {
 
         // Initialize Firebase Auth
         mAuth = FirebaseAuth.getInstance();
-        databaseReference = FirebaseDatabase.getInstance().getReference("Users");
 
         // Obtain object Views
         nameEditText = findViewById(R.id.nameEditText);
@@ -80,6 +76,12 @@ public class SignupActivity extends AppCompatActivity {
             return;
         }
 
+        // The group id is used as a key in the database
+        if (!FirebaseKeys.encode(groupId).equals(groupId)) {
+            Toast.makeText(this, "Group ID can not contain . # $ [ ] / or %", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
         // Checks if the password is less than 6 characters
         if (password.length() < 6) {
             Toast.makeText(this, "Password must be at least 6 characters", Toast.LENGTH_SHORT).show();
@@ -108,21 +110,22 @@ public class SignupActivity extends AppCompatActivity {
                                             }
                                         });
 
-                                // Save user details to the Realtime Database
+                                // Save user details to the Realtime Database, together with
+                                // the user's entry in the group's member index
                                 String userId = firebaseUser.getUid();
                                 User user = new User(name, email, groupId);
-                                databaseReference.child(userId).setValue(user)
-                                        .addOnCompleteListener(dbTask -> {
-                                            if (dbTask.isSuccessful()) {
-                                                Toast.makeText(SignupActivity.this, "Registration successful for: " + email, Toast.LENGTH_SHORT).show();
-                                                Intent intent = new Intent(SignupActivity.this, MainActivity.class);
-                                                startActivity(intent);
-                                                finish();
-                                            } else {
-                                                Log.w(DEBUG_TAG, "Failed to save user details", dbTask.getException());
-                                                Toast.makeText(SignupActivity.this, "Failed to save user details.", Toast.LENGTH_SHORT).show();
-                                            }
-                                        });
+                                new FirebaseShoppingRepository(groupId).addMember(userId, user, (result, error) -> {
+                                    if (error == null) {
+                                        SessionCache.save(SignupActivity.this, userId, groupId, name);
+                                        Toast.makeText(SignupActivity.this, "Registration successful for: " + email, Toast.LENGTH_SHORT).show();
+                                        Intent intent = new Intent(SignupActivity.this, MainActivity.class);
+                                        startActivity(intent);
+                                        finish();
+                                    } else {
+                                        Log.w(DEBUG_TAG, "Failed to save user details", error);
+                                        Toast.makeText(SignupActivity.this, "Failed to save user details.", Toast.LENGTH_SHORT).show();
+                                    }
+                                });
                             }
                         } else {
                             // If sign in fails, display a message to the user.
@@ -0,0 +1,120 @@
+package edu.uga.cs.roomieslist;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.database.DataSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes snapshots on a worker thread and posts the results back to the UI thread.
+ * There is a single worker, so results are delivered in the same order the snapshots came in.
+ */
+public final class SnapshotDecoder {
+
+    // Variables
+    private static final String DEBUG_TAG = "SnapshotDecoder";
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private SnapshotDecoder() {}
+
+    /**
+     * Decode one snapshot in the background
+     * @param snapshot
+     * @param decoder turns the snapshot into the result, runs on the worker
+     * @param callback receives the result on the UI thread
+     */
+    public static <T> void decode(DataSnapshot snapshot, Decoder<T> decoder, Callback<T> callback) {
+        worker.execute(() -> {
+            T result = decoder.decode(snapshot);
+            mainHandler.post(() -> callback.onDecoded(result));
+        });
+    }
+
+    /**
+     * Decode every child of a snapshot in the background, children that fail to decode are skipped
+     * @param snapshot
+     * @param decoder turns one child into a result, runs on the worker
+     * @param callback receives the unmodifiable list of results on the UI thread
+     */
+    public static <T> void decodeChildren(DataSnapshot snapshot, Decoder<T> decoder, Callback<List<T>> callback) {
+        decode(snapshot, parent -> {
+            List<T> results = new ArrayList<>();
+            for (DataSnapshot child : parent.getChildren()) {
+                T result = decoder.decode(child);
+                if (result != null) {
+                    results.add(result);
+                } else {
+                    Log.w(DEBUG_TAG, "Skipping child that could not be decoded: " + child.getKey());
+                }
+            }
+            return Collections.unmodifiableList(results);
+        }, callback);
+    }
+
+    /**
+     * Decode an item node
+     * @param snapshot
+     * @return the item or null
+     */
+    public static Item item(DataSnapshot snapshot) {
+        return ModelCodec.decodeItem(snapshot.getKey(), snapshot.getValue());
+    }
+
+    /**
+     * Decode a purchased record node
+     * @param snapshot
+     * @return the record or null
+     */
+    public static PurchasedRecord record(DataSnapshot snapshot) {
+        return ModelCodec.decodeRecord(snapshot.getKey(), snapshot.getValue());
+    }
+
+    /**
+     * Decode a purchase summary node
+     * @param snapshot
+     * @return the summary or null
+     */
+    public static PurchaseSummary summary(DataSnapshot snapshot) {
+        return ModelCodec.decodeSummary(snapshot.getKey(), snapshot.getValue());
+    }
+
+    /**
+     * Decode a price history node
+     * @param snapshot
+     * @return the entry or null
+     */
+    public static PriceHistoryEntry priceHistoryEntry(DataSnapshot snapshot) {
+        return ModelCodec.decodePriceHistoryEntry(snapshot.getKey(), snapshot.getValue());
+    }
+
+    /**
+     * Decode a user node
+     * @param snapshot
+     * @return the user or null
+     */
+    public static User user(DataSnapshot snapshot) {
+        return ModelCodec.decodeUser(snapshot.getValue());
+    }
+
+    /**
+     * Turns a snapshot into a result, called on the worker thread
+     */
+    public interface Decoder<T> {
+        T decode(DataSnapshot snapshot);
+    }
+
+    /**
+     * Receives the result on the UI thread
+     */
+    public interface Callback<T> {
+        void onDecoded(T result);
+    }
+}
@@ -0,0 +1,50 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeping the shopping list in store order while items are checked off.
+ */
+@State(Scope.Benchmark)
+public class AisleOrderBenchmark {
+
+    @Param({"100", "500", "2000", "10000"})
+    public int size;
+
+    private List<Item> items;
+    private AisleOrderedList list;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        items = BenchmarkData.items(size, 7);
+        List<String> trip = new ArrayList<>();
+        for (Item item : items) {
+            trip.add(item.getName());
+        }
+        AisleOrder order = new AisleOrder();
+        order.recordTrip(trip);
+        list = new AisleOrderedList(order);
+        for (Item item : items) {
+            list.put(item);
+        }
+    }
+
+    /**
+     * A check box change and a reading of the sorted list
+     */
+    @Benchmark
+    public List<Item> checkOffItem() {
+        Item item = items.get(next++ % size);
+        item.setPurchased(!item.isPurchased());
+        list.put(item);
+        return list.getItems();
+    }
+}
@@ -0,0 +1,67 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic test data for the benchmarks, so every run measures the same input.
+ */
+final class BenchmarkData {
+
+    static final String GROUP_ID = "group-1";
+    private static final String[] ROOMMATES = {"Ana", "Ben", "Cam", "Dee"};
+    private static final String[] NAMES = {"Milk", "Eggs", "Bread", "Coffee", "Paper Towels", "Rice", "Apples", "Dish Soap"};
+
+    private BenchmarkData() {}
+
+    /**
+     * @param size number of items
+     * @param seed
+     * @return items with unique ids
+     */
+    static List<Item> items(int size, long seed) {
+        Random random = new Random(seed);
+        List<Item> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Item item = new Item("item" + i, NAMES[random.nextInt(NAMES.length)] + " " + i,
+                    random.nextInt(2000) / 100.0, null, ROOMMATES[random.nextInt(ROOMMATES.length)],
+                    GROUP_ID, 1 + random.nextInt(4));
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * @param size number of records
+     * @param itemsPerRecord
+     * @param seed
+     * @return records spread over the roommates
+     */
+    static List<PurchasedRecord> records(int size, int itemsPerRecord, long seed) {
+        Random random = new Random(seed);
+        List<PurchasedRecord> records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Item> items = items(itemsPerRecord, seed + i);
+            PurchasedRecord record = new PurchasedRecord(ROOMMATES[random.nextInt(ROOMMATES.length)], items,
+                    PurchasedRecord.totalOf(items), 1700000000000L + i * 60000L);
+            record.setId("purchase" + i);
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Raw maps of the items, the way the database hands them to the app
+     * @param items
+     * @return encoded items
+     */
+    static List<Map<String, Object>> encoded(List<Item> items) {
+        List<Map<String, Object>> raw = new ArrayList<>(items.size());
+        for (Item item : items) {
+            raw.add(ModelCodec.encodeItem(item));
+        }
+        return raw;
+    }
+}
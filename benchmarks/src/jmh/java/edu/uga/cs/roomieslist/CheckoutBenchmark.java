@@ -0,0 +1,48 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The work checkoutItems does on the device before it writes the batch:
+ * totalling the basket and building the record and its summary.
+ */
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Item> basket;
+
+    @Setup
+    public void setUp() {
+        basket = BenchmarkData.items(size, 3);
+    }
+
+    @Benchmark
+    public double totalPrice() {
+        return PurchasedRecord.totalOf(basket);
+    }
+
+    @Benchmark
+    public long totalCents() {
+        return Money.toCents(PurchasedRecord.totalOf(basket));
+    }
+
+    @Benchmark
+    public Map<String, Object> buildRecordAndSummary() {
+        PurchasedRecord record = new PurchasedRecord("Ana", new ArrayList<>(basket),
+                PurchasedRecord.totalOf(basket), 1700000000000L);
+        Map<String, Object> encoded = ModelCodec.encodeRecord(record);
+        encoded.put("summary", ModelCodec.encodeSummary(PurchaseSummary.of("purchase", record)));
+        return encoded;
+    }
+}
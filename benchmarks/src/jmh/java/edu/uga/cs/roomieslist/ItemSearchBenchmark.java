@@ -0,0 +1,47 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Filtering the shopping list while a search is typed, one call per keystroke.
+ */
+@State(Scope.Benchmark)
+public class ItemSearchBenchmark {
+
+    private static final String QUERY = "paper tow";
+
+    @Param({"100", "500", "2000", "10000"})
+    public int size;
+
+    private AisleOrderedList list;
+    private ItemSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        List<Item> items = BenchmarkData.items(size, 6);
+        list = new AisleOrderedList(new AisleOrder());
+        index = new ItemSearchIndex();
+        for (Item item : items) {
+            list.put(item);
+            index.put(item);
+        }
+    }
+
+    /**
+     * Every prefix of the query typed one letter at a time
+     */
+    @Benchmark
+    public int typeQuery() {
+        int matches = 0;
+        for (int length = 1; length <= QUERY.length(); length++) {
+            matches += index.filter(list, QUERY.substring(0, length)).size();
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,58 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialization of items and purchased records through ModelCodec.
+ */
+@State(Scope.Benchmark)
+public class ModelCodecBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int size;
+
+    private List<Item> items;
+    private List<Map<String, Object>> rawItems;
+    private PurchasedRecord record;
+    private Map<String, Object> rawRecord;
+
+    @Setup
+    public void setUp() {
+        items = BenchmarkData.items(size, 1);
+        rawItems = BenchmarkData.encoded(items);
+        record = new PurchasedRecord("Ana", items, PurchasedRecord.totalOf(items), 1700000000000L);
+        rawRecord = ModelCodec.encodeRecord(record);
+    }
+
+    @Benchmark
+    public void encodeItems(Blackhole blackhole) {
+        for (Item item : items) {
+            blackhole.consume(ModelCodec.encodeItem(item));
+        }
+    }
+
+    @Benchmark
+    public void decodeItems(Blackhole blackhole) {
+        for (int i = 0; i < rawItems.size(); i++) {
+            blackhole.consume(ModelCodec.decodeItem("item" + i, rawItems.get(i)));
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> encodeRecord() {
+        return ModelCodec.encodeRecord(record);
+    }
+
+    @Benchmark
+    public PurchasedRecord decodeRecord() {
+        return ModelCodec.decodeRecord("purchase", rawRecord);
+    }
+}
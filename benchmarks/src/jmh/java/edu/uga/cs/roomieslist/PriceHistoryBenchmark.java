@@ -0,0 +1,46 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * Suggesting names bought before while a new item is typed.
+ * size is the number of names in the price history.
+ */
+@State(Scope.Benchmark)
+public class PriceHistoryBenchmark {
+
+    private static final String QUERY = "paper towels";
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private PriceHistoryIndex history;
+
+    @Setup
+    public void setUp() {
+        history = new PriceHistoryIndex();
+        for (Item item : BenchmarkData.items(size, 8)) {
+            long cents = Money.toCents(item.getPrice());
+            history.put(new PriceHistoryEntry(item.getName(), item.getAmount(), 0, cents, 1, cents));
+        }
+    }
+
+    /**
+     * Every prefix of the name typed one letter at a time
+     */
+    @Benchmark
+    public int typeName() {
+        int suggestions = 0;
+        for (int length = 1; length <= QUERY.length(); length++) {
+            List<String> names = history.complete(QUERY.substring(0, length), PriceHistoryIndex.SUGGESTIONS);
+            suggestions += names.size();
+        }
+        return suggestions;
+    }
+}
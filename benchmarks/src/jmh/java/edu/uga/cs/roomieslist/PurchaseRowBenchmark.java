@@ -0,0 +1,74 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The strings PurchasedItemsAdapter builds for one row, bound once for every record.
+ * size is the number of items in the record.
+ */
+@State(Scope.Benchmark)
+public class PurchaseRowBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int size;
+
+    private PurchasedRecord record;
+    private PurchaseSummary summary;
+
+    @Setup
+    public void setUp() {
+        record = BenchmarkData.records(1, size, 5).get(0);
+        summary = PurchaseSummary.of(record.getId(), record);
+    }
+
+    /**
+     * The original onBindViewHolder, joining every item name on each bind
+     */
+    @Benchmark
+    public void bindFromRecord(Blackhole blackhole) {
+        blackhole.consume("Purchased by: " + record.getPurchasedBy());
+        blackhole.consume(String.format(Locale.US, "Total Price: $%.2f", record.getTotalPrice()));
+        blackhole.consume("Purchased on: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(record.getTimestamp()));
+
+        List<Item> items = record.getItems();
+        StringBuilder itemsStringBuilder = new StringBuilder("Items: ");
+        for (Item item : items) {
+            if (item != null && item.getName() != null) {
+                itemsStringBuilder.append(item.getName()).append(", ");
+            }
+        }
+        String itemsString = itemsStringBuilder.toString().trim();
+        if (itemsString.endsWith(",")) {
+            itemsString = itemsString.substring(0, itemsString.length() - 1);
+        }
+        blackhole.consume(itemsString);
+    }
+
+    /**
+     * The current onBindViewHolder, the names were joined when the summary was saved
+     */
+    @Benchmark
+    public void bindFromSummary(Blackhole blackhole) {
+        blackhole.consume("Purchased by: " + summary.getPurchasedBy());
+        blackhole.consume(String.format(Locale.US, "Total Price: $%.2f", summary.getTotalPrice()));
+        blackhole.consume("Purchased on: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(summary.getTimestamp()));
+        blackhole.consume("Items: " + summary.getItemNames());
+    }
+
+    /**
+     * Building the summary, done once per checkout instead of once per bind
+     */
+    @Benchmark
+    public PurchaseSummary buildSummary() {
+        return PurchaseSummary.of(record.getId(), record);
+    }
+}
@@ -0,0 +1,65 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The aggregation behind Settle Costs.
+ * size is the number of purchased records for the full scan and the number of members for the settlement.
+ */
+@State(Scope.Benchmark)
+public class SettleCostsBenchmark {
+
+    @Param({"2", "10", "100", "1000", "10000"})
+    public int size;
+
+    private List<PurchasedRecord> records;
+    private List<String> members;
+    private Map<String, Long> ledger;
+
+    @Setup
+    public void setUp() {
+        records = BenchmarkData.records(size, 5, 4);
+        members = new ArrayList<>(size);
+        ledger = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String name = "roommate" + i;
+            members.add(name);
+            if (i % 2 == 0) {
+                ledger.put(name, (long) (i * 37 % 50000));
+            }
+        }
+    }
+
+    /**
+     * The original settleCosts, summing every record of the history in doubles
+     */
+    @Benchmark
+    public Map<String, Double> aggregateAllRecords() {
+        Map<String, Double> roommateSpending = new HashMap<>();
+        double totalCost = 0.0;
+        for (PurchasedRecord record : records) {
+            String roommate = record.getPurchasedBy() != null ? record.getPurchasedBy() : "Unknown User";
+            roommateSpending.put(roommate, roommateSpending.getOrDefault(roommate, 0.0) + record.getTotalPrice());
+            totalCost += record.getTotalPrice();
+        }
+        roommateSpending.put("total", totalCost);
+        return roommateSpending;
+    }
+
+    /**
+     * Transfers from the ledger over the whole group
+     */
+    @Benchmark
+    public SettlementCalculator.Settlement settleLedger() {
+        return SettlementCalculator.settle(members, ledger);
+    }
+}
@@ -0,0 +1,85 @@
+package edu.uga.cs.roomieslist;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Building the shopping list from the items of the database.
+ * The full reload that ran on every change used List.contains to skip duplicates,
+ * the sync engine keeps a map from item id to position instead.
+ */
+public class ShoppingListBenchmark {
+
+    /**
+     * The dedupe loop of the original loadShoppingList, O(n^2).
+     * It has its own sizes, at 100000 items one call takes far too long for a default run.
+     */
+    @Benchmark
+    public List<Item> dedupeWithContains(QuadraticSizes sizes) {
+        List<Item> shoppingList = new ArrayList<>();
+        for (Item item : sizes.incoming) {
+            if (item != null && !shoppingList.contains(item)) {
+                shoppingList.add(item);
+            }
+        }
+        return shoppingList;
+    }
+
+    /**
+     * Dedupe by item id the way ItemSyncEngine indexes its positions, O(n)
+     */
+    @Benchmark
+    public List<Item> dedupeById(Sizes sizes) {
+        List<Item> shoppingList = new ArrayList<>(sizes.incoming.size());
+        Map<String, Integer> positions = new HashMap<>();
+        for (Item item : sizes.incoming) {
+            if (item != null && !positions.containsKey(item.getItemId())) {
+                positions.put(item.getItemId(), shoppingList.size());
+                shoppingList.add(item);
+            }
+        }
+        return shoppingList;
+    }
+
+    /**
+     * Sizes for the O(n) loop
+     */
+    @State(Scope.Benchmark)
+    public static class Sizes {
+
+        @Param({"10", "100", "1000", "10000", "100000"})
+        public int size;
+
+        private List<Item> incoming;
+
+        @Setup
+        public void setUp() {
+            incoming = BenchmarkData.items(size, 2);
+        }
+    }
+
+    /**
+     * Sizes for the O(n^2) loop, capped at 10000 items
+     */
+    @State(Scope.Benchmark)
+    public static class QuadraticSizes {
+
+        @Param({"10", "100", "1000", "10000"})
+        public int size;
+
+        private List<Item> incoming;
+
+        @Setup
+        public void setUp() {
+            incoming = BenchmarkData.items(size, 2);
+        }
+    }
+}
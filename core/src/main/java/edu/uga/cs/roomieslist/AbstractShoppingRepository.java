@@ -0,0 +1,640 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * The shopping rules shared by every backend.
+ * Each operation is turned into a {@link GroupUpdate}, a backend only has to generate keys,
+ * apply updates atomically and read back the nodes of the group.
+ */
+public abstract class AbstractShoppingRepository implements ShoppingRepository {
+
+    // Metrics of compare-and-set writes
+    public static final String TRANSACTION_COMMITS = "transaction.commits";
+    public static final String TRANSACTION_CONFLICTS = "transaction.conflicts";
+    public static final String TRANSACTION_RETRIES = "transaction.retries";
+    // Batches of compare-and-set writes refused because an item changed, then written one by one
+    public static final String BATCH_REJECTIONS = "batch.rejections";
+
+    // Reads of the records before building the ledger is given up
+    private static final int LEDGER_ATTEMPTS = 3;
+
+    // Variables
+    protected final String groupId;
+    // The group's time zone once it was read, it never changes
+    private TimeZone timeZone;
+
+    /**
+     * Constructor
+     * @param groupId group whose data is read and written
+     */
+    protected AbstractShoppingRepository(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * Generate a new unique key under one of the group's nodes
+     * @param node for example ShoppingList
+     * @return the key
+     */
+    protected abstract String newKey(String node);
+
+    /**
+     * Apply every path of an update atomically
+     * @param update
+     * @param callback
+     */
+    protected abstract void commit(GroupUpdate update, Callback<Void> callback);
+
+    /**
+     * Change the value at a path with a transaction. The mutation first runs on the locally known
+     * value and its result is shown right away, then the server commits it only if the stored
+     * value is still the same. Otherwise the mutation runs again on the stored value.
+     * @param path absolute path
+     * @param mutation
+     * @param callback gets the committed value, or the exception the mutation gave up with
+     */
+    protected abstract void runTransaction(String path, Mutation mutation, Callback<Object> callback);
+
+    /**
+     * Read the items under one of the group's nodes
+     * @param node ShoppingList or ShoppingBasket
+     * @param callback
+     */
+    protected abstract void loadItems(String node, Callback<List<Item>> callback);
+
+    /**
+     * Read the check-off counts of the group's aisle order
+     * @param callback gets first name to the names it came before, with how many times
+     */
+    protected abstract void loadAisleCounts(Callback<Map<String, Map<String, Long>>> callback);
+
+    /**
+     * Read the spending rollup buckets of one period in a range
+     * @param period
+     * @param fromBucket first bucket key
+     * @param toBucket last bucket key, included
+     * @param callback
+     */
+    protected abstract void loadRollups(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback);
+
+    /**
+     * Read the raw value stored at a path, only used by migrations of older data
+     * @param path for example PurchasedItems/[groupId]
+     * @param callback gets maps for nodes with children, null if nothing is stored there
+     */
+    protected abstract void loadValue(String path, Callback<Object> callback);
+
+    /**
+     * Read the group's member index
+     * @param callback gets user id to name
+     */
+    protected abstract void loadMemberIndex(Callback<Map<String, String>> callback);
+
+    /**
+     * Read the users whose groupId is the group, with a query on groupId
+     * @param callback gets user id to user
+     */
+    protected abstract void loadGroupUsers(Callback<Map<String, User>> callback);
+
+    /**
+     * Get the current time, used for the timestamps of purchases
+     * @return milliseconds since the epoch
+     */
+    protected long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Count the payload of an update under the name of its operation, then commit it
+     * @param operation name of the repository method
+     * @param update
+     * @param callback
+     */
+    private void send(String operation, GroupUpdate update, Callback<Void> callback) {
+        PayloadSize.record(operation, update.toPaths());
+        commit(update, callback);
+    }
+
+    @Override
+    public void addMember(String userId, User user, Callback<Void> callback) {
+        send("addMember", new GroupUpdate(groupId).addMember(userId, user), callback);
+    }
+
+    @Override
+    public Item addItem(String name, int amount, String addedBy, Callback<Void> callback) {
+        Item item = new Item(newKey(GroupUpdate.SHOPPING_LIST), name, 0.0, null, addedBy, groupId, amount);
+        send("addItem", new GroupUpdate(groupId).put(GroupUpdate.SHOPPING_LIST, item.getItemId(), ModelCodec.encodeItem(item)), callback);
+        return item;
+    }
+
+    @Override
+    public void updateItem(Item item, Callback<Void> callback) {
+        // A whole item can not be written together with an increment of its version, so the
+        // version is counted up from the one that was read
+        item.setVersion(item.getVersion() + 1);
+        send("updateItem", new GroupUpdate(groupId).put(GroupUpdate.SHOPPING_LIST, item.getItemId(), ModelCodec.encodeItem(item)), callback);
+        item.markClean();
+    }
+
+    @Override
+    public void increaseAmount(String itemId, int delta, Callback<Void> callback) {
+        send("increaseAmount", new GroupUpdate(groupId).increaseAmount(itemId, delta), callback);
+    }
+
+    @Override
+    public void updateItemFields(Item item, Callback<Void> callback) {
+        updateFields("updateItemFields", GroupUpdate.SHOPPING_LIST, item, callback);
+    }
+
+    @Override
+    public void updateBasketItemFields(Item item, Callback<Void> callback) {
+        updateFields("updateBasketItemFields", GroupUpdate.SHOPPING_BASKET, item, callback);
+    }
+
+    @Override
+    public void compareAndSetItem(Item item, Callback<Item> callback) {
+        if (!item.hasChanges()) {
+            callback.onComplete(item, null);
+            return;
+        }
+        Map<String, Object> changes = ModelCodec.encodeChanges(item);
+        item.markClean();
+        compareAndSet(item.getItemId(), item.getVersion(), changes, callback);
+    }
+
+    @Override
+    public void compareAndSetItems(Map<String, Long> readVersions, Map<String, Map<String, Object>> fieldsById,
+                                   Callback<Void> callback) {
+        if (fieldsById.isEmpty()) {
+            callback.onComplete(null, null);
+            return;
+        }
+        // Each item carries the version after its read version, the rule on the shopping list
+        // refuses the whole update if any of them was changed or removed in the meantime
+        GroupUpdate update = new GroupUpdate(groupId);
+        for (Map.Entry<String, Map<String, Object>> item : fieldsById.entrySet()) {
+            update.updateFields(GroupUpdate.SHOPPING_LIST, item.getKey(), item.getValue(), readVersions.get(item.getKey()) + 1);
+        }
+        send("compareAndSetItems", update, (result, error) -> {
+            if (error == null) {
+                callback.onComplete(null, null);
+                return;
+            }
+            // Find the items that changed, the others are still written
+            PerfMetrics.increment(BATCH_REJECTIONS);
+            compareAndSetOneByOne(readVersions, fieldsById, callback);
+        });
+    }
+
+    private void compareAndSetOneByOne(Map<String, Long> readVersions, Map<String, Map<String, Object>> fieldsById,
+                                       Callback<Void> callback) {
+        int[] remaining = {fieldsById.size()};
+        Exception[] reported = new Exception[1];
+        for (Map.Entry<String, Map<String, Object>> item : fieldsById.entrySet()) {
+            compareAndSet(item.getKey(), readVersions.get(item.getKey()), item.getValue(), (committed, error) -> {
+                // A conflict is reported before any other error, the caller shows the item as stored
+                if (error != null && (reported[0] == null
+                        || (error instanceof ItemConflictException && !(reported[0] instanceof ItemConflictException)))) {
+                    reported[0] = error;
+                }
+                if (--remaining[0] == 0) {
+                    callback.onComplete(null, reported[0]);
+                }
+            });
+        }
+    }
+
+    private void compareAndSet(String itemId, long readVersion, Map<String, Object> changes, Callback<Item> callback) {
+        int[] attempts = new int[1];
+
+        runTransaction(GroupUpdate.SHOPPING_LIST + "/" + groupId + "/" + itemId, current -> {
+            attempts[0]++;
+            Item stored = ModelCodec.decodeItem(itemId, current);
+            if (stored == null) {
+                // Either removed or not known locally yet, the server decides which
+                return null;
+            }
+            if (stored.getVersion() != readVersion) {
+                throw new ItemConflictException(stored);
+            }
+            Map<String, Object> next = ModelCodec.encodeItem(stored);
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (change.getValue() != null) {
+                    next.put(change.getKey(), change.getValue());
+                } else {
+                    next.remove(change.getKey());
+                }
+            }
+            next.put(ModelCodec.VERSION, readVersion + 1);
+            return next;
+        }, (value, error) -> {
+            PerfMetrics.add(TRANSACTION_RETRIES, Math.max(0, attempts[0] - 1));
+            Item committed = ModelCodec.decodeItem(itemId, value);
+            if (error == null && committed == null) {
+                error = new ItemConflictException(null);
+            }
+            if (error instanceof ItemConflictException) {
+                PerfMetrics.increment(TRANSACTION_CONFLICTS);
+            } else if (error == null) {
+                PerfMetrics.increment(TRANSACTION_COMMITS);
+                PayloadSize.record("compareAndSetItem", Collections.<String, Object>singletonMap(
+                        GroupUpdate.SHOPPING_LIST + "/" + groupId + "/" + itemId, value));
+            }
+            callback.onComplete(error == null ? committed : null, error);
+        });
+    }
+
+    private void updateFields(String operation, String node, Item item, Callback<Void> callback) {
+        if (!item.hasChanges()) {
+            callback.onComplete(null, null);
+            return;
+        }
+        send(operation, new GroupUpdate(groupId).updateFields(node, item), callback);
+        item.markClean();
+    }
+
+    @Override
+    public void deleteItem(Item item, Callback<Void> callback) {
+        send("deleteItem", new GroupUpdate(groupId).remove(GroupUpdate.SHOPPING_LIST, item.getItemId()), callback);
+    }
+
+    @Override
+    public void moveToBasket(List<Item> items, Callback<Void> callback) {
+        send("moveToBasket", new GroupUpdate(groupId).moveToBasket(items), callback);
+    }
+
+    @Override
+    public void moveToList(Item item, Callback<Void> callback) {
+        send("moveToList", new GroupUpdate(groupId).moveToList(item), callback);
+    }
+
+    @Override
+    public PurchasedRecord checkout(String purchasedBy, List<Item> basket, Callback<Void> callback) {
+        if (basket.isEmpty()) {
+            callback.onComplete(null, new IllegalArgumentException("The basket is empty"));
+            return null;
+        }
+        List<Item> items = new ArrayList<>(basket);
+        PurchasedRecord record = new PurchasedRecord(purchasedBy, items, PurchasedRecord.totalOf(items), now());
+        String purchaseId = newKey(GroupUpdate.PURCHASED_ITEMS);
+        record.setId(purchaseId);
+        record.setRolledUp(true);
+        record.setInPriceHistory(true);
+        loadTimeZone((zone, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            send("checkout", new GroupUpdate(groupId).checkout(purchaseId, record).addToRollups(record, 1, zone)
+                    .addToPriceHistory(record, 1), callback);
+        });
+        return record;
+    }
+
+    @Override
+    public void recordTrip(AisleOrder order, List<String> names, Callback<Void> callback) {
+        send("recordTrip", new GroupUpdate(groupId).addAisleCounts(order.recordTrip(names)), callback);
+    }
+
+    @Override
+    public void loadAisleOrder(Callback<AisleOrder> callback) {
+        loadAisleCounts((counts, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            AisleOrder order = new AisleOrder();
+            order.addCounts(counts);
+            callback.onComplete(order, null);
+        });
+    }
+
+    @Override
+    public void loadSpending(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback) {
+        if (!SpendingRollup.isPeriod(period)) {
+            callback.onComplete(null, new IllegalArgumentException("Unknown period " + period));
+            return;
+        }
+        loadRollups(period, fromBucket, toBucket, callback);
+    }
+
+    @Override
+    public void loadTimeZone(Callback<TimeZone> callback) {
+        if (timeZone != null) {
+            callback.onComplete(timeZone, null);
+            return;
+        }
+        String path = GroupUpdate.GROUPS + "/" + groupId + "/" + GroupUpdate.TIME_ZONE;
+        Callback<Object> keep = (id, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            timeZone = TimeZone.getTimeZone(String.valueOf(id));
+            callback.onComplete(timeZone, null);
+        };
+        loadValue(path, (id, error) -> {
+            if (error != null || id instanceof String) {
+                keep.onComplete(id, error);
+                return;
+            }
+            // Groups made before the zone was kept take the zone of the first device that asks,
+            // in a transaction so every device ends up with the same one
+            runTransaction(path, current -> current instanceof String ? current : TimeZone.getDefault().getID(), keep);
+        });
+    }
+
+    @Override
+    public void loadShoppingList(Callback<List<Item>> callback) {
+        loadItems(GroupUpdate.SHOPPING_LIST, callback);
+    }
+
+    @Override
+    public void loadBasket(Callback<List<Item>> callback) {
+        loadItems(GroupUpdate.SHOPPING_BASKET, callback);
+    }
+
+    @Override
+    public void saveRecord(PurchasedRecord record, List<Item> items, Callback<Void> callback) {
+        PurchasedRecord old = new PurchasedRecord(record.getPurchasedBy(), record.getItems(),
+                record.getTotalPrice(), record.getTimestamp());
+        record.setItems(new ArrayList<>(items));
+        record.setTotalPrice(PurchasedRecord.totalOf(items));
+        record.setRolledUp(true);
+        record.setInPriceHistory(true);
+
+        backfillHistory((zone, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            // Save the record and its summary together, and move the change of the total
+            // into the purchaser's ledger entry, the spending rollups and the price history
+            GroupUpdate update = new GroupUpdate(groupId)
+                    .saveRecord(record.getId(), record)
+                    .addSpending(record.getPurchasedBy(), Money.toCents(record.getTotalPrice()) - Money.toCents(old.getTotalPrice()))
+                    .addToRollups(old, -1, zone)
+                    .addToRollups(record, 1, zone)
+                    .addToPriceHistory(old, -1)
+                    .addToPriceHistory(record, 1);
+            send("saveRecord", update, callback);
+        });
+    }
+
+    @Override
+    public void updatePurchasePrice(PurchaseSummary summary, double totalPrice, Callback<Void> callback) {
+        backfillHistory((zone, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            GroupUpdate update = new GroupUpdate(groupId)
+                    .updateTotalPrice(summary, totalPrice)
+                    .addToRollups(summary.getTimestamp(), summary.getPurchasedBy(),
+                            Money.toCents(totalPrice) - Money.toCents(summary.getTotalPrice()), zone);
+            send("updatePurchasePrice", update, callback);
+        });
+    }
+
+    /**
+     * Add every record to the spending rollups and the price history before a purchase is edited,
+     * so the edit never takes out a record that was not counted
+     * @param callback gets the group's time zone
+     */
+    private void backfillHistory(Callback<TimeZone> callback) {
+        backfillRollups((rolledUp, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            backfillPriceHistory((indexed, indexError) -> {
+                if (indexError != null) {
+                    callback.onComplete(null, indexError);
+                    return;
+                }
+                loadTimeZone(callback);
+            });
+        });
+    }
+
+    @Override
+    public void clearHistory(Callback<Void> callback) {
+        send("clearHistory", new GroupUpdate(groupId).clearHistory(), callback);
+    }
+
+    /**
+     * Write the summaries missing from the history index, once per group
+     * ({@link HistoryMigration#planSummaries(String, Object, Object)})
+     * @param callback gets the number of summaries written, 0 if the group was already done
+     */
+    public void backfillSummaries(Callback<Integer> callback) {
+        loadValue(GroupUpdate.MIGRATIONS + "/" + groupId + "/" + HistoryMigration.SUMMARIES, (done, error) -> {
+            if (error != null || Boolean.TRUE.equals(done)) {
+                callback.onComplete(error == null ? 0 : null, error);
+                return;
+            }
+            loadValue(GroupUpdate.PURCHASED_ITEMS + "/" + groupId, (records, recordsError) -> {
+                if (recordsError != null) {
+                    callback.onComplete(null, recordsError);
+                    return;
+                }
+                loadValue(GroupUpdate.PURCHASE_SUMMARIES + "/" + groupId, (summaries, summariesError) -> {
+                    if (summariesError != null) {
+                        callback.onComplete(null, summariesError);
+                        return;
+                    }
+                    GroupUpdate update = HistoryMigration.planSummaries(groupId, records, summaries);
+                    // Every path but the flag is a summary
+                    int written = update.size() - 1;
+                    send("backfillSummaries", update, (result, sendError) ->
+                            callback.onComplete(sendError == null ? written : null, sendError));
+                });
+            });
+        });
+    }
+
+    /**
+     * Add the records missing from the spending rollups to them, once per group
+     * ({@link HistoryMigration#planRollups(String, Object, TimeZone)})
+     * @param callback gets the number of records added, 0 if the group was already done
+     */
+    public void backfillRollups(Callback<Integer> callback) {
+        loadTimeZone((zone, zoneError) -> {
+            if (zoneError != null) {
+                callback.onComplete(null, zoneError);
+                return;
+            }
+            loadValue(GroupUpdate.MIGRATIONS + "/" + groupId + "/" + HistoryMigration.ROLLUPS, (done, error) -> {
+                if (error != null || Boolean.TRUE.equals(done)) {
+                    callback.onComplete(error == null ? 0 : null, error);
+                    return;
+                }
+                loadValue(GroupUpdate.PURCHASED_ITEMS + "/" + groupId, (records, recordsError) -> {
+                    if (recordsError != null) {
+                        callback.onComplete(null, recordsError);
+                        return;
+                    }
+                    GroupUpdate update = HistoryMigration.planRollups(groupId, records, zone);
+                    int rolledUp = countRecords(update);
+                    send("backfillRollups", update, (result, sendError) ->
+                            callback.onComplete(sendError == null ? rolledUp : null, sendError));
+                });
+            });
+        });
+    }
+
+    /**
+     * Add the records missing from the price history to it, once per group
+     * ({@link HistoryMigration#planPriceHistory(String, Object, Object)})
+     * @param callback gets the number of records added, 0 if the group was already done
+     */
+    public void backfillPriceHistory(Callback<Integer> callback) {
+        loadValue(GroupUpdate.MIGRATIONS + "/" + groupId + "/" + HistoryMigration.PRICE_HISTORY, (done, error) -> {
+            if (error != null || Boolean.TRUE.equals(done)) {
+                callback.onComplete(error == null ? 0 : null, error);
+                return;
+            }
+            loadValue(GroupUpdate.PURCHASED_ITEMS + "/" + groupId, (records, recordsError) -> {
+                if (recordsError != null) {
+                    callback.onComplete(null, recordsError);
+                    return;
+                }
+                loadValue(GroupUpdate.PRICE_HISTORY + "/" + groupId, (entries, entriesError) -> {
+                    if (entriesError != null) {
+                        callback.onComplete(null, entriesError);
+                        return;
+                    }
+                    GroupUpdate update = HistoryMigration.planPriceHistory(groupId, records, entries);
+                    int indexed = countRecords(update);
+                    send("backfillPriceHistory", update, (result, sendError) ->
+                            callback.onComplete(sendError == null ? indexed : null, sendError));
+                });
+            });
+        });
+    }
+
+    // Every record a backfill adds is marked
+    private static int countRecords(GroupUpdate update) {
+        int count = 0;
+        for (String path : update.toPaths().keySet()) {
+            if (path.startsWith(GroupUpdate.PURCHASED_ITEMS + "/")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void settle(Callback<SettlementCalculator.Settlement> callback) {
+        loadLedger(LEDGER_ATTEMPTS, (ledger, error) -> {
+            if (error != null) {
+                callback.onComplete(null, error);
+                return;
+            }
+            Map<String, Long> spentCents = new HashMap<>();
+            for (LedgerEntry entry : ModelCodec.decodeLedger(ledger)) {
+                Long previous = spentCents.get(entry.getName());
+                spentCents.put(entry.getName(), (previous != null ? previous : 0L) + entry.getSpentCents());
+            }
+            loadMemberNames((members, membersError) -> {
+                // Without the members the costs are still split between the roommates in the ledger
+                List<String> names = membersError == null ? members : new ArrayList<String>();
+                callback.onComplete(SettlementCalculator.settle(names, spentCents), null);
+            });
+        });
+    }
+
+    /**
+     * Read the ledger, building it from every record the first time
+     * ({@link HistoryMigration#buildLedger(Object, Object, Object)}).
+     * The records are only used if no checkout changed the ledger while they were read.
+     * @param attempts times the records are read again before giving up
+     * @param callback gets the raw value of the ledger
+     */
+    private void loadLedger(int attempts, Callback<Object> callback) {
+        String path = GroupUpdate.LEDGER + "/" + groupId;
+        loadValue(path, (readLedger, error) -> {
+            if (error != null || HistoryMigration.isLedgerBuilt(readLedger)) {
+                callback.onComplete(readLedger, error);
+                return;
+            }
+            loadValue(GroupUpdate.PURCHASED_ITEMS + "/" + groupId, (records, recordsError) -> {
+                if (recordsError != null) {
+                    callback.onComplete(null, recordsError);
+                    return;
+                }
+                loadValue(path, (ledger, ledgerError) -> {
+                    if (ledgerError != null) {
+                        callback.onComplete(null, ledgerError);
+                    } else if (HistoryMigration.isLedgerBuilt(ledger)) {
+                        callback.onComplete(ledger, null);
+                    } else if (ledger == null ? readLedger != null : !ledger.equals(readLedger)) {
+                        if (attempts > 1) {
+                            loadLedger(attempts - 1, callback);
+                        } else {
+                            callback.onComplete(null, new IllegalStateException("The ledger kept changing while it was built"));
+                        }
+                    } else {
+                        runTransaction(path, current -> HistoryMigration.buildLedger(records, readLedger, current), callback);
+                    }
+                });
+            });
+        });
+    }
+
+    /**
+     * Read the names of every user in the group from its member index. The first time, the group's
+     * users are read too, and users missing from the index (saved before it existed or by an older
+     * version of the app) are counted and added to it ({@link MemberIndexMigration}).
+     * @param callback
+     */
+    protected void loadMemberNames(Callback<List<String>> callback) {
+        loadValue(GroupUpdate.MIGRATIONS + "/" + groupId + "/" + MemberIndexMigration.STEP, (done, doneError) -> {
+            loadMemberIndex((members, error) -> {
+                if (error != null) {
+                    callback.onComplete(null, error);
+                    return;
+                }
+                if (doneError == null && Boolean.TRUE.equals(done)) {
+                    callback.onComplete(new ArrayList<>(members.values()), null);
+                    return;
+                }
+                loadGroupUsers((users, usersError) -> {
+                    if (usersError != null) {
+                        // The index alone still has every member added since it exists
+                        callback.onComplete(new ArrayList<>(members.values()), null);
+                        return;
+                    }
+                    GroupUpdate missing = MemberIndexMigration.plan(groupId, members, users)
+                            .put(GroupUpdate.MIGRATIONS, MemberIndexMigration.STEP, true);
+                    // Nobody waits for the index, the names are already known
+                    send("indexMembers", missing, (result, sendError) -> { });
+                    callback.onComplete(MemberIndexMigration.names(members, users), null);
+                });
+            });
+        });
+    }
+
+    /**
+     * A change of a stored value, run inside a transaction
+     */
+    protected interface Mutation {
+        /**
+         * @param current value stored at the path, null if there is none
+         * @return the new value, null deletes
+         * @throws ItemConflictException to give up without writing
+         */
+        Object apply(Object current) throws ItemConflictException;
+    }
+}
@@ -0,0 +1,138 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Learns the order of the aisles of the group's store from the order items are checked off.
+ * For every two items checked off close to each other on a trip it counts which came first,
+ * per normalized name ({@link NameNormalizer}). The position of a name is how many of the names
+ * it was seen with it mostly comes before, less the ones it mostly comes after, so a trip where
+ * someone went back for something does not move an item to the other end of the list.
+ * Names that were never checked off have no position.
+ */
+public class AisleOrder {
+
+    // Pairs are counted between an item and the next few checked off after it, which keeps the
+    // write of a trip small and still links the whole trip through the items in between
+    public static final int PAIR_WINDOW = 8;
+
+    // Variables
+    private final Map<String, Map<String, Long>> beforeCounts = new HashMap<>();
+    private Map<String, Double> positions;
+
+    /**
+     * Add counts read from the database
+     * @param counts name to the names it came before, with how many times
+     */
+    public void addCounts(Map<String, Map<String, Long>> counts) {
+        for (Map.Entry<String, Map<String, Long>> first : counts.entrySet()) {
+            for (Map.Entry<String, Long> second : first.getValue().entrySet()) {
+                add(first.getKey(), second.getKey(), second.getValue());
+            }
+        }
+    }
+
+    /**
+     * Learn from the items checked off on one trip
+     * @param names names of the items in the order they were checked off
+     * @return the counts added by the trip, to be saved with the others
+     */
+    public Map<String, Map<String, Long>> recordTrip(List<String> names) {
+        List<String> normalized = new ArrayList<>(names.size());
+        for (String name : names) {
+            String key = NameNormalizer.normalize(name);
+            if (!key.isEmpty() && !normalized.contains(key)) {
+                normalized.add(key);
+            }
+        }
+        Map<String, Map<String, Long>> added = new LinkedHashMap<>();
+        for (int i = 0; i < normalized.size(); i++) {
+            for (int j = i + 1; j < normalized.size() && j <= i + PAIR_WINDOW; j++) {
+                add(normalized.get(i), normalized.get(j), 1);
+                Map<String, Long> seconds = added.get(normalized.get(i));
+                if (seconds == null) {
+                    seconds = new LinkedHashMap<>();
+                    added.put(normalized.get(i), seconds);
+                }
+                seconds.put(normalized.get(j), 1L);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Get where an item is in the store
+     * @param name item name as typed
+     * @return between -1 (last) and 1 (first), null if the name was never checked off
+     */
+    public Double positionOf(String name) {
+        if (positions == null) {
+            positions = computePositions();
+        }
+        return positions.get(NameNormalizer.normalize(name));
+    }
+
+    /**
+     * Get how many times one name was checked off before another
+     * @param first normalized name
+     * @param second normalized name
+     * @return the count
+     */
+    public long countBefore(String first, String second) {
+        Map<String, Long> seconds = beforeCounts.get(first);
+        Long count = seconds != null ? seconds.get(second) : null;
+        return count != null ? count : 0;
+    }
+
+    private void add(String first, String second, long count) {
+        Map<String, Long> seconds = beforeCounts.get(first);
+        if (seconds == null) {
+            seconds = new HashMap<>();
+            beforeCounts.put(first, seconds);
+        }
+        Long old = seconds.get(second);
+        seconds.put(second, old != null ? old + count : count);
+        positions = null;
+    }
+
+    /**
+     * Average over every other name seen with it of 1 if the name mostly came first,
+     * -1 if it mostly came second and 0 if it is even
+     * @return name to position
+     */
+    private Map<String, Double> computePositions() {
+        Map<String, Double> sums = new HashMap<>();
+        Map<String, Integer> opponents = new HashMap<>();
+        for (Map.Entry<String, Map<String, Long>> first : beforeCounts.entrySet()) {
+            for (Map.Entry<String, Long> second : first.getValue().entrySet()) {
+                String a = first.getKey();
+                String b = second.getKey();
+                long aFirst = second.getValue();
+                long bFirst = countBefore(b, a);
+                if (bFirst > 0 && a.compareTo(b) > 0) {
+                    // Counted from the other side already
+                    continue;
+                }
+                double score = Math.signum(aFirst - bFirst);
+                addScore(sums, opponents, a, score);
+                addScore(sums, opponents, b, -score);
+            }
+        }
+        Map<String, Double> result = new HashMap<>();
+        for (Map.Entry<String, Double> sum : sums.entrySet()) {
+            result.put(sum.getKey(), sum.getValue() / opponents.get(sum.getKey()));
+        }
+        return result;
+    }
+
+    private static void addScore(Map<String, Double> sums, Map<String, Integer> opponents, String name, double score) {
+        Double sum = sums.get(name);
+        sums.put(name, sum != null ? sum + score : score);
+        Integer count = opponents.get(name);
+        opponents.put(name, count != null ? count + 1 : 1);
+    }
+}
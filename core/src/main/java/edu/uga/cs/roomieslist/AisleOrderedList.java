@@ -0,0 +1,141 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The items of a list sorted by where they are in the store ({@link AisleOrder}).
+ * The items are kept in a tree, so adding, changing or removing one item costs O(log n) and the
+ * list is never sorted from scratch, except when the learned order itself changes.
+ * Items the order knows nothing about come last, in the order they were added (push keys
+ * sort by time).
+ */
+public class AisleOrderedList implements ItemIndex {
+
+    // Variables
+    private final TreeSet<Entry> entries = new TreeSet<>();
+    private final Map<String, Entry> entriesById = new HashMap<>();
+    private AisleOrder order;
+
+    /**
+     * Constructor
+     * @param order learned order of the store
+     */
+    public AisleOrderedList(AisleOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Use a new learned order and sort every item again
+     * @param order
+     */
+    public void setOrder(AisleOrder order) {
+        this.order = order;
+        List<Entry> old = new ArrayList<>(entries);
+        entries.clear();
+        entriesById.clear();
+        for (Entry entry : old) {
+            put(entry.item);
+        }
+    }
+
+    @Override
+    public void put(Item item) {
+        String itemId = item.getItemId();
+        if (itemId == null) {
+            return;
+        }
+        Entry old = entriesById.get(itemId);
+        if (old != null) {
+            entries.remove(old);
+        }
+        // The position only depends on the name, so a check box change does not look it up again
+        Double position = old != null && old.item.getName() != null && old.item.getName().equals(item.getName())
+                ? old.position : order.positionOf(item.getName());
+        Entry entry = new Entry(item, position);
+        entries.add(entry);
+        entriesById.put(itemId, entry);
+    }
+
+    @Override
+    public void remove(String itemId) {
+        Entry old = entriesById.remove(itemId);
+        if (old != null) {
+            entries.remove(old);
+        }
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        entriesById.clear();
+    }
+
+    /**
+     * @return the items in store order
+     */
+    public List<Item> getItems() {
+        List<Item> items = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /**
+     * Get some of the items in store order, without going through the others
+     * @param itemIds ids of the items, ids that are not in the list are skipped
+     * @return the items in store order
+     */
+    public List<Item> getItems(Collection<String> itemIds) {
+        List<Entry> found = new ArrayList<>(itemIds.size());
+        for (String itemId : itemIds) {
+            Entry entry = entriesById.get(itemId);
+            if (entry != null) {
+                found.add(entry);
+            }
+        }
+        Collections.sort(found);
+        List<Item> items = new ArrayList<>(found.size());
+        for (Entry entry : found) {
+            items.add(entry.item);
+        }
+        return items;
+    }
+
+    /**
+     * @return number of items
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final Item item;
+        private final Double position;
+
+        Entry(Item item, Double position) {
+            this.item = item;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (position != null && other.position != null) {
+                // Higher positions are earlier in the store
+                int byPosition = Double.compare(other.position, position);
+                if (byPosition != 0) {
+                    return byPosition;
+                }
+            } else if (position != null || other.position != null) {
+                return position != null ? -1 : 1;
+            }
+            return item.getItemId().compareTo(other.item.getItemId());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A tree of maps laid out like the database, where every slash separated path points to a node.
+ * Writing null deletes a node, and parents that end up empty are deleted too, the same way
+ * the database never stores empty nodes.
+ * Not thread safe, callers lock around it.
+ */
+public class DataTree {
+
+    // Variables
+    private final Map<String, Object> root = new TreeMap<>();
+
+    /**
+     * Read the value stored at a path
+     * @param path for example ShoppingList/group/item, empty for the root
+     * @return the value, a map for nodes with children, null if nothing is stored there
+     */
+    public Object get(String path) {
+        Object node = root;
+        for (String key : split(path)) {
+            if (!(node instanceof Map)) {
+                return null;
+            }
+            node = ((Map<?, ?>) node).get(key);
+        }
+        if (node == root && root.isEmpty()) {
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * Get the children of a node
+     * @param path
+     * @return the children sorted by key, empty if the node has none
+     */
+    public List<Map.Entry<String, Object>> children(String path) {
+        Object node = get(path);
+        if (!(node instanceof Map)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(asNode(node).entrySet());
+    }
+
+    /**
+     * Write a value at a path, creating the parent nodes on the way.
+     * The value is copied, so later changes to the caller's maps do not leak in.
+     * @param path
+     * @param value null deletes the node
+     */
+    public void set(String path, Object value) {
+        String[] keys = split(path);
+        if (keys.length == 0) {
+            root.clear();
+            if (value instanceof Map) {
+                root.putAll(asNode(copy(value)));
+            }
+            return;
+        }
+        List<Map<String, Object>> parents = new ArrayList<>();
+        Map<String, Object> node = root;
+        for (int i = 0; i < keys.length - 1; i++) {
+            parents.add(node);
+            Object child = node.get(keys[i]);
+            if (!(child instanceof Map)) {
+                if (value == null) {
+                    return;
+                }
+                child = new TreeMap<String, Object>();
+                node.put(keys[i], child);
+            }
+            node = asNode(child);
+        }
+
+        String last = keys[keys.length - 1];
+        Object copy = copy(value);
+        if (copy != null && !(copy instanceof Map && ((Map<?, ?>) copy).isEmpty())) {
+            node.put(last, copy);
+            return;
+        }
+        node.remove(last);
+        for (int i = keys.length - 2; i >= 0 && node.isEmpty(); i--) {
+            node = parents.get(i);
+            node.remove(keys[i]);
+        }
+    }
+
+    /**
+     * Apply a multi-path update. Increments add to the number stored at their path.
+     * @param paths path to value, null deletes
+     */
+    public void apply(Map<String, Object> paths) {
+        for (Map.Entry<String, Object> path : paths.entrySet()) {
+            set(path.getKey(), resolve(path.getKey(), path.getValue()));
+        }
+    }
+
+    /**
+     * Turn an increment into the number it produces on this tree, other values are returned as they are
+     * @param path
+     * @param value
+     * @return the value to store
+     */
+    public Object resolve(String path, Object value) {
+        if (!(value instanceof GroupUpdate.Increment)) {
+            return value;
+        }
+        Object current = get(path);
+        long base = current instanceof Number ? ((Number) current).longValue() : 0L;
+        return base + ((GroupUpdate.Increment) value).getDelta();
+    }
+
+    /**
+     * Deep copy a value. Whole numbers become Long and other numbers Double,
+     * like the database returns them, so equal values compare equal.
+     * @param value
+     * @return the copy
+     */
+    public static Object copy(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> copy = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object child = copy(entry.getValue());
+                if (child != null) {
+                    copy.put(String.valueOf(entry.getKey()), child);
+                }
+            }
+            return copy;
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        return value;
+    }
+
+    /**
+     * Check if one path is the same as, or inside, the other
+     * @param a
+     * @param b
+     * @return true if a change at one of them can change the other
+     */
+    public static boolean related(String a, String b) {
+        return isAncestorOrSelf(a, b) || isAncestorOrSelf(b, a);
+    }
+
+    /**
+     * @param ancestor
+     * @param path
+     * @return true if path is ancestor itself or is inside it
+     */
+    public static boolean isAncestorOrSelf(String ancestor, String path) {
+        return ancestor.isEmpty() || path.equals(ancestor) || path.startsWith(ancestor + "/");
+    }
+
+    /**
+     * Find the deepest node that contains every path, the location a multi-path update
+     * can be sent to so the paths inside it are as short as possible
+     * @param paths
+     * @return the common parent, empty for the root
+     */
+    public static String commonParent(Collection<String> paths) {
+        String[] common = null;
+        int length = 0;
+        for (String path : paths) {
+            String[] keys = split(path);
+            if (common == null) {
+                common = keys;
+                // A path has to stay below the location, so at most its parent is shared
+                length = Math.max(0, keys.length - 1);
+                continue;
+            }
+            int shared = 0;
+            while (shared < length && shared < keys.length - 1 && common[shared].equals(keys[shared])) {
+                shared++;
+            }
+            length = shared;
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                builder.append('/');
+            }
+            builder.append(common[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get a path as seen from one of its ancestors
+     * @param ancestor empty for the root
+     * @param path
+     * @return the rest of the path below the ancestor
+     */
+    public static String relativePath(String ancestor, String path) {
+        return ancestor.isEmpty() ? path : path.substring(ancestor.length() + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asNode(Object node) {
+        return (Map<String, Object>) node;
+    }
+
+    private static String[] split(String path) {
+        return path.isEmpty() ? new String[0] : path.split("/");
+    }
+}
@@ -0,0 +1,54 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.Locale;
+
+/**
+ * Turns free text (like a roommate's name) into a valid database key.
+ * Keys can not contain . # $ [ ] or /, so those characters and % are written as %XX.
+ */
+public final class FirebaseKeys {
+
+    private static final String FORBIDDEN = ".#$[]/%";
+
+    private FirebaseKeys() {}
+
+    /**
+     * Encode text so it can be used as a key
+     * @param text
+     * @return the key, "_" for empty text since keys can not be empty
+     */
+    public static String encode(String text) {
+        if (text == null || text.isEmpty()) {
+            return "_";
+        }
+        StringBuilder key = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (FORBIDDEN.indexOf(c) >= 0 || c < 0x20 || c == 0x7F) {
+                key.append('%').append(String.format(Locale.US, "%02X", (int) c));
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Decode a key made by {@link #encode(String)}
+     * @param key
+     * @return the original text
+     */
+    public static String decode(String key) {
+        StringBuilder text = new StringBuilder(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '%' && i + 2 < key.length()) {
+                text.append((char) Integer.parseInt(key.substring(i + 1, i + 3), 16));
+                i += 2;
+            } else {
+                text.append(c);
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,470 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Collects writes to the group's nodes as one multi-path update.
+ * A repository applies every path of the update atomically, so an item can
+ * never end up both in the shopping list and in the basket.
+ * Ledger, spending rollup and price history counts are kept as {@link Increment} markers, which each
+ * backend turns into its own atomic increment.
+ */
+public class GroupUpdate {
+
+    // Node names
+    public static final String SHOPPING_LIST = "ShoppingList";
+    public static final String SHOPPING_BASKET = "ShoppingBasket";
+    public static final String PURCHASED_ITEMS = "PurchasedItems";
+    public static final String PURCHASE_SUMMARIES = "PurchaseSummaries";
+    public static final String LEDGER = "Ledger";
+    public static final String USERS = "Users";
+    public static final String GROUPS = "Groups";
+    public static final String MEMBERS = "members";
+    public static final String TIME_ZONE = "timeZone";
+    public static final String AISLE_ORDER = "AisleOrder";
+    public static final String SPENDING = "Spending";
+    public static final String PRICE_HISTORY = "PriceHistory";
+    public static final String MIGRATIONS = "Migrations";
+
+    // Variables
+    private final String groupId;
+    private final Map<String, Object> updates = new HashMap<>();
+    private final Map<String, Long> spendingDeltas = new HashMap<>();
+    // Path below Spending/<groupId> to cents
+    private final Map<String, Long> rollupDeltas = new HashMap<>();
+    // Path below PriceHistory/<groupId> to count or cents
+    private final Map<String, Long> priceDeltas = new HashMap<>();
+
+    /**
+     * Constructor
+     * @param groupId group whose nodes are written
+     */
+    public GroupUpdate(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * Get the group whose nodes are written
+     * @return group id
+     */
+    public String getGroupId() {
+        return groupId;
+    }
+
+    /**
+     * Move an item from the shopping list to the basket
+     * @param item
+     * @return this update
+     */
+    public GroupUpdate moveToBasket(Item item) {
+        put(SHOPPING_BASKET, item.getItemId(), ModelCodec.encodeItem(item));
+        remove(SHOPPING_LIST, item.getItemId());
+        return this;
+    }
+
+    /**
+     * Write only the changed fields of an item, other fields keep whatever the database holds,
+     * so roommates changing different fields of the same item do not undo each other
+     * @param node SHOPPING_LIST or SHOPPING_BASKET
+     * @param item
+     * @return this update
+     */
+    public GroupUpdate updateFields(String node, Item item) {
+        return updateFields(node, item.getItemId(), ModelCodec.encodeChanges(item));
+    }
+
+    /**
+     * Write the given fields of an item, as made by {@link ModelCodec#encodeChanges(Item)}
+     * @param node SHOPPING_LIST or SHOPPING_BASKET
+     * @param itemId
+     * @param fields field name to value, null removes the field
+     * @return this update
+     */
+    public GroupUpdate updateFields(String node, String itemId, Map<String, Object> fields) {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            put(node, itemId + "/" + field.getKey(), field.getValue());
+        }
+        if (!fields.isEmpty()) {
+            // Counted up on the server, so a compare-and-set running at the same time sees the change
+            put(node, itemId + "/" + ModelCodec.VERSION, new Increment(1));
+        }
+        return this;
+    }
+
+    /**
+     * Write the given fields of an item together with the version they make, for writes that are
+     * only accepted if nobody changed the item since it was read (see database.rules.json)
+     * @param node SHOPPING_LIST
+     * @param itemId
+     * @param fields field name to value, null removes the field
+     * @param version read version plus one
+     * @return this update
+     */
+    public GroupUpdate updateFields(String node, String itemId, Map<String, Object> fields, long version) {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            put(node, itemId + "/" + field.getKey(), field.getValue());
+        }
+        return put(node, itemId + "/" + ModelCodec.VERSION, version);
+    }
+
+    /**
+     * Save a user and add it to the group's member index, Groups/[groupId]/members/[userId],
+     * which holds the member's name so the group's members are read without a query on Users
+     * @param userId
+     * @param user member of this update's group
+     * @return this update
+     */
+    public GroupUpdate addMember(String userId, User user) {
+        updates.put(USERS + "/" + userId, ModelCodec.encodeUser(user));
+        return addToMemberIndex(userId, user.name);
+    }
+
+    /**
+     * Add a user that is already saved to the group's member index
+     * @param userId
+     * @param name
+     * @return this update
+     */
+    public GroupUpdate addToMemberIndex(String userId, String name) {
+        put(GROUPS, MEMBERS + "/" + userId, name != null ? name : "");
+        return this;
+    }
+
+    /**
+     * Add to the amount of a shopping list item on the server, so amounts added by
+     * several roommates at the same time all count
+     * @param itemId
+     * @param delta
+     * @return this update
+     */
+    public GroupUpdate increaseAmount(String itemId, int delta) {
+        put(SHOPPING_LIST, itemId + "/" + ModelCodec.AMOUNT, new Increment(delta));
+        put(SHOPPING_LIST, itemId + "/" + ModelCodec.VERSION, new Increment(1));
+        return this;
+    }
+
+    /**
+     * Add check-off counts to the group's aisle order, counted up on the server
+     * so trips finished at the same time all count
+     * @param counts first name to the names it came before, with how many times
+     * @return this update
+     */
+    public GroupUpdate addAisleCounts(Map<String, Map<String, Long>> counts) {
+        for (Map.Entry<String, Map<String, Long>> first : counts.entrySet()) {
+            for (Map.Entry<String, Long> second : first.getValue().entrySet()) {
+                put(AISLE_ORDER, FirebaseKeys.encode(first.getKey()) + "/" + FirebaseKeys.encode(second.getKey()),
+                        new Increment(second.getValue()));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Move a list of items from the shopping list to the basket
+     * @param items
+     * @return this update
+     */
+    public GroupUpdate moveToBasket(List<Item> items) {
+        for (Item item : items) {
+            moveToBasket(item);
+        }
+        return this;
+    }
+
+    /**
+     * Move an item from the basket back to the shopping list
+     * @param item
+     * @return this update
+     */
+    public GroupUpdate moveToList(Item item) {
+        put(SHOPPING_LIST, item.getItemId(), ModelCodec.encodeItem(item));
+        remove(SHOPPING_BASKET, item.getItemId());
+        return this;
+    }
+
+    /**
+     * Write the purchased record, delete exactly the checked-out items from the basket
+     * and add the total to the purchaser's ledger entry.
+     * Items added to the basket by someone else during checkout are left alone.
+     * @param purchaseId key of the new record
+     * @param record
+     * @return this update
+     */
+    public GroupUpdate checkout(String purchaseId, PurchasedRecord record) {
+        saveRecord(purchaseId, record);
+        for (Item item : record.getItems()) {
+            remove(SHOPPING_BASKET, item.getItemId());
+        }
+        addSpending(record.getPurchasedBy(), Money.toCents(record.getTotalPrice()));
+        return this;
+    }
+
+    /**
+     * Write a purchased record together with its summary in the history index.
+     * When the total changed, the ledger has to be corrected with {@link #addSpending(String, long)}.
+     * @param purchaseId
+     * @param record
+     * @return this update
+     */
+    public GroupUpdate saveRecord(String purchaseId, PurchasedRecord record) {
+        put(PURCHASED_ITEMS, purchaseId, ModelCodec.encodeRecord(record));
+        put(PURCHASE_SUMMARIES, purchaseId, ModelCodec.encodeSummary(PurchaseSummary.of(purchaseId, record)));
+        return this;
+    }
+
+    /**
+     * Change the total price of a record and of its summary, and move the difference
+     * into the purchaser's ledger entry
+     * @param summary summary of the record with the old total
+     * @param totalPrice new total
+     * @return this update
+     */
+    public GroupUpdate updateTotalPrice(PurchaseSummary summary, double totalPrice) {
+        put(PURCHASED_ITEMS, summary.getId() + "/" + ModelCodec.TOTAL_PRICE, totalPrice);
+        put(PURCHASE_SUMMARIES, summary.getId() + "/" + ModelCodec.TOTAL_PRICE, totalPrice);
+        addSpending(summary.getPurchasedBy(), Money.toCents(totalPrice) - Money.toCents(summary.getTotalPrice()));
+        return this;
+    }
+
+    /**
+     * Add to (or, with a negative amount, take from) what a roommate has spent.
+     * The ledger is changed with an increment, so concurrent checkouts add up
+     * correctly and the change commits atomically with the rest of the update.
+     * @param roommate
+     * @param deltaCents
+     * @return this update
+     */
+    public GroupUpdate addSpending(String roommate, long deltaCents) {
+        String name = roommate != null ? roommate : "Unknown User";
+        Long previous = spendingDeltas.get(name);
+        spendingDeltas.put(name, (previous != null ? previous : 0L) + deltaCents);
+        return this;
+    }
+
+    /**
+     * Add a purchase to (sign 1) or take it out of (sign -1) the week and month it was made in
+     * ({@link SpendingRollup}). An edit takes out the record as it was and adds it as it is,
+     * so only the difference is written.
+     * @param record
+     * @param sign 1 or -1
+     * @param zone the group's time zone, Groups/[groupId]/timeZone
+     * @return this update
+     */
+    public GroupUpdate addToRollups(PurchasedRecord record, int sign, TimeZone zone) {
+        addToRollups(record.getTimestamp(), record.getPurchasedBy(), sign * Money.toCents(record.getTotalPrice()), zone);
+        if (record.getItems() == null) {
+            return this;
+        }
+        for (Item item : record.getItems()) {
+            String name = item != null ? NameNormalizer.normalize(item.getName()) : "";
+            if (name.isEmpty()) {
+                continue;
+            }
+            for (String bucket : bucketsOf(record.getTimestamp(), zone)) {
+                addRollup(bucket + "/" + SpendingRollup.ITEMS + "/" + FirebaseKeys.encode(name),
+                        sign * Money.toCents(item.getPrice()));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add to (or take from) the total of a purchase in the week and month it was made in,
+     * when the total changed without its items
+     * @param timestamp time of the purchase
+     * @param roommate
+     * @param deltaCents
+     * @param zone the group's time zone
+     * @return this update
+     */
+    public GroupUpdate addToRollups(long timestamp, String roommate, long deltaCents, TimeZone zone) {
+        String name = roommate != null ? roommate : "Unknown User";
+        for (String bucket : bucketsOf(timestamp, zone)) {
+            addRollup(bucket + "/" + SpendingRollup.TOTAL_CENTS, deltaCents);
+            addRollup(bucket + "/" + SpendingRollup.ROOMMATES + "/" + FirebaseKeys.encode(name), deltaCents);
+        }
+        return this;
+    }
+
+    private static String[] bucketsOf(long timestamp, TimeZone zone) {
+        return new String[] {
+                SpendingRollup.WEEK + "/" + SpendingRollup.bucketOf(SpendingRollup.WEEK, timestamp, 0, zone),
+                SpendingRollup.MONTH + "/" + SpendingRollup.bucketOf(SpendingRollup.MONTH, timestamp, 0, zone)
+        };
+    }
+
+    private void addRollup(String path, long deltaCents) {
+        Long previous = rollupDeltas.get(path);
+        rollupDeltas.put(path, (previous != null ? previous : 0L) + deltaCents);
+    }
+
+    /**
+     * Add the items of a purchase to (sign 1) or take them out of (sign -1) the group's price history
+     * ({@link PriceHistoryEntry}), so the list can suggest names and prices without reading the records.
+     * The counts and sums are increments, so an edit that takes out the record as it was and adds it
+     * as it is only changes them by the difference.
+     * @param record
+     * @param sign 1 or -1
+     * @return this update
+     */
+    public GroupUpdate addToPriceHistory(PurchasedRecord record, int sign) {
+        addToPriceCounts(record, sign);
+        if (sign > 0 && record.getItems() != null) {
+            for (Item item : record.getItems()) {
+                if (item != null && !NameNormalizer.normalize(item.getName()).isEmpty()) {
+                    setLastPurchase(item, record.getTimestamp());
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add the items of a purchase to (sign 1) or take them out of (sign -1) the counts and sums
+     * of the price history, without changing when each name was last bought
+     * @param record
+     * @param sign 1 or -1
+     * @return this update
+     */
+    public GroupUpdate addToPriceCounts(PurchasedRecord record, int sign) {
+        if (record.getItems() == null) {
+            return this;
+        }
+        for (Item item : record.getItems()) {
+            String name = item != null ? NameNormalizer.normalize(item.getName()) : "";
+            if (name.isEmpty()) {
+                continue;
+            }
+            String key = FirebaseKeys.encode(name);
+            long cents = Money.toCents(item.getPrice());
+            addPriceCount(key + "/" + ModelCodec.COUNT, sign);
+            if (cents > 0) {
+                addPriceCount(key + "/" + ModelCodec.PRICED_COUNT, sign);
+                addPriceCount(key + "/" + ModelCodec.TOTAL_CENTS, sign * cents);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Write the name, time and price of the last purchase of an item to its price history entry
+     * @param item item with a name
+     * @param timestamp time of the purchase
+     * @return this update
+     */
+    public GroupUpdate setLastPurchase(Item item, long timestamp) {
+        String key = FirebaseKeys.encode(NameNormalizer.normalize(item.getName()));
+        long cents = Money.toCents(item.getPrice());
+        put(PRICE_HISTORY, key + "/" + ModelCodec.NAME, item.getName());
+        put(PRICE_HISTORY, key + "/" + ModelCodec.TIMESTAMP, timestamp);
+        if (cents > 0) {
+            put(PRICE_HISTORY, key + "/" + ModelCodec.LAST_CENTS, cents);
+        }
+        return this;
+    }
+
+    private void addPriceCount(String path, long delta) {
+        Long previous = priceDeltas.get(path);
+        priceDeltas.put(path, (previous != null ? previous : 0L) + delta);
+    }
+
+    /**
+     * Delete every purchased record and summary of the group and reset the ledger.
+     * The emptied ledger holds every purchase left, so it is marked built.
+     * The spending rollups and the price history are kept.
+     * @return this update
+     */
+    public GroupUpdate clearHistory() {
+        updates.put(PURCHASED_ITEMS + "/" + groupId, null);
+        updates.put(PURCHASE_SUMMARIES + "/" + groupId, null);
+        updates.put(LEDGER + "/" + groupId, Collections.singletonMap(HistoryMigration.LEDGER_BUILT, true));
+        spendingDeltas.clear();
+        return this;
+    }
+
+    /**
+     * Write a value under one of the group's nodes
+     * @param node for example ShoppingList
+     * @param childPath path below the group, can contain slashes
+     * @param value
+     * @return this update
+     */
+    public GroupUpdate put(String node, String childPath, Object value) {
+        updates.put(node + "/" + groupId + "/" + childPath, value);
+        return this;
+    }
+
+    /**
+     * Delete a value under one of the group's nodes
+     * @param node
+     * @param childPath
+     * @return this update
+     */
+    public GroupUpdate remove(String node, String childPath) {
+        updates.put(node + "/" + groupId + "/" + childPath, null);
+        return this;
+    }
+
+    /**
+     * Check if anything was added to the update
+     * @return true if there is nothing to commit
+     */
+    public boolean isEmpty() {
+        return updates.isEmpty() && spendingDeltas.isEmpty() && rollupDeltas.isEmpty() && priceDeltas.isEmpty();
+    }
+
+    /**
+     * Get the number of paths written by the update
+     * @return number of paths
+     */
+    public int size() {
+        return toPaths().size();
+    }
+
+    /**
+     * Build the path map of the update, including the ledger, rollup and price history increments.
+     * A null value deletes the path.
+     * @return every path written by the update
+     */
+    public Map<String, Object> toPaths() {
+        Map<String, Object> all = new HashMap<>(updates);
+        for (Map.Entry<String, Long> delta : spendingDeltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            String entryPath = LEDGER + "/" + groupId + "/" + FirebaseKeys.encode(delta.getKey());
+            all.put(entryPath + "/" + ModelCodec.NAME, delta.getKey());
+            all.put(entryPath + "/" + ModelCodec.SPENT_CENTS, new Increment(delta.getValue()));
+        }
+        for (Map.Entry<String, Long> delta : rollupDeltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                all.put(SPENDING + "/" + groupId + "/" + delta.getKey(), new Increment(delta.getValue()));
+            }
+        }
+        for (Map.Entry<String, Long> delta : priceDeltas.entrySet()) {
+            if (delta.getValue() != 0) {
+                all.put(PRICE_HISTORY + "/" + groupId + "/" + delta.getKey(), new Increment(delta.getValue()));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Adds to the number stored at a path, a missing number counts as 0
+     */
+    public static final class Increment {
+        private final long delta;
+
+        public Increment(long delta) {
+            this.delta = delta;
+        }
+
+        public long getDelta() {
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Brings a group's purchase history up to date with the indexes added after it was written.
+ * Each step is done once per group and then marked done, so the full records are only read
+ * by the first device that needs them afterwards.
+ */
+public final class HistoryMigration {
+
+    // Steps, kept as flags under Migrations/[groupId]
+    public static final String SUMMARIES = "summaries";
+    public static final String ROLLUPS = "rollups";
+    public static final String PRICE_HISTORY = "priceHistory";
+
+    // Child of Ledger/[groupId] once the ledger holds every purchase, never the key of an encoded name
+    public static final String LEDGER_BUILT = "%built";
+
+    private HistoryMigration() {}
+
+    /**
+     * Find the records that have no summary in the history index. Records saved before the
+     * summaries existed have none, and neither do records checked out by an older version of the app.
+     * @param groupId
+     * @param records raw value of PurchasedItems/[groupId], purchase id to record
+     * @param summaries raw value of PurchaseSummaries/[groupId], purchase id to summary
+     * @return the update that writes the missing summaries and marks the step done
+     */
+    public static GroupUpdate planSummaries(String groupId, Object records, Object summaries) {
+        GroupUpdate update = new GroupUpdate(groupId);
+        Map<?, ?> existing = summaries instanceof Map ? (Map<?, ?>) summaries : null;
+        if (records instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) records).entrySet()) {
+                String purchaseId = String.valueOf(entry.getKey());
+                if (existing != null && existing.containsKey(purchaseId)) {
+                    continue;
+                }
+                PurchasedRecord record = ModelCodec.decodeRecord(purchaseId, entry.getValue());
+                if (record != null) {
+                    update.put(GroupUpdate.PURCHASE_SUMMARIES, purchaseId,
+                            ModelCodec.encodeSummary(PurchaseSummary.of(purchaseId, record)));
+                }
+            }
+        }
+        return update.put(GroupUpdate.MIGRATIONS, SUMMARIES, true);
+    }
+
+    /**
+     * Add the records that are not in the spending rollups to them and mark them rolled up.
+     * Records saved before the rollups existed are not, and taking one out when it is edited
+     * would leave its week and month below zero.
+     * @param groupId
+     * @param records raw value of PurchasedItems/[groupId], purchase id to record
+     * @param zone the group's time zone
+     * @return the update that adds the records and marks the step done
+     */
+    public static GroupUpdate planRollups(String groupId, Object records, TimeZone zone) {
+        GroupUpdate update = new GroupUpdate(groupId);
+        if (records instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) records).entrySet()) {
+                String purchaseId = String.valueOf(entry.getKey());
+                PurchasedRecord record = ModelCodec.decodeRecord(purchaseId, entry.getValue());
+                if (record != null && !record.isRolledUp()) {
+                    update.addToRollups(record, 1, zone)
+                            .put(GroupUpdate.PURCHASED_ITEMS, purchaseId + "/" + ModelCodec.ROLLED_UP, true);
+                }
+            }
+        }
+        return update.put(GroupUpdate.MIGRATIONS, ROLLUPS, true);
+    }
+
+    /**
+     * Add the records that are not in the price history to it and mark them. Records saved before
+     * the price history existed are not, and taking one out when it is edited would leave counts
+     * below zero on entries without a name. The last purchase of a name is only written when it is
+     * newer than the one the entry already holds.
+     * @param groupId
+     * @param records raw value of PurchasedItems/[groupId], purchase id to record
+     * @param priceHistory raw value of PriceHistory/[groupId]
+     * @return the update that adds the records and marks the step done
+     */
+    public static GroupUpdate planPriceHistory(String groupId, Object records, Object priceHistory) {
+        GroupUpdate update = new GroupUpdate(groupId);
+        List<PurchasedRecord> missing = new ArrayList<>();
+        if (records instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) records).entrySet()) {
+                PurchasedRecord record = ModelCodec.decodeRecord(String.valueOf(entry.getKey()), entry.getValue());
+                if (record != null && !record.isInPriceHistory()) {
+                    missing.add(record);
+                }
+            }
+        }
+        // Oldest first, so the newest purchase of a name is written last
+        Collections.sort(missing, (a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        Map<?, ?> entries = priceHistory instanceof Map ? (Map<?, ?>) priceHistory : Collections.emptyMap();
+        for (PurchasedRecord record : missing) {
+            update.addToPriceCounts(record, 1)
+                    .put(GroupUpdate.PURCHASED_ITEMS, record.getId() + "/" + ModelCodec.IN_PRICE_HISTORY, true);
+            for (Item item : record.getItems()) {
+                String name = item != null ? NameNormalizer.normalize(item.getName()) : "";
+                if (name.isEmpty()) {
+                    continue;
+                }
+                String key = FirebaseKeys.encode(name);
+                PriceHistoryEntry stored = ModelCodec.decodePriceHistoryEntry(key, entries.get(key));
+                if (stored == null || stored.getTimestamp() <= record.getTimestamp()) {
+                    update.setLastPurchase(item, record.getTimestamp());
+                }
+            }
+        }
+        return update.put(GroupUpdate.MIGRATIONS, PRICE_HISTORY, true);
+    }
+
+    /**
+     * Check if the ledger was built from the records, or started with the group's history
+     * @param ledger raw value of Ledger/[groupId]
+     * @return true if nothing is missing from it
+     */
+    public static boolean isLedgerBuilt(Object ledger) {
+        return ledger instanceof Map && Boolean.TRUE.equals(((Map<?, ?>) ledger).get(LEDGER_BUILT));
+    }
+
+    /**
+     * Build the ledger from every record. Groups whose history is older than the ledger have no ledger,
+     * or one holding only the purchases made since. Checkouts that landed after the records were read
+     * are added to what the records add up to, so none is lost or counted twice.
+     * @param records raw value of PurchasedItems/[groupId]
+     * @param readLedger raw value of the ledger when the records were read
+     * @param currentLedger raw value of the ledger now
+     * @return the new raw value of the ledger, the current one if it was built in the meantime
+     */
+    public static Object buildLedger(Object records, Object readLedger, Object currentLedger) {
+        if (isLedgerBuilt(currentLedger)) {
+            return currentLedger;
+        }
+        Map<String, LedgerEntry> entries = new HashMap<>();
+        if (records instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) records).entrySet()) {
+                PurchasedRecord record = ModelCodec.decodeRecord(String.valueOf(entry.getKey()), entry.getValue());
+                if (record != null) {
+                    String name = record.getPurchasedBy() != null ? record.getPurchasedBy() : "Unknown User";
+                    add(entries, FirebaseKeys.encode(name), name, Money.toCents(record.getTotalPrice()));
+                }
+            }
+        }
+        for (LedgerEntry entry : ModelCodec.decodeLedger(currentLedger)) {
+            add(entries, FirebaseKeys.encode(entry.getName()), entry.getName(), entry.getSpentCents());
+        }
+        for (LedgerEntry entry : ModelCodec.decodeLedger(readLedger)) {
+            add(entries, FirebaseKeys.encode(entry.getName()), entry.getName(), -entry.getSpentCents());
+        }
+        Map<String, Object> ledger = new HashMap<>();
+        for (Map.Entry<String, LedgerEntry> entry : entries.entrySet()) {
+            ledger.put(entry.getKey(), ModelCodec.encodeLedgerEntry(entry.getValue()));
+        }
+        ledger.put(LEDGER_BUILT, true);
+        return ledger;
+    }
+
+    private static void add(Map<String, LedgerEntry> entries, String key, String name, long cents) {
+        LedgerEntry previous = entries.get(key);
+        entries.put(key, new LedgerEntry(name, (previous != null ? previous.getSpentCents() : 0L) + cents));
+    }
+}
@@ -0,0 +1,233 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps the data in memory, laid out exactly like the database in a {@link DataTree}.
+ * Updates are applied atomically under a lock and the callbacks run right away on the calling thread.
+ * Used to run and measure the shopping rules on the JVM, without a device or a server.
+ */
+public class InMemoryShoppingRepository extends AbstractShoppingRepository {
+
+    // Variables
+    private final DataTree tree = new DataTree();
+    private long nextKey;
+    private long clock;
+
+    /**
+     * Constructor
+     * @param groupId group whose data is read and written
+     */
+    public InMemoryShoppingRepository(String groupId) {
+        super(groupId);
+    }
+
+    /**
+     * Add a user and its entry in its group's member index, so that it is counted
+     * as a member when its group is settled
+     * @param userId
+     * @param user
+     */
+    public synchronized void addUser(String userId, User user) {
+        tree.apply(new GroupUpdate(user.groupId).addMember(userId, user).toPaths());
+    }
+
+    /**
+     * Add a user without an entry in its group's member index, the way older versions of the app saved users
+     * @param userId
+     * @param user
+     */
+    public synchronized void addLegacyUser(String userId, User user) {
+        tree.apply(Collections.<String, Object>singletonMap(GroupUpdate.USERS + "/" + userId, ModelCodec.encodeUser(user)));
+    }
+
+    /**
+     * Add a purchase without its summary or its part of the ledger, the way older versions of the app saved purchases
+     * @param purchaseId
+     * @param record
+     */
+    public synchronized void addLegacyRecord(String purchaseId, PurchasedRecord record) {
+        tree.apply(Collections.<String, Object>singletonMap(
+                GroupUpdate.PURCHASED_ITEMS + "/" + groupId + "/" + purchaseId, ModelCodec.encodeRecord(record)));
+    }
+
+    /**
+     * Read the raw value stored at a path
+     * @param path for example ShoppingList/group/item
+     * @return the value, a map for nodes with children, null if nothing is stored there
+     */
+    public synchronized Object getValue(String path) {
+        return tree.get(path);
+    }
+
+    /**
+     * Set the time used for the timestamps of the next purchases, they keep increasing from there
+     * @param millis
+     */
+    public synchronized void setClock(long millis) {
+        clock = millis;
+    }
+
+    @Override
+    protected synchronized long now() {
+        // Never the same twice, so purchases are ordered like they are on the server
+        clock = Math.max(clock + 1, super.now());
+        return clock;
+    }
+
+    @Override
+    protected synchronized String newKey(String node) {
+        // Keys sort in creation order, like the database's push keys
+        return String.format(Locale.US, "k%012d", nextKey++);
+    }
+
+    @Override
+    protected void commit(GroupUpdate update, Callback<Void> callback) {
+        Map<String, Object> paths = update.toPaths();
+        String refusedItemId;
+        synchronized (this) {
+            refusedItemId = refusedItem(paths);
+            if (refusedItemId == null) {
+                tree.apply(paths);
+            }
+        }
+        callback.onComplete(null, refusedItemId == null ? null
+                : new IllegalStateException("Permission denied, the update was refused for item " + refusedItemId));
+    }
+
+    /**
+     * Check the shopping list items written by an update against the rule of database.rules.json:
+     * an item keeps its id and name, and a stored item only takes the version after its own
+     * @param paths
+     * @return id of the first item the database would refuse, null if the update is accepted
+     */
+    private String refusedItem(Map<String, Object> paths) {
+        String list = GroupUpdate.SHOPPING_LIST + "/" + groupId + "/";
+        DataTree written = new DataTree();
+        Set<String> itemIds = new TreeSet<>();
+        for (String path : paths.keySet()) {
+            if (path.startsWith(list)) {
+                String itemId = path.substring(list.length()).split("/")[0];
+                if (itemIds.add(itemId)) {
+                    written.set(list + itemId, tree.get(list + itemId));
+                }
+            }
+        }
+        for (Map.Entry<String, Object> path : paths.entrySet()) {
+            if (path.getKey().startsWith(list)) {
+                written.set(path.getKey(), written.resolve(path.getKey(), path.getValue()));
+            }
+        }
+        for (String itemId : itemIds) {
+            Object after = written.get(list + itemId);
+            if (after == null) {
+                // Deletes are not validated
+                continue;
+            }
+            Map<?, ?> fields = (Map<?, ?>) after;
+            if (!fields.containsKey(ModelCodec.ITEM_ID) || !fields.containsKey(ModelCodec.NAME)) {
+                return itemId;
+            }
+            Item before = ModelCodec.decodeItem(itemId, tree.get(list + itemId));
+            if (before != null && ModelCodec.decodeItem(itemId, after).getVersion() != before.getVersion() + 1) {
+                return itemId;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void runTransaction(String path, Mutation mutation, Callback<Object> callback) {
+        Object value;
+        synchronized (this) {
+            try {
+                // Nobody can write in between, so the first attempt always commits
+                value = DataTree.copy(mutation.apply(DataTree.copy(tree.get(path))));
+                tree.set(path, value);
+            } catch (ItemConflictException e) {
+                callback.onComplete(null, e);
+                return;
+            }
+        }
+        callback.onComplete(value, null);
+    }
+
+    @Override
+    protected void loadValue(String path, Callback<Object> callback) {
+        Object value;
+        synchronized (this) {
+            value = DataTree.copy(tree.get(path));
+        }
+        callback.onComplete(value, null);
+    }
+
+    @Override
+    protected void loadItems(String node, Callback<List<Item>> callback) {
+        List<Item> items = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, Object> child : tree.children(node + "/" + groupId)) {
+                Item item = ModelCodec.decodeItem(child.getKey(), child.getValue());
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+        }
+        callback.onComplete(Collections.unmodifiableList(items), null);
+    }
+
+    @Override
+    public void loadRecord(String purchaseId, Callback<PurchasedRecord> callback) {
+        Object raw = getValue(GroupUpdate.PURCHASED_ITEMS + "/" + groupId + "/" + purchaseId);
+        callback.onComplete(ModelCodec.decodeRecord(purchaseId, raw), null);
+    }
+
+    @Override
+    protected void loadAisleCounts(Callback<Map<String, Map<String, Long>>> callback) {
+        Map<String, Map<String, Long>> counts;
+        synchronized (this) {
+            counts = ModelCodec.decodeAisleCounts(tree.get(GroupUpdate.AISLE_ORDER + "/" + groupId));
+        }
+        callback.onComplete(counts, null);
+    }
+
+    @Override
+    protected void loadRollups(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback) {
+        SpendingRollup rollup;
+        synchronized (this) {
+            rollup = ModelCodec.decodeSpending(period, tree.get(GroupUpdate.SPENDING + "/" + groupId + "/" + period));
+        }
+        callback.onComplete(rollup.between(fromBucket, toBucket), null);
+    }
+
+    @Override
+    protected void loadMemberIndex(Callback<Map<String, String>> callback) {
+        Map<String, String> members = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Object> child : tree.children(GroupUpdate.GROUPS + "/" + groupId + "/" + GroupUpdate.MEMBERS)) {
+                members.put(child.getKey(), String.valueOf(child.getValue()));
+            }
+        }
+        callback.onComplete(members, null);
+    }
+
+    @Override
+    protected void loadGroupUsers(Callback<Map<String, User>> callback) {
+        Map<String, User> users = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, Object> child : tree.children(GroupUpdate.USERS)) {
+                User user = ModelCodec.decodeUser(child.getValue());
+                if (user != null && groupId.equals(user.groupId)) {
+                    users.put(child.getKey(), user);
+                }
+            }
+        }
+        callback.onComplete(users, null);
+    }
+}
@@ -0,0 +1,210 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.Objects;
+
+/**
+ * POJO class.
+ * The setters remember which fields really changed, so a write can send only those
+ * fields instead of the whole item.
+ */
+public class Item {
+
+    // Fields that can be marked as changed
+    static final int NAME = 1;
+    static final int PURCHASED = 1 << 1;
+    static final int PRICE = 1 << 2;
+    static final int PURCHASED_BY = 1 << 3;
+    static final int SELECTED = 1 << 4;
+    static final int ADDED_BY = 1 << 5;
+    static final int GROUP_ID = 1 << 6;
+    static final int AMOUNT = 1 << 7;
+
+    public String itemId;
+    public String name;
+    public boolean purchased;
+    public double price;
+    public String purchasedBy;
+    private boolean isSelected;
+    private String addedBy;
+    private String groupId;
+    private int amount;
+    // Goes up with every write, so a write can check that nobody changed the item since it was read
+    private long version;
+    // Not a bean property, so the class mapper never stores it
+    private transient int changedFields;
+
+    public Item(){
+
+    }
+
+    public Item(String itemId, String name, double price, String purchasedBy, String addedBy, String groupId, int amount) {
+        this.itemId = itemId;
+        this.name = name;
+        this.purchased = false;
+        this.price = price;
+        this.purchasedBy = purchasedBy;
+        this.isSelected = false;
+        this.addedBy = addedBy;
+        this.groupId = groupId;
+        this.amount = amount;
+
+    }
+
+    /**
+     * Copy constructor, used so that an item shown by an adapter is never changed in place.
+     * The copy starts with no changed fields.
+     * @param other
+     */
+    public Item(Item other) {
+        this.itemId = other.itemId;
+        this.name = other.name;
+        this.purchased = other.purchased;
+        this.price = other.price;
+        this.purchasedBy = other.purchasedBy;
+        this.isSelected = other.isSelected;
+        this.addedBy = other.addedBy;
+        this.groupId = other.groupId;
+        this.amount = other.amount;
+        this.version = other.version;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        markChanged(NAME, !Objects.equals(this.name, name));
+        this.name = name;
+    }
+
+    public String getItemId() {
+        return this.itemId;
+    }
+    public void setItemId(String itemId) {
+        this.itemId = itemId;
+    }
+
+    public boolean isPurchased() {
+        return purchased;
+    }
+    public void setPurchased(boolean purchased) {
+        markChanged(PURCHASED, this.purchased != purchased);
+        this.purchased = purchased;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+    public void setPrice(double price) {
+        markChanged(PRICE, Double.compare(this.price, price) != 0);
+        this.price = price;
+    }
+
+    public String getPurchasedBy() {
+        return purchasedBy;
+    }
+    public void setPurchasedBy(String purchasedBy) {
+        markChanged(PURCHASED_BY, !Objects.equals(this.purchasedBy, purchasedBy));
+        this.purchasedBy = purchasedBy;
+    }
+
+    public boolean isSelected() {
+        return isSelected;
+    }
+    public void setSelected(boolean selected){
+        markChanged(SELECTED, isSelected != selected);
+        isSelected = selected;
+    }
+
+
+    public String getAddedBy() {
+        return addedBy;
+    }
+    public void setAddedBy(String addedBy) {
+        markChanged(ADDED_BY, !Objects.equals(this.addedBy, addedBy));
+        this.addedBy = addedBy;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+    public void setGroupId(String groupId) {
+        markChanged(GROUP_ID, !Objects.equals(this.groupId, groupId));
+        this.groupId = groupId;
+    }
+
+    public Integer getAmount(){
+        return amount;
+    }
+    public void setAmount(int amount){
+        markChanged(AMOUNT, this.amount != amount);
+        this.amount = amount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Check if any field was changed since the item was read or last written
+     * @return true if there is something to write
+     */
+    public boolean hasChanges() {
+        return changedFields != 0;
+    }
+
+    /**
+     * Get the fields changed since the item was read or last written
+     * @return bit set of the field constants
+     */
+    int changedFields() {
+        return changedFields;
+    }
+
+    /**
+     * Forget the changes, after the item was read or written
+     */
+    public void markClean() {
+        changedFields = 0;
+    }
+
+    private void markChanged(int field, boolean changed) {
+        if (changed) {
+            changedFields |= field;
+        }
+    }
+
+    /**
+     * Two items are equal when every field is the same
+     * @param o
+     * @return true if the content is the same
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Item)) {
+            return false;
+        }
+        Item other = (Item) o;
+        return purchased == other.purchased
+                && Double.compare(price, other.price) == 0
+                && isSelected == other.isSelected
+                && amount == other.amount
+                && version == other.version
+                && Objects.equals(itemId, other.itemId)
+                && Objects.equals(name, other.name)
+                && Objects.equals(purchasedBy, other.purchasedBy)
+                && Objects.equals(addedBy, other.addedBy)
+                && Objects.equals(groupId, other.groupId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(itemId, name, purchased, price, purchasedBy, isSelected, addedBy, groupId, amount, version);
+    }
+}
@@ -0,0 +1,31 @@
+package edu.uga.cs.roomieslist;
+
+/**
+ * A compare-and-set of an item was refused because someone else changed or removed the item
+ * after it was read. The local change is rolled back and the item shows what is stored now.
+ */
+public class ItemConflictException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    // Variables
+    // Item is not Serializable, the item is only passed to the callback
+    private final transient Item current;
+
+    /**
+     * Constructor
+     * @param current the item as it is stored now, null if it was removed
+     */
+    public ItemConflictException(Item current) {
+        super(current == null ? "The item was removed" : "The item was changed by someone else");
+        this.current = current;
+    }
+
+    /**
+     * Get the item as it is stored now
+     * @return the item, null if it was removed
+     */
+    public Item getCurrent() {
+        return current;
+    }
+}
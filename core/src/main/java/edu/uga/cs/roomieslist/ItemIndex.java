@@ -0,0 +1,25 @@
+package edu.uga.cs.roomieslist;
+
+/**
+ * An index over the items of a list that is kept up to date one item at a time,
+ * from the same changes that are applied to the list
+ */
+public interface ItemIndex {
+
+    /**
+     * Add an item, or update it if it is already indexed
+     * @param item
+     */
+    void put(Item item);
+
+    /**
+     * Remove an item
+     * @param itemId
+     */
+    void remove(String itemId);
+
+    /**
+     * Remove every item
+     */
+    void clear();
+}
@@ -0,0 +1,220 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the items of a list by their normalized name ({@link NameNormalizer}), so an item
+ * that is already on the list is not added a second time.
+ * Same names are found in a hash map. Close names, like "banana" for "bananna", are found in a
+ * BK-tree, which only visits the names whose edit distance can be within the limit.
+ */
+public class ItemNameIndex implements ItemIndex {
+
+    // Variables
+    private final Map<String, String> nameById = new HashMap<>();
+    private final Map<String, Set<String>> idsByName = new HashMap<>();
+    private BkNode root;
+    // Names still in the tree that no item has anymore
+    private int deadNames;
+
+    @Override
+    public void put(Item item) {
+        String itemId = item.getItemId();
+        if (itemId == null) {
+            return;
+        }
+        String name = NameNormalizer.normalize(item.getName());
+        String old = nameById.put(itemId, name);
+        if (name.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            removeName(itemId, old);
+        }
+        Set<String> ids = idsByName.get(name);
+        if (ids == null) {
+            ids = new LinkedHashSet<>();
+            idsByName.put(name, ids);
+            addToTree(name);
+        }
+        ids.add(itemId);
+    }
+
+    @Override
+    public void remove(String itemId) {
+        String old = nameById.remove(itemId);
+        if (old != null) {
+            removeName(itemId, old);
+        }
+    }
+
+    @Override
+    public void clear() {
+        nameById.clear();
+        idsByName.clear();
+        root = null;
+        deadNames = 0;
+    }
+
+    /**
+     * Find an item with the same normalized name
+     * @param name name as typed
+     * @return the id of the first such item, null if there is none
+     */
+    public String findSame(String name) {
+        Set<String> ids = idsByName.get(NameNormalizer.normalize(name));
+        return ids == null || ids.isEmpty() ? null : ids.iterator().next();
+    }
+
+    /**
+     * Find items whose normalized name is a few edits away from the given name,
+     * not counting items with the same name
+     * @param name name as typed
+     * @param limit most items returned
+     * @return ids of the items, closest first
+     */
+    public List<String> findSimilar(String name, int limit) {
+        String normalized = NameNormalizer.normalize(name);
+        int maxDistance = maxDistance(normalized);
+        if (root == null || maxDistance == 0) {
+            return Collections.emptyList();
+        }
+        List<Match> matches = new ArrayList<>();
+        List<BkNode> toVisit = new ArrayList<>();
+        toVisit.add(root);
+        while (!toVisit.isEmpty()) {
+            BkNode node = toVisit.remove(toVisit.size() - 1);
+            int distance = distance(normalized, node.name);
+            Set<String> ids = idsByName.get(node.name);
+            if (distance > 0 && distance <= maxDistance && ids != null) {
+                matches.add(new Match(node.name, distance));
+            }
+            // Only children at distance - max .. distance + max can hold a match
+            for (Map.Entry<Integer, BkNode> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    toVisit.add(child.getValue());
+                }
+            }
+        }
+        Collections.sort(matches, (a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : a.name.compareTo(b.name));
+        List<String> similar = new ArrayList<>();
+        for (Match match : matches) {
+            for (String itemId : idsByName.get(match.name)) {
+                if (similar.size() == limit) {
+                    return similar;
+                }
+                similar.add(itemId);
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Get how many edits still count as a typo, short names need to match more closely
+     * @param normalized
+     * @return the largest edit distance
+     */
+    static int maxDistance(String normalized) {
+        if (normalized.length() <= 3) {
+            return 0;
+        }
+        return normalized.length() <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance of two strings
+     * @param a
+     * @param b
+     * @return the number of inserted, removed or replaced characters that turn a into b
+     */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private void removeName(String itemId, String name) {
+        Set<String> ids = idsByName.get(name);
+        if (ids == null) {
+            return;
+        }
+        ids.remove(itemId);
+        if (ids.isEmpty()) {
+            // A BK-tree can not remove a node, the name stays until the tree is rebuilt
+            idsByName.remove(name);
+            deadNames++;
+            if (deadNames > idsByName.size()) {
+                rebuildTree();
+            }
+        }
+    }
+
+    private void rebuildTree() {
+        root = null;
+        deadNames = 0;
+        for (String name : idsByName.keySet()) {
+            addToTree(name);
+        }
+    }
+
+    private void addToTree(String name) {
+        if (root == null) {
+            root = new BkNode(name);
+            return;
+        }
+        BkNode node = root;
+        while (true) {
+            int distance = distance(name, node.name);
+            if (distance == 0) {
+                // The name is back after its items were removed
+                deadNames--;
+                return;
+            }
+            BkNode child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new BkNode(name));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    private static final class BkNode {
+        private final String name;
+        private final Map<Integer, BkNode> children = new HashMap<>();
+
+        BkNode(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Match {
+        private final String name;
+        private final int distance;
+
+        Match(String name, int distance) {
+            this.name = name;
+            this.distance = distance;
+        }
+    }
+}
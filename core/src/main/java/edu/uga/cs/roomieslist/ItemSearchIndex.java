@@ -0,0 +1,218 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prefix trie over the words of the items of a list, so a search finds the matching items
+ * by walking down one branch per typed word instead of going through every item name.
+ * The words of an item are the words of its name, of who added it, and "purchased" or
+ * "unpurchased". An item matches when every word of the query starts one of its words,
+ * so "pap tow" finds "Paper Towels".
+ * Kept up to date one item at a time with {@link #put(Item)} and {@link #remove(String)}.
+ */
+public class ItemSearchIndex implements ItemIndex {
+
+    // Words for the purchase state
+    public static final String PURCHASED = "purchased";
+    public static final String UNPURCHASED = "unpurchased";
+
+    // Variables
+    private final Node root = new Node();
+    private final Map<String, List<String>> wordsById = new HashMap<>();
+
+    /**
+     * Add an item, or update it if it is already indexed
+     * @param item
+     */
+    @Override
+    public void put(Item item) {
+        String itemId = item.getItemId();
+        if (itemId == null) {
+            return;
+        }
+        List<String> words = wordsOf(item);
+        List<String> old = wordsById.put(itemId, words);
+        if (words.equals(old)) {
+            return;
+        }
+        if (old != null) {
+            for (String word : old) {
+                removeWord(itemId, word);
+            }
+        }
+        for (String word : words) {
+            addWord(itemId, word);
+        }
+    }
+
+    /**
+     * Remove an item
+     * @param itemId
+     */
+    @Override
+    public void remove(String itemId) {
+        List<String> old = wordsById.remove(itemId);
+        if (old != null) {
+            for (String word : old) {
+                removeWord(itemId, word);
+            }
+        }
+    }
+
+    /**
+     * Remove every item
+     */
+    @Override
+    public void clear() {
+        root.children.clear();
+        root.counts.clear();
+        wordsById.clear();
+    }
+
+    /**
+     * @return number of indexed items
+     */
+    public int size() {
+        return wordsById.size();
+    }
+
+    /**
+     * Find the items matching a query
+     * @param query words typed by the user, case does not matter
+     * @return ids of the matching items, null if the query has no words and everything matches
+     */
+    public Set<String> search(String query) {
+        List<String> terms = split(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        // Start from the word with the fewest items, the others only remove from it
+        List<Map<String, Integer>> matches = new ArrayList<>(terms.size());
+        Map<String, Integer> smallest = null;
+        for (String term : terms) {
+            Node node = find(term);
+            if (node == null) {
+                return Collections.emptySet();
+            }
+            matches.add(node.counts);
+            if (smallest == null || node.counts.size() < smallest.size()) {
+                smallest = node.counts;
+            }
+        }
+        Set<String> result = new HashSet<>(smallest.keySet());
+        for (Map<String, Integer> match : matches) {
+            if (match != smallest) {
+                result.retainAll(match.keySet());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the items of a list that match a query, in store order. Only the matches are looked up
+     * in the list, the other items are not gone through.
+     * @param list the same items as this index
+     * @param query
+     * @return the matching items, every item if the query has no words
+     */
+    public List<Item> filter(AisleOrderedList list, String query) {
+        Set<String> ids = search(query);
+        return ids == null ? list.getItems() : list.getItems(ids);
+    }
+
+    /**
+     * Get the words an item is found by
+     * @param item
+     * @return the words, lower case
+     */
+    static List<String> wordsOf(Item item) {
+        List<String> words = split(item.getName());
+        words.addAll(split(item.getAddedBy()));
+        words.add(item.isPurchased() ? PURCHASED : UNPURCHASED);
+        return words;
+    }
+
+    /**
+     * Split text into lower case words of letters and digits
+     * @param text
+     * @return the words, empty for null text
+     */
+    static List<String> split(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean partOfWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (partOfWord && start < 0) {
+                start = i;
+            } else if (!partOfWord && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    private void addWord(String itemId, String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            Node child = node.children.get(word.charAt(i));
+            if (child == null) {
+                child = new Node();
+                node.children.put(word.charAt(i), child);
+            }
+            node = child;
+            // An item can pass a node more than once, for example "pa" in "paper pack"
+            Integer count = node.counts.get(itemId);
+            node.counts.put(itemId, count == null ? 1 : count + 1);
+        }
+    }
+
+    private void removeWord(String itemId, String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            Node child = node.children.get(word.charAt(i));
+            if (child == null) {
+                return;
+            }
+            Integer count = child.counts.get(itemId);
+            if (count == null || count <= 1) {
+                child.counts.remove(itemId);
+            } else {
+                child.counts.put(itemId, count - 1);
+            }
+            if (child.counts.isEmpty()) {
+                // Nobody else goes this way, drop the whole branch
+                node.children.remove(word.charAt(i));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * One letter of the trie, with the items whose words go through it
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+    }
+}
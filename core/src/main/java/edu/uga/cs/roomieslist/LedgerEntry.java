@@ -0,0 +1,32 @@
+package edu.uga.cs.roomieslist;
+
+/**
+ * POJO class
+ * Running total of what one roommate spent since the costs were last settled.
+ */
+public class LedgerEntry {
+    private String name;
+    private long spentCents;
+
+    public LedgerEntry() {}
+
+    public LedgerEntry(String name, long spentCents) {
+        this.name = name;
+        this.spentCents = spentCents;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getSpentCents() {
+        return spentCents;
+    }
+    public void setSpentCents(long spentCents) {
+        this.spentCents = spentCents;
+    }
+}
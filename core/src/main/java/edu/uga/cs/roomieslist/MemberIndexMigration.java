@@ -0,0 +1,57 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings one group's member index, Groups/[groupId]/members/[userId], up to date with the
+ * users that name the group in Users/[userId]. Users saved before the index existed, or by
+ * an older version of the app, are only found that way.
+ * Only the group's own users are read, with a query on their groupId, never the whole Users node.
+ * It is done once per group and then marked done under Migrations/[groupId], after that only the
+ * index is read. Running it again writes the same values, so it can be repeated safely.
+ */
+public final class MemberIndexMigration {
+
+    // Flag under Migrations/[groupId]
+    public static final String STEP = "members";
+
+    private MemberIndexMigration() {}
+
+    /**
+     * Find the users of the group that are missing from its member index
+     * @param groupId
+     * @param members the member index, user id to name
+     * @param users the users whose groupId is the group, user id to user
+     * @return the update that adds them to the index, empty if nothing is missing
+     */
+    public static GroupUpdate plan(String groupId, Map<String, String> members, Map<String, User> users) {
+        GroupUpdate update = new GroupUpdate(groupId);
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            User user = entry.getValue();
+            if (user == null || !groupId.equals(user.groupId) || members.containsKey(entry.getKey())) {
+                continue;
+            }
+            update.addToMemberIndex(entry.getKey(), user.name);
+        }
+        return update;
+    }
+
+    /**
+     * Get the names of every member, from the index and from the users missing from it
+     * @param members the member index, user id to name
+     * @param users the users whose groupId is the group, user id to user
+     * @return one name per user
+     */
+    public static List<String> names(Map<String, String> members, Map<String, User> users) {
+        Map<String, String> all = new HashMap<>(members);
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            if (entry.getValue() != null && !all.containsKey(entry.getKey())) {
+                all.put(entry.getKey(), entry.getValue().name != null ? entry.getValue().name : "");
+            }
+        }
+        return new ArrayList<>(all.values());
+    }
+}
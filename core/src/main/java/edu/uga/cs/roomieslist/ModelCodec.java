@@ -0,0 +1,407 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written conversion between the model classes and the plain maps and lists that
+ * the database stores. This replaces the reflection based class mapper, which is slow
+ * for records that contain a whole list of items.
+ * The field names are the same ones the class mapper used, so old and new data mix freely.
+ */
+public final class ModelCodec {
+
+    // Item fields
+    public static final String ITEM_ID = "itemId";
+    public static final String NAME = "name";
+    public static final String PURCHASED = "purchased";
+    public static final String PRICE = "price";
+    public static final String PURCHASED_BY = "purchasedBy";
+    public static final String SELECTED = "selected";
+    public static final String ADDED_BY = "addedBy";
+    public static final String GROUP_ID = "groupId";
+    public static final String AMOUNT = "amount";
+    public static final String VERSION = "version";
+
+    // PurchasedRecord fields
+    public static final String ITEMS = "items";
+    public static final String TOTAL_PRICE = "totalPrice";
+    public static final String TIMESTAMP = "timestamp";
+    public static final String ROLLED_UP = "rolledUp";
+    public static final String IN_PRICE_HISTORY = "inPriceHistory";
+
+    // PurchaseSummary fields
+    public static final String ITEM_COUNT = "itemCount";
+    public static final String ITEM_NAMES = "itemNames";
+
+    // LedgerEntry fields
+    public static final String SPENT_CENTS = "spentCents";
+
+    // PriceHistoryEntry fields
+    public static final String COUNT = "count";
+    public static final String LAST_CENTS = "lastCents";
+    public static final String PRICED_COUNT = "pricedCount";
+    public static final String TOTAL_CENTS = "totalCents";
+
+    // User fields
+    public static final String EMAIL = "email";
+
+    private ModelCodec() {}
+
+    /**
+     * Build an item from the raw value of its node
+     * @param key key of the node, used as id when the stored id is missing
+     * @param raw value returned by the database
+     * @return the item or null if the value is not an item
+     */
+    public static Item decodeItem(String key, Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        Item item = new Item();
+        String itemId = asString(map.get(ITEM_ID));
+        item.setItemId(itemId != null ? itemId : key);
+        item.setName(asString(map.get(NAME)));
+        item.setPurchased(asBoolean(map.get(PURCHASED)));
+        item.setPrice(asDouble(map.get(PRICE)));
+        item.setPurchasedBy(asString(map.get(PURCHASED_BY)));
+        item.setSelected(asBoolean(map.get(SELECTED)));
+        item.setAddedBy(asString(map.get(ADDED_BY)));
+        item.setGroupId(asString(map.get(GROUP_ID)));
+        item.setAmount((int) asLong(map.get(AMOUNT)));
+        item.setVersion(asLong(map.get(VERSION)));
+        item.markClean();
+        return item;
+    }
+
+    /**
+     * Turn an item into the map that is stored in the database
+     * @param item
+     * @return map of the item's fields, null fields are left out
+     */
+    public static Map<String, Object> encodeItem(Item item) {
+        Map<String, Object> map = new HashMap<>();
+        putIfNotNull(map, ITEM_ID, item.getItemId());
+        putIfNotNull(map, NAME, item.getName());
+        map.put(PURCHASED, item.isPurchased());
+        map.put(PRICE, item.getPrice());
+        putIfNotNull(map, PURCHASED_BY, item.getPurchasedBy());
+        map.put(SELECTED, item.isSelected());
+        putIfNotNull(map, ADDED_BY, item.getAddedBy());
+        putIfNotNull(map, GROUP_ID, item.getGroupId());
+        map.put(AMOUNT, item.getAmount());
+        map.put(VERSION, item.getVersion());
+        return map;
+    }
+
+    /**
+     * Turn the changed fields of an item into child updates of its node
+     * @param item
+     * @return field name to new value, null deletes a field that was cleared
+     */
+    public static Map<String, Object> encodeChanges(Item item) {
+        Map<String, Object> map = new HashMap<>();
+        int changed = item.changedFields();
+        if ((changed & Item.NAME) != 0) {
+            map.put(NAME, item.getName());
+        }
+        if ((changed & Item.PURCHASED) != 0) {
+            map.put(PURCHASED, item.isPurchased());
+        }
+        if ((changed & Item.PRICE) != 0) {
+            map.put(PRICE, item.getPrice());
+        }
+        if ((changed & Item.PURCHASED_BY) != 0) {
+            map.put(PURCHASED_BY, item.getPurchasedBy());
+        }
+        if ((changed & Item.SELECTED) != 0) {
+            map.put(SELECTED, item.isSelected());
+        }
+        if ((changed & Item.ADDED_BY) != 0) {
+            map.put(ADDED_BY, item.getAddedBy());
+        }
+        if ((changed & Item.GROUP_ID) != 0) {
+            map.put(GROUP_ID, item.getGroupId());
+        }
+        if ((changed & Item.AMOUNT) != 0) {
+            map.put(AMOUNT, item.getAmount());
+        }
+        return map;
+    }
+
+    /**
+     * Build a purchased record from the raw value of its node
+     * @param key key of the node, becomes the record id
+     * @param raw value returned by the database
+     * @return the record or null if the value is not a record
+     */
+    public static PurchasedRecord decodeRecord(String key, Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        PurchasedRecord record = new PurchasedRecord();
+        record.setId(key);
+        record.setPurchasedBy(asString(map.get(PURCHASED_BY)));
+        record.setItems(decodeItems(map.get(ITEMS)));
+        record.setTotalPrice(asDouble(map.get(TOTAL_PRICE)));
+        record.setTimestamp(asLong(map.get(TIMESTAMP)));
+        record.setRolledUp(Boolean.TRUE.equals(map.get(ROLLED_UP)));
+        record.setInPriceHistory(Boolean.TRUE.equals(map.get(IN_PRICE_HISTORY)));
+        return record;
+    }
+
+    /**
+     * Turn a purchased record into the map that is stored in the database.
+     * The id is not stored, it is the key of the node.
+     * @param record
+     * @return map of the record's fields
+     */
+    public static Map<String, Object> encodeRecord(PurchasedRecord record) {
+        Map<String, Object> map = new HashMap<>();
+        putIfNotNull(map, PURCHASED_BY, record.getPurchasedBy());
+        List<Object> items = new ArrayList<>();
+        if (record.getItems() != null) {
+            for (Item item : record.getItems()) {
+                items.add(encodeItem(item));
+            }
+        }
+        map.put(ITEMS, items);
+        map.put(TOTAL_PRICE, record.getTotalPrice());
+        map.put(TIMESTAMP, record.getTimestamp());
+        if (record.isRolledUp()) {
+            map.put(ROLLED_UP, true);
+        }
+        if (record.isInPriceHistory()) {
+            map.put(IN_PRICE_HISTORY, true);
+        }
+        return map;
+    }
+
+    /**
+     * Build a purchase summary from the raw value of its node
+     * @param key key of the node, the same as the key of the record
+     * @param raw value returned by the database
+     * @return the summary or null if the value is not a summary
+     */
+    public static PurchaseSummary decodeSummary(String key, Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        return new PurchaseSummary(key, asString(map.get(PURCHASED_BY)), asDouble(map.get(TOTAL_PRICE)),
+                asLong(map.get(TIMESTAMP)), (int) asLong(map.get(ITEM_COUNT)), asString(map.get(ITEM_NAMES)));
+    }
+
+    /**
+     * Turn a purchase summary into the map that is stored in the database
+     * @param summary
+     * @return map of the summary's fields
+     */
+    public static Map<String, Object> encodeSummary(PurchaseSummary summary) {
+        Map<String, Object> map = new HashMap<>();
+        putIfNotNull(map, PURCHASED_BY, summary.getPurchasedBy());
+        map.put(TOTAL_PRICE, summary.getTotalPrice());
+        map.put(TIMESTAMP, summary.getTimestamp());
+        map.put(ITEM_COUNT, summary.getItemCount());
+        putIfNotNull(map, ITEM_NAMES, summary.getItemNames());
+        return map;
+    }
+
+    /**
+     * Build a ledger entry from the raw value of its node
+     * @param key key of the node, the encoded name used when the stored name is missing
+     * @param raw value returned by the database
+     * @return the entry or null if the value is not an entry
+     */
+    public static LedgerEntry decodeLedgerEntry(String key, Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        String name = asString(map.get(NAME));
+        return new LedgerEntry(name != null ? name : FirebaseKeys.decode(key), asLong(map.get(SPENT_CENTS)));
+    }
+
+    /**
+     * Build the entries of a ledger from the raw value of its node
+     * @param raw value returned by the database
+     * @return the entries, children that are not entries are skipped
+     */
+    public static List<LedgerEntry> decodeLedger(Object raw) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) raw).entrySet()) {
+                LedgerEntry entry = decodeLedgerEntry(String.valueOf(child.getKey()), child.getValue());
+                if (entry != null) {
+                    entries.add(entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Turn a ledger entry into the map that is stored in the database
+     * @param entry
+     * @return map of the entry's fields
+     */
+    public static Map<String, Object> encodeLedgerEntry(LedgerEntry entry) {
+        Map<String, Object> map = new HashMap<>();
+        putIfNotNull(map, NAME, entry.getName());
+        map.put(SPENT_CENTS, entry.getSpentCents());
+        return map;
+    }
+
+    /**
+     * Build a price history entry from the raw value of its node
+     * @param key key of the node, the encoded normalized name used when the stored name is missing
+     * @param raw value returned by the database
+     * @return the entry or null if the value is not an entry
+     */
+    public static PriceHistoryEntry decodePriceHistoryEntry(String key, Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        String name = asString(map.get(NAME));
+        return new PriceHistoryEntry(name != null ? name : FirebaseKeys.decode(key), asLong(map.get(COUNT)),
+                asLong(map.get(TIMESTAMP)), asLong(map.get(LAST_CENTS)), asLong(map.get(PRICED_COUNT)),
+                asLong(map.get(TOTAL_CENTS)));
+    }
+
+    /**
+     * Build the check-off counts of the aisle order from the raw value of the group's node,
+     * stored as [first name]/[second name]: count with encoded names
+     * @param raw
+     * @return first name to the names it came before, with how many times
+     */
+    public static Map<String, Map<String, Long>> decodeAisleCounts(Object raw) {
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        if (!(raw instanceof Map)) {
+            return counts;
+        }
+        for (Map.Entry<?, ?> first : ((Map<?, ?>) raw).entrySet()) {
+            if (!(first.getValue() instanceof Map)) {
+                continue;
+            }
+            Map<String, Long> seconds = new HashMap<>();
+            for (Map.Entry<?, ?> second : ((Map<?, ?>) first.getValue()).entrySet()) {
+                seconds.put(FirebaseKeys.decode(String.valueOf(second.getKey())), asLong(second.getValue()));
+            }
+            counts.put(FirebaseKeys.decode(String.valueOf(first.getKey())), seconds);
+        }
+        return counts;
+    }
+
+    /**
+     * Build the spending rollup of one period from the raw value of the group's node
+     * @param period {@link SpendingRollup#WEEK} or {@link SpendingRollup#MONTH}
+     * @param raw bucket key to the bucket
+     * @return the rollup, empty if there is none
+     */
+    public static SpendingRollup decodeSpending(String period, Object raw) {
+        SpendingRollup rollup = new SpendingRollup(period);
+        if (!(raw instanceof Map)) {
+            return rollup;
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+            if (!(entry.getValue() instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> bucket = (Map<?, ?>) entry.getValue();
+            rollup.addBucket(String.valueOf(entry.getKey()), asLong(bucket.get(SpendingRollup.TOTAL_CENTS)),
+                    decodeCents(bucket.get(SpendingRollup.ROOMMATES)), decodeCents(bucket.get(SpendingRollup.ITEMS)));
+        }
+        return rollup;
+    }
+
+    private static Map<String, Long> decodeCents(Object raw) {
+        Map<String, Long> cents = new HashMap<>();
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                cents.put(FirebaseKeys.decode(String.valueOf(entry.getKey())), asLong(entry.getValue()));
+            }
+        }
+        return cents;
+    }
+
+    /**
+     * Build a user from the raw value of its node
+     * @param raw
+     * @return the user or null if the value is not a user
+     */
+    public static User decodeUser(Object raw) {
+        if (!(raw instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> map = (Map<?, ?>) raw;
+        return new User(asString(map.get(NAME)), asString(map.get(EMAIL)), asString(map.get(GROUP_ID)));
+    }
+
+    /**
+     * Turn a user into the map that is stored in the database
+     * @param user
+     * @return map of the user's fields
+     */
+    public static Map<String, Object> encodeUser(User user) {
+        Map<String, Object> map = new HashMap<>();
+        putIfNotNull(map, NAME, user.name);
+        putIfNotNull(map, EMAIL, user.email);
+        putIfNotNull(map, GROUP_ID, user.groupId);
+        return map;
+    }
+
+    /**
+     * Decode the items of a record. Firebase returns arrays as lists, but as maps
+     * when some indexes are missing, so both are accepted.
+     * @param raw
+     * @return unmodifiable list of the items
+     */
+    private static List<Item> decodeItems(Object raw) {
+        List<Item> items = new ArrayList<>();
+        if (raw instanceof List) {
+            List<?> list = (List<?>) raw;
+            for (int i = 0; i < list.size(); i++) {
+                addIfNotNull(items, decodeItem(String.valueOf(i), list.get(i)));
+            }
+        } else if (raw instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+                addIfNotNull(items, decodeItem(String.valueOf(entry.getKey()), entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableList(items);
+    }
+
+    private static void addIfNotNull(List<Item> items, Item item) {
+        if (item != null) {
+            items.add(item);
+        }
+    }
+
+    private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
+        if (value != null) {
+            map.put(key, value);
+        }
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static boolean asBoolean(Object value) {
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,41 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.Locale;
+
+/**
+ * Conversion between prices in dollars and whole cents.
+ * Totals are kept in cents so that adding many prices does not drift like doubles do.
+ */
+public final class Money {
+
+    private Money() {}
+
+    /**
+     * Convert a price in dollars to cents, rounded to the nearest cent
+     * @param dollars
+     * @return cents
+     */
+    public static long toCents(double dollars) {
+        return Math.round(dollars * 100);
+    }
+
+    /**
+     * Convert cents to dollars
+     * @param cents
+     * @return dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Format cents as a dollar amount, for example -$3.05
+     * @param cents
+     * @return formatted amount
+     */
+    public static String format(long cents) {
+        String sign = cents < 0 ? "-" : "";
+        long abs = Math.abs(cents);
+        return String.format(Locale.US, "%s$%d.%02d", sign, abs / 100, abs % 100);
+    }
+}
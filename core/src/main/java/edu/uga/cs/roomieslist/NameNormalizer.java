@@ -0,0 +1,93 @@
+package edu.uga.cs.roomieslist;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Turns an item name into the form used to find duplicates, so "Milk", " milk " and
+ * "Paper towels" / "paper Towel" are seen as the same item.
+ * Case and accents are dropped, anything that is not a letter or digit separates words,
+ * and every word is made singular with the common English rules.
+ */
+public final class NameNormalizer {
+
+    // Plurals the rules below get wrong
+    private static final Map<String, String> IRREGULAR = new HashMap<>();
+    static {
+        IRREGULAR.put("potatoes", "potato");
+        IRREGULAR.put("tomatoes", "tomato");
+        IRREGULAR.put("mangoes", "mango");
+        IRREGULAR.put("cookies", "cookie");
+        IRREGULAR.put("knives", "knife");
+        IRREGULAR.put("leaves", "leaf");
+        IRREGULAR.put("loaves", "loaf");
+        IRREGULAR.put("halves", "half");
+        IRREGULAR.put("shoes", "shoe");
+        IRREGULAR.put("mice", "mouse");
+        IRREGULAR.put("teeth", "tooth");
+        IRREGULAR.put("geese", "goose");
+    }
+
+    private NameNormalizer() {}
+
+    /**
+     * Normalize an item name
+     * @param name
+     * @return the words of the name, singular and lower case, separated by one space;
+     *         empty for a name without letters or digits
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        // Split accented letters and drop the accents, so an accented e is found as a plain e
+        String folded = Normalizer.normalize(name, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(folded.length());
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                normalized.append(singular(word.toString()));
+                word.setLength(0);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Make one lower case word singular
+     * @param word
+     * @return the singular
+     */
+    static String singular(String word) {
+        String irregular = IRREGULAR.get(word);
+        if (irregular != null) {
+            return irregular;
+        }
+        int length = word.length();
+        if (length <= 3 || !word.endsWith("s") || word.endsWith("ss") || word.endsWith("us") || word.endsWith("is")) {
+            // "gas", "glass", "hummus" and "tennis" stay as they are
+            return word;
+        }
+        if (word.endsWith("ies") && length > 4) {
+            // berries
+            return word.substring(0, length - 3) + "y";
+        }
+        if (word.endsWith("sses") || word.endsWith("xes") || word.endsWith("zes")
+                || word.endsWith("ches") || word.endsWith("shes")) {
+            // glasses, boxes, peaches, dishes
+            return word.substring(0, length - 2);
+        }
+        return word.substring(0, length - 1);
+    }
+}
@@ -0,0 +1,87 @@
+package edu.uga.cs.roomieslist;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how many bytes a multi-path update puts on the wire and keeps the totals
+ * per operation in {@link PerfMetrics}, as payload.[operation].bytes and payload.[operation].writes.
+ * The size is the length of the update written as JSON, which is close to what the SDK sends.
+ */
+public final class PayloadSize {
+
+    private static final String PREFIX = "payload.";
+
+    private PayloadSize() {}
+
+    /**
+     * Count the bytes of one write of an operation
+     * @param operation for example updateItem
+     * @param paths the paths of the write
+     * @return the size of the write in bytes
+     */
+    public static long record(String operation, Map<String, Object> paths) {
+        long bytes = of(paths);
+        PerfMetrics.add(PREFIX + operation + ".bytes", bytes);
+        PerfMetrics.increment(PREFIX + operation + ".writes");
+        return bytes;
+    }
+
+    /**
+     * Get the average size of the writes of an operation
+     * @param operation
+     * @return bytes per write, 0 if the operation was never recorded
+     */
+    public static double averageBytes(String operation) {
+        long writes = PerfMetrics.get(PREFIX + operation + ".writes");
+        return writes > 0 ? (double) PerfMetrics.get(PREFIX + operation + ".bytes") / writes : 0.0;
+    }
+
+    /**
+     * Get the size of an update written as JSON. The update is sent to the common parent
+     * of its paths, with every path relative to it.
+     * @param paths path to value
+     * @return size in bytes
+     */
+    public static long of(Map<String, Object> paths) {
+        String location = DataTree.commonParent(paths.keySet());
+        long size = sizeOf(location);
+        for (Map.Entry<String, Object> path : paths.entrySet()) {
+            size += sizeOf(DataTree.relativePath(location, path.getKey())) + sizeOf(path.getValue()) + 2;
+        }
+        // Braces of the map, without the comma after the last entry
+        return size + 2 - (paths.isEmpty() ? 0 : 1);
+    }
+
+    private static long sizeOf(Object value) {
+        if (value == null) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8).length + 2;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            // Braces, and a colon and a comma for every entry
+            long size = 2 + Math.max(0, 2 * map.size() - 1);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += sizeOf(String.valueOf(entry.getKey())) + sizeOf(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long size = 2 + Math.max(0, list.size() - 1);
+            for (Object element : list) {
+                size += sizeOf(element);
+            }
+            return size;
+        }
+        if (value instanceof GroupUpdate.Increment) {
+            // Sent as {".sv":{"increment":delta}}
+            return 22 + String.valueOf(((GroupUpdate.Increment) value).getDelta()).length();
+        }
+        return String.valueOf(value).length();
+    }
+}
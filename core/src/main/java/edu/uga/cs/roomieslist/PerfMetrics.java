@@ -0,0 +1,143 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide counters and timers for the performance work.
+ * Counters can also go down, so they are used as gauges too (for example live listeners).
+ */
+public final class PerfMetrics {
+
+    // Variables
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private PerfMetrics() {}
+
+    /**
+     * Add one to a counter
+     * @param name
+     * @return the new value
+     */
+    public static long increment(String name) {
+        return add(name, 1);
+    }
+
+    /**
+     * Add a delta to a counter, the delta can be negative
+     * @param name
+     * @param delta
+     * @return the new value
+     */
+    public static long add(String name, long delta) {
+        return counter(name).addAndGet(delta);
+    }
+
+    /**
+     * Get the current value of a counter
+     * @param name
+     * @return value or 0 if the counter was never used
+     */
+    public static long get(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0;
+    }
+
+    /**
+     * Record one measurement of a timer
+     * @param name
+     * @param millis
+     */
+    public static void recordTime(String name, long millis) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timers.putIfAbsent(name, new Timer());
+            timer = timers.get(name);
+        }
+        timer.record(millis);
+    }
+
+    /**
+     * Get a timer
+     * @param name
+     * @return the timer or null if nothing was recorded
+     */
+    public static Timer getTimer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * Clear every counter and timer
+     */
+    public static void reset() {
+        counters.clear();
+        timers.clear();
+    }
+
+    /**
+     * Build a readable dump of all the metrics, sorted by name
+     * @return one metric per line
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            builder.append(entry.getKey()).append(" = ").append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Timer> entry : new TreeMap<>(timers).entrySet()) {
+            builder.append(entry.getKey()).append(" = ").append(entry.getValue()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            counter = counters.get(name);
+        }
+        return counter;
+    }
+
+    /**
+     * Count, total, min and max of a timed operation in milliseconds
+     */
+    public static final class Timer {
+        private long count;
+        private long totalMillis;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis;
+
+        synchronized void record(long millis) {
+            count++;
+            totalMillis += millis;
+            minMillis = Math.min(minMillis, millis);
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getMinMillis() {
+            return count > 0 ? minMillis : 0;
+        }
+
+        public synchronized long getMaxMillis() {
+            return maxMillis;
+        }
+
+        public synchronized double getAverageMillis() {
+            return count > 0 ? (double) totalMillis / count : 0.0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US, "count=%d avg=%.1fms min=%dms max=%dms",
+                    count, getAverageMillis(), getMinMillis(), maxMillis);
+        }
+    }
+}
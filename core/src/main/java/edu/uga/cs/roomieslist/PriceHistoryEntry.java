@@ -0,0 +1,73 @@
+package edu.uga.cs.roomieslist;
+
+/**
+ * POJO class
+ * What the group knows about one item name: how often it was bought, when it was last bought,
+ * the last price paid and the sum of every price paid. Kept by every checkout and edit under
+ * PriceHistory/[groupId]/[normalized name].
+ */
+public class PriceHistoryEntry {
+    private String name;
+    private long count;
+    private long timestamp;
+    private long lastCents;
+    private long pricedCount;
+    private long totalCents;
+
+    public PriceHistoryEntry() {}
+
+    public PriceHistoryEntry(String name, long count, long timestamp, long lastCents, long pricedCount, long totalCents) {
+        this.name = name;
+        this.count = count;
+        this.timestamp = timestamp;
+        this.lastCents = lastCents;
+        this.pricedCount = pricedCount;
+        this.totalCents = totalCents;
+    }
+
+    // Getters and Setters
+    public String getName() {
+        return name;
+    }
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public long getLastCents() {
+        return lastCents;
+    }
+    public void setLastCents(long lastCents) {
+        this.lastCents = lastCents;
+    }
+
+    /**
+     * @return number of purchases that had a price
+     */
+    public long getPricedCount() {
+        return pricedCount;
+    }
+    public void setPricedCount(long pricedCount) {
+        this.pricedCount = pricedCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
+    }
+}
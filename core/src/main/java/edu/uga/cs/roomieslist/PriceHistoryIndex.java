@@ -0,0 +1,276 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the item names bought by the group, how often they were bought and what they cost,
+ * built from the group's price history ({@link PriceHistoryEntry}) one name at a time.
+ * Names are kept in a trie by their normalized form ({@link NameNormalizer}). Every node keeps the
+ * few most bought names under it, so completing a prefix only walks the prefix.
+ * The index keeps at most {@link #MAX_NAMES} names, the ones bought most recently.
+ * Methods are synchronized, suggestions are looked up on a worker thread while typing.
+ */
+public class PriceHistoryIndex {
+
+    public static final int MAX_NAMES = 1000;
+    public static final int SUGGESTIONS = 5;
+
+    // Most bought first, then most recently bought
+    private static final Comparator<Stats> RANK = (a, b) -> {
+        if (a.count != b.count) {
+            return Long.compare(b.count, a.count);
+        }
+        if (a.lastTimestamp != b.lastTimestamp) {
+            return Long.compare(b.lastTimestamp, a.lastTimestamp);
+        }
+        return a.key.compareTo(b.key);
+    };
+
+    // Variables
+    private final Node root = new Node(null, ' ');
+    private final Map<String, Stats> statsByKey = new HashMap<>();
+
+    /**
+     * Add a name or replace what is known about it
+     * @param entry
+     */
+    public synchronized void put(PriceHistoryEntry entry) {
+        if (entry == null) {
+            return;
+        }
+        String key = NameNormalizer.normalize(entry.getName());
+        if (key.isEmpty()) {
+            return;
+        }
+        Stats stats = statsByKey.get(key);
+        if (entry.getCount() <= 0) {
+            // Every purchase of the name was edited away
+            if (stats != null) {
+                removeName(stats);
+            }
+            return;
+        }
+        if (stats == null) {
+            if (statsByKey.size() >= MAX_NAMES) {
+                removeName(leastRecentlyBought());
+            }
+            stats = new Stats(key);
+            stats.node = insert(key, stats);
+            statsByKey.put(key, stats);
+        }
+        long oldCount = stats.count;
+        long oldTimestamp = stats.lastTimestamp;
+        stats.name = entry.getName();
+        stats.count = entry.getCount();
+        stats.lastTimestamp = entry.getTimestamp();
+        stats.lastCents = entry.getLastCents();
+        stats.pricedCount = entry.getPricedCount();
+        stats.totalCents = entry.getTotalCents();
+        if (stats.count > oldCount || (stats.count == oldCount && stats.lastTimestamp >= oldTimestamp)) {
+            rankUp(stats);
+        } else {
+            rankDown(stats);
+        }
+    }
+
+    /**
+     * Forget a name
+     * @param name
+     */
+    public synchronized void remove(String name) {
+        Stats stats = statsByKey.get(NameNormalizer.normalize(name));
+        if (stats != null) {
+            removeName(stats);
+        }
+    }
+
+    /**
+     * Get the names starting with what was typed
+     * @param prefix name as typed so far
+     * @param limit most names returned, at most {@link #SUGGESTIONS}
+     * @return names as they were last typed, most bought first
+     */
+    public synchronized List<String> complete(String prefix, int limit) {
+        Node node = root;
+        String key = NameNormalizer.normalize(prefix);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.children.get(key.charAt(i));
+        }
+        List<String> names = new ArrayList<>();
+        if (node == null) {
+            return names;
+        }
+        for (Stats stats : node.top) {
+            if (names.size() == limit) {
+                break;
+            }
+            names.add(stats.name);
+        }
+        return names;
+    }
+
+    /**
+     * Get how many times a name was bought
+     * @param name
+     * @return the count, 0 if it was never bought
+     */
+    public synchronized long countOf(String name) {
+        Stats stats = statsByKey.get(NameNormalizer.normalize(name));
+        return stats != null ? stats.count : 0;
+    }
+
+    /**
+     * Get the last price paid for a name
+     * @param name
+     * @return price in cents, null if it was never bought with a price
+     */
+    public synchronized Long lastPriceCents(String name) {
+        Stats stats = statsByKey.get(NameNormalizer.normalize(name));
+        if (stats == null || stats.lastCents <= 0) {
+            return null;
+        }
+        return stats.lastCents;
+    }
+
+    /**
+     * Get the usual price of a name, the average of every price paid for it
+     * @param name
+     * @return price in cents, null if it was never bought with a price
+     */
+    public synchronized Long usualPriceCents(String name) {
+        Stats stats = statsByKey.get(NameNormalizer.normalize(name));
+        if (stats == null || stats.pricedCount <= 0) {
+            return null;
+        }
+        return Math.round((double) stats.totalCents / stats.pricedCount);
+    }
+
+    /**
+     * @return number of names
+     */
+    public synchronized int size() {
+        return statsByKey.size();
+    }
+
+    /**
+     * Forget every name
+     */
+    public synchronized void clear() {
+        root.children.clear();
+        root.top.clear();
+        statsByKey.clear();
+    }
+
+    private Stats leastRecentlyBought() {
+        Stats oldest = null;
+        for (Stats stats : statsByKey.values()) {
+            if (oldest == null || stats.lastTimestamp < oldest.lastTimestamp) {
+                oldest = stats;
+            }
+        }
+        return oldest;
+    }
+
+    private Node insert(String key, Stats stats) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node(node, c);
+                node.children.put(c, child);
+            }
+            node = child;
+        }
+        node.stats = stats;
+        return node;
+    }
+
+    private void removeName(Stats stats) {
+        statsByKey.remove(stats.key);
+        Node node = stats.node;
+        node.stats = null;
+        // Drop the nodes nothing is under anymore
+        while (node.parent != null && node.stats == null && node.children.isEmpty()) {
+            node.parent.children.remove(node.c);
+            node = node.parent;
+        }
+        for (; node != null; node = node.parent) {
+            node.top.remove(stats);
+            recomputeTop(node);
+        }
+    }
+
+    /**
+     * A name was bought once more, it can only move up in the nodes above it
+     */
+    private static void rankUp(Stats stats) {
+        for (Node node = stats.node; node != null; node = node.parent) {
+            if (!node.top.contains(stats)) {
+                node.top.add(stats);
+            }
+            Collections.sort(node.top, RANK);
+            if (node.top.size() > SUGGESTIONS) {
+                node.top.remove(SUGGESTIONS);
+            }
+        }
+    }
+
+    /**
+     * A name was bought once less, a name below the node can take its place
+     */
+    private static void rankDown(Stats stats) {
+        for (Node node = stats.node; node != null; node = node.parent) {
+            if (node.top.contains(stats)) {
+                recomputeTop(node);
+            }
+        }
+    }
+
+    private static void recomputeTop(Node node) {
+        List<Stats> candidates = new ArrayList<>();
+        if (node.stats != null) {
+            candidates.add(node.stats);
+        }
+        for (Node child : node.children.values()) {
+            candidates.addAll(child.top);
+        }
+        Collections.sort(candidates, RANK);
+        node.top.clear();
+        node.top.addAll(candidates.subList(0, Math.min(SUGGESTIONS, candidates.size())));
+    }
+
+    private static final class Node {
+        private final Node parent;
+        private final char c;
+        private final Map<Character, Node> children = new HashMap<>();
+        // The most bought names under this node
+        private final List<Stats> top = new ArrayList<>(SUGGESTIONS + 1);
+        private Stats stats;
+
+        Node(Node parent, char c) {
+            this.parent = parent;
+            this.c = c;
+        }
+    }
+
+    private static final class Stats {
+        private final String key;
+        private String name;
+        private long count;
+        private long lastTimestamp = Long.MIN_VALUE;
+        private long lastCents;
+        private long pricedCount;
+        private long totalCents;
+        private Node node;
+
+        Stats(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.List;
+
+/**
+ * POJO class
+ * Small copy of a purchased record that is stored in its own index, so the purchase history
+ * can be listed without downloading every item of every record.
+ */
+public class PurchaseSummary {
+    public static final int MAX_ITEM_NAMES_LENGTH = 80;
+
+    private String id;
+    private String purchasedBy;
+    private double totalPrice;
+    private long timestamp;
+    private int itemCount;
+    private String itemNames;
+
+    public PurchaseSummary() {}
+
+    public PurchaseSummary(String id, String purchasedBy, double totalPrice, long timestamp, int itemCount, String itemNames) {
+        this.id = id;
+        this.purchasedBy = purchasedBy;
+        this.totalPrice = totalPrice;
+        this.timestamp = timestamp;
+        this.itemCount = itemCount;
+        this.itemNames = itemNames;
+    }
+
+    /**
+     * Build the summary of a record
+     * @param id key of the record
+     * @param record
+     * @return the summary
+     */
+    public static PurchaseSummary of(String id, PurchasedRecord record) {
+        List<Item> items = record.getItems();
+        return new PurchaseSummary(id, record.getPurchasedBy(), record.getTotalPrice(), record.getTimestamp(),
+                items != null ? items.size() : 0, joinItemNames(items));
+    }
+
+    /**
+     * Build a comma-separated string of the item names, cut at MAX_ITEM_NAMES_LENGTH
+     * @param items
+     * @return the names, empty if there are no items
+     */
+    public static String joinItemNames(List<Item> items) {
+        StringBuilder names = new StringBuilder();
+        if (items == null) {
+            return "";
+        }
+        for (Item item : items) {
+            if (item == null || item.getName() == null) {
+                continue;
+            }
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(item.getName());
+            if (names.length() > MAX_ITEM_NAMES_LENGTH) {
+                names.setLength(MAX_ITEM_NAMES_LENGTH);
+                names.append("\u2026");
+                break;
+            }
+        }
+        return names.toString();
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getPurchasedBy() {
+        return purchasedBy;
+    }
+    public void setPurchasedBy(String purchasedBy) {
+        this.purchasedBy = purchasedBy;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public String getItemNames() {
+        return itemNames;
+    }
+    public void setItemNames(String itemNames) {
+        this.itemNames = itemNames;
+    }
+}
@@ -11,6 +11,10 @@ public class PurchasedRecord {
     private List<Item> items;
     private double totalPrice;
     private long timestamp;
+    // Counted in the spending rollups, records saved before the rollups are not until they are backfilled
+    private boolean rolledUp;
+    // Counted in the price history, the same for records saved before it
+    private boolean inPriceHistory;
 
     public PurchasedRecord() {}
 
@@ -21,6 +25,24 @@ public class PurchasedRecord {
         this.timestamp = timestamp;
     }
 
+    /**
+     * Add up the prices of the items
+     * @param items
+     * @return total price, 0 if there are no items
+     */
+    public static double totalOf(List<Item> items) {
+        double total = 0.0;
+        if (items == null) {
+            return total;
+        }
+        for (Item item : items) {
+            if (item != null) {
+                total += item.getPrice();
+            }
+        }
+        return total;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -56,4 +78,18 @@ public class PurchasedRecord {
     public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
+
+    public boolean isRolledUp() {
+        return rolledUp;
+    }
+    public void setRolledUp(boolean rolledUp) {
+        this.rolledUp = rolledUp;
+    }
+
+    public boolean isInPriceHistory() {
+        return inPriceHistory;
+    }
+    public void setInPriceHistory(boolean inPriceHistory) {
+        this.inPriceHistory = inPriceHistory;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Splits what the group spent evenly between all of its members and works out who pays whom.
+ * Everything is done in whole cents, so the transfers always add up exactly.
+ * Debtors and creditors are sorted by amount and matched greedily, largest first, which takes
+ * O(n log n) and gives at most n - 1 transfers. Every transfer settles at least one person completely.
+ */
+public final class SettlementCalculator {
+
+    private SettlementCalculator() {}
+
+    /**
+     * Settle the costs of a group
+     * @param members names of everyone in the group, members who spent nothing still pay their share
+     * @param spentCents what each roommate spent, roommates missing from members are included as well
+     * @return the shares and the transfers
+     */
+    public static Settlement settle(Collection<String> members, Map<String, Long> spentCents) {
+        // Sorted so the same input always gives the same transfers
+        TreeSet<String> everyone = new TreeSet<>();
+        for (String member : members) {
+            if (member != null) {
+                everyone.add(member);
+            }
+        }
+        everyone.addAll(spentCents.keySet());
+
+        Map<String, Long> spent = new LinkedHashMap<>();
+        long totalCents = 0;
+        for (String roommate : everyone) {
+            Long cents = spentCents.get(roommate);
+            long amount = cents != null ? cents : 0L;
+            spent.put(roommate, amount);
+            totalCents += amount;
+        }
+        if (everyone.isEmpty()) {
+            return new Settlement(spent, Collections.<String, Long>emptyMap(), 0, Collections.<Transfer>emptyList());
+        }
+
+        // The cents that do not split evenly go one each to the first roommates
+        long share = Math.floorDiv(totalCents, everyone.size());
+        long remainder = Math.floorMod(totalCents, (long) everyone.size());
+        Map<String, Long> shares = new LinkedHashMap<>();
+        List<Balance> debtors = new ArrayList<>();
+        List<Balance> creditors = new ArrayList<>();
+        for (String roommate : everyone) {
+            long owed = share + (remainder-- > 0 ? 1 : 0);
+            shares.put(roommate, owed);
+            long balance = spent.get(roommate) - owed;
+            if (balance < 0) {
+                debtors.add(new Balance(roommate, -balance));
+            } else if (balance > 0) {
+                creditors.add(new Balance(roommate, balance));
+            }
+        }
+
+        return new Settlement(spent, shares, totalCents, match(debtors, creditors));
+    }
+
+    /**
+     * Match the largest debt with the largest credit until everyone is even
+     * @param debtors what each debtor still has to pay
+     * @param creditors what each creditor still has to get back
+     * @return the transfers
+     */
+    private static List<Transfer> match(List<Balance> debtors, List<Balance> creditors) {
+        Collections.sort(debtors, LARGEST_FIRST);
+        Collections.sort(creditors, LARGEST_FIRST);
+
+        List<Transfer> transfers = new ArrayList<>();
+        int d = 0;
+        int c = 0;
+        while (d < debtors.size() && c < creditors.size()) {
+            Balance debtor = debtors.get(d);
+            Balance creditor = creditors.get(c);
+            long amount = Math.min(debtor.cents, creditor.cents);
+            transfers.add(new Transfer(debtor.name, creditor.name, amount));
+            debtor.cents -= amount;
+            creditor.cents -= amount;
+            if (debtor.cents == 0) {
+                d++;
+            }
+            if (creditor.cents == 0) {
+                c++;
+            }
+        }
+        return Collections.unmodifiableList(transfers);
+    }
+
+    private static final Comparator<Balance> LARGEST_FIRST = new Comparator<Balance>() {
+        @Override
+        public int compare(Balance a, Balance b) {
+            int byAmount = Long.compare(b.cents, a.cents);
+            return byAmount != 0 ? byAmount : a.name.compareTo(b.name);
+        }
+    };
+
+    private static final class Balance {
+        private final String name;
+        private long cents;
+
+        private Balance(String name, long cents) {
+            this.name = name;
+            this.cents = cents;
+        }
+    }
+
+    /**
+     * One roommate paying another
+     */
+    public static final class Transfer {
+        private final String from;
+        private final String to;
+        private final long cents;
+
+        public Transfer(String from, String to, long cents) {
+            this.from = from;
+            this.to = to;
+            this.cents = cents;
+        }
+
+        public String getFrom() {
+            return from;
+        }
+
+        public String getTo() {
+            return to;
+        }
+
+        public long getCents() {
+            return cents;
+        }
+    }
+
+    /**
+     * Result of settling the costs of a group
+     */
+    public static final class Settlement {
+        private final Map<String, Long> spentCents;
+        private final Map<String, Long> shareCents;
+        private final long totalCents;
+        private final List<Transfer> transfers;
+
+        private Settlement(Map<String, Long> spentCents, Map<String, Long> shareCents, long totalCents,
+                           List<Transfer> transfers) {
+            this.spentCents = Collections.unmodifiableMap(spentCents);
+            this.shareCents = Collections.unmodifiableMap(shareCents);
+            this.totalCents = totalCents;
+            this.transfers = transfers;
+        }
+
+        /**
+         * @return what each roommate spent, sorted by name
+         */
+        public Map<String, Long> getSpentCents() {
+            return spentCents;
+        }
+
+        /**
+         * @return what each roommate has to pay in the end, sorted by name
+         */
+        public Map<String, Long> getShareCents() {
+            return shareCents;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+
+        public List<Transfer> getTransfers() {
+            return transfers;
+        }
+    }
+}
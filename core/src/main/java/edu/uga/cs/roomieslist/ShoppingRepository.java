@@ -0,0 +1,211 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Everything the screens do with the shopping data of one group.
+ * Implementations only differ in where the data is kept, the rules for moving items between
+ * the shopping list, the basket and the purchase history are in {@link AbstractShoppingRepository}.
+ * Writes are applied locally right away, the callback reports when the write has been committed.
+ */
+public interface ShoppingRepository {
+
+    /**
+     * Get the group this repository works on
+     * @return group id
+     */
+    String getGroupId();
+
+    /**
+     * Save a new user of this group together with its entry in the group's member index
+     * @param userId
+     * @param user
+     * @param callback
+     */
+    void addMember(String userId, User user, Callback<Void> callback);
+
+    /**
+     * Add a new item to the shopping list
+     * @param name
+     * @param amount
+     * @param addedBy name of the roommate adding the item
+     * @param callback
+     * @return the new item, with its id
+     */
+    Item addItem(String name, int amount, String addedBy, Callback<Void> callback);
+
+    /**
+     * Add to the amount of an item that is already on the shopping list, instead of adding it again.
+     * The database rules refuse it if the item is not on the list anymore.
+     * @param itemId
+     * @param delta
+     * @param callback
+     */
+    void increaseAmount(String itemId, int delta, Callback<Void> callback);
+
+    /**
+     * Write an item of the shopping list, adding it back if it was removed
+     * @param item
+     * @param callback
+     */
+    void updateItem(Item item, Callback<Void> callback);
+
+    /**
+     * Write only the fields of a shopping list item changed since it was read.
+     * Does nothing if no field changed.
+     * @param item
+     * @param callback
+     */
+    void updateItemFields(Item item, Callback<Void> callback);
+
+    /**
+     * Write only the fields of a basket item changed since it was read.
+     * Does nothing if no field changed.
+     * @param item
+     * @param callback
+     */
+    void updateBasketItemFields(Item item, Callback<Void> callback);
+
+    /**
+     * Write the changed fields of a shopping list item only if nobody changed the item since
+     * it was read, checked with its version in a transaction. The change shows right away and is
+     * rolled back if the item was changed or removed in the meantime.
+     * @param item copy of the item as it was read, with the changes made on it
+     * @param callback gets the committed item, or an {@link ItemConflictException} on a conflict
+     */
+    void compareAndSetItem(Item item, Callback<Item> callback);
+
+    /**
+     * Write changed fields of several shopping list items in one update, each only if nobody changed it
+     * since it was read. The database refuses the update if any version moved, then the items are
+     * written one by one like {@link #compareAndSetItem(Item, Callback)}, so an item changed in the
+     * meantime does not keep the others from being written.
+     * @param readVersions item id to the version the changes were made on
+     * @param fieldsById item id to the fields to write, as made by {@link ModelCodec#encodeChanges(Item)}
+     * @param callback gets an {@link ItemConflictException} if any item was changed or removed in the meantime
+     */
+    void compareAndSetItems(Map<String, Long> readVersions, Map<String, Map<String, Object>> fieldsById,
+                            Callback<Void> callback);
+
+    /**
+     * Delete an item from the shopping list
+     * @param item
+     * @param callback
+     */
+    void deleteItem(Item item, Callback<Void> callback);
+
+    /**
+     * Move items from the shopping list to the basket in one update
+     * @param items
+     * @param callback
+     */
+    void moveToBasket(List<Item> items, Callback<Void> callback);
+
+    /**
+     * Move an item from the basket back to the shopping list
+     * @param item
+     * @param callback
+     */
+    void moveToList(Item item, Callback<Void> callback);
+
+    /**
+     * Buy the items of the basket. The purchased record, its summary, the removal of the items
+     * from the basket and the purchaser's ledger entry are written in one update.
+     * @param purchasedBy name of the roommate checking out
+     * @param basket items being bought
+     * @param callback
+     * @return the new record, or null if the basket is empty
+     */
+    PurchasedRecord checkout(String purchasedBy, List<Item> basket, Callback<Void> callback);
+
+    /**
+     * Learn the store order from the items checked off on a trip and save what was learned
+     * @param order the group's aisle order, updated right away
+     * @param names names of the items in the order they were checked off
+     * @param callback
+     */
+    void recordTrip(AisleOrder order, List<String> names, Callback<Void> callback);
+
+    /**
+     * Read the aisle order learned from every trip of the group
+     * @param callback
+     */
+    void loadAisleOrder(Callback<AisleOrder> callback);
+
+    /**
+     * Read what the group spent in a range of weeks or months, from the rollups kept by
+     * every checkout and edit. Only the buckets in the range are read.
+     * @param period {@link SpendingRollup#WEEK} or {@link SpendingRollup#MONTH}
+     * @param fromBucket first bucket key, see {@link SpendingRollup#bucketOf}
+     * @param toBucket last bucket key, included
+     * @param callback
+     */
+    void loadSpending(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback);
+
+    /**
+     * Read the group's time zone, which the spending rollups start their weeks and months in.
+     * A group without one gets the zone of this device.
+     * @param callback
+     */
+    void loadTimeZone(Callback<TimeZone> callback);
+
+    /**
+     * Read the items of the shopping list once
+     * @param callback
+     */
+    void loadShoppingList(Callback<List<Item>> callback);
+
+    /**
+     * Read the items of the basket once
+     * @param callback
+     */
+    void loadBasket(Callback<List<Item>> callback);
+
+    /**
+     * Read a purchased record with all of its items
+     * @param purchaseId
+     * @param callback receives null if there is no such record
+     */
+    void loadRecord(String purchaseId, Callback<PurchasedRecord> callback);
+
+    /**
+     * Replace the items of a purchased record, recalculate its total and correct the ledger
+     * @param record record as it was loaded
+     * @param items items that are left in the record
+     * @param callback
+     */
+    void saveRecord(PurchasedRecord record, List<Item> items, Callback<Void> callback);
+
+    /**
+     * Change the total price of a purchase and correct the ledger
+     * @param summary summary of the purchase with the old total
+     * @param totalPrice new total
+     * @param callback
+     */
+    void updatePurchasePrice(PurchaseSummary summary, double totalPrice, Callback<Void> callback);
+
+    /**
+     * Delete the purchase history and reset the ledger
+     * @param callback
+     */
+    void clearHistory(Callback<Void> callback);
+
+    /**
+     * Split what the group spent between all of its members
+     * @param callback receives the shares and the transfers
+     */
+    void settle(Callback<SettlementCalculator.Settlement> callback);
+
+    /**
+     * Receives the result of an operation
+     */
+    interface Callback<T> {
+        /**
+         * @param result the result, null if there is none or the operation failed
+         * @param error null if the operation succeeded
+         */
+        void onComplete(T result, Exception error);
+    }
+}
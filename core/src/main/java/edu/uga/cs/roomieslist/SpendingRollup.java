@@ -0,0 +1,213 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * What the group spent per week or per month, with the part of each roommate and of each item.
+ * The buckets are kept up to date in the database by every checkout and every edit of a purchase
+ * ({@link GroupUpdate#addToRollups(PurchasedRecord, int, TimeZone)}) and are not removed when the
+ * history is cleared, so a chart only reads its own buckets instead of every purchased record.
+ * Bucket keys sort by time: the Monday a week starts on ("2026-10-12") or the month ("2026-10").
+ * Weeks and months start at midnight in the group's time zone, so a purchase late on Sunday
+ * counts in the week the roommates made it in, whatever the zone of the device that saved it.
+ */
+public class SpendingRollup {
+
+    // Periods
+    public static final String WEEK = "week";
+    public static final String MONTH = "month";
+
+    // Fields of a bucket
+    public static final String TOTAL_CENTS = "totalCents";
+    public static final String ROOMMATES = "roommates";
+    public static final String ITEMS = "items";
+
+    // Bucket keys are dates, the series walks them in UTC
+    private static final TimeZone DATES = TimeZone.getTimeZone("UTC");
+
+    // Variables
+    private final String period;
+    private final SortedMap<String, Bucket> buckets;
+
+    /**
+     * Constructor
+     * @param period {@link #WEEK} or {@link #MONTH}
+     */
+    public SpendingRollup(String period) {
+        this(period, new TreeMap<String, Bucket>());
+    }
+
+    private SpendingRollup(String period, SortedMap<String, Bucket> buckets) {
+        this.period = period;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Check that a period is one the rollups are kept for
+     * @param period
+     * @return true for {@link #WEEK} and {@link #MONTH}
+     */
+    public static boolean isPeriod(String period) {
+        return WEEK.equals(period) || MONTH.equals(period);
+    }
+
+    /**
+     * Get the bucket a time falls in
+     * @param period {@link #WEEK} or {@link #MONTH}
+     * @param timestamp milliseconds since the epoch
+     * @param offset number of weeks or months to move, -1 is the bucket before
+     * @param zone the group's time zone
+     * @return the bucket key
+     */
+    public static String bucketOf(String period, long timestamp, int offset, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone, Locale.US);
+        calendar.setTimeInMillis(timestamp);
+        if (MONTH.equals(period)) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.add(Calendar.MONTH, offset);
+            return String.format(Locale.US, "%04d-%02d", calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1);
+        }
+        // Weeks start on Monday
+        int daysSinceMonday = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        calendar.add(Calendar.DAY_OF_MONTH, 7 * offset - daysSinceMonday);
+        return String.format(Locale.US, "%04d-%02d-%02d", calendar.get(Calendar.YEAR),
+                calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Add a bucket read from the database
+     * @param key
+     * @param totalCents
+     * @param roommateCents roommate to what they spent
+     * @param itemCents normalized item name to what was spent on it
+     */
+    public void addBucket(String key, long totalCents, Map<String, Long> roommateCents, Map<String, Long> itemCents) {
+        buckets.put(key, new Bucket(totalCents, roommateCents, itemCents));
+    }
+
+    /**
+     * @return {@link #WEEK} or {@link #MONTH}
+     */
+    public String getPeriod() {
+        return period;
+    }
+
+    /**
+     * Get the buckets from one bucket to another, without copying them
+     * @param fromBucket first bucket key
+     * @param toBucket last bucket key, included
+     * @return the part of the rollup
+     */
+    public SpendingRollup between(String fromBucket, String toBucket) {
+        return new SpendingRollup(period, buckets.subMap(fromBucket, toBucket + "\0"));
+    }
+
+    /**
+     * Get what was spent in each bucket, for a chart
+     * @param fromBucket first bucket key
+     * @param toBucket last bucket key, included
+     * @return bucket key to cents, oldest first, buckets without spending are 0
+     */
+    public Map<String, Long> series(String fromBucket, String toBucket) {
+        Map<String, Long> series = new LinkedHashMap<>();
+        Calendar calendar = Calendar.getInstance(DATES, Locale.US);
+        calendar.clear();
+        calendar.set(Integer.parseInt(fromBucket.substring(0, 4)), Integer.parseInt(fromBucket.substring(5, 7)) - 1,
+                MONTH.equals(period) ? 1 : Integer.parseInt(fromBucket.substring(8, 10)));
+        for (String key = fromBucket; key.compareTo(toBucket) <= 0; key = bucketOf(period, calendar.getTimeInMillis(), 0, DATES)) {
+            Bucket bucket = buckets.get(key);
+            series.put(key, bucket != null ? bucket.totalCents : 0L);
+            calendar.add(MONTH.equals(period) ? Calendar.MONTH : Calendar.DAY_OF_MONTH, MONTH.equals(period) ? 1 : 7);
+        }
+        return series;
+    }
+
+    /**
+     * @return cents spent in every bucket
+     */
+    public long getTotalCents() {
+        long total = 0;
+        for (Bucket bucket : buckets.values()) {
+            total += bucket.totalCents;
+        }
+        return total;
+    }
+
+    /**
+     * Get what each roommate spent in every bucket
+     * @return roommate to cents, most first
+     */
+    public Map<String, Long> byRoommate() {
+        Map<String, Long> sums = new HashMap<>();
+        for (Bucket bucket : buckets.values()) {
+            addAll(sums, bucket.roommateCents);
+        }
+        return sorted(sums, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get what was spent on each item in every bucket
+     * @param limit most items returned
+     * @return normalized item name to cents, most first
+     */
+    public Map<String, Long> byItem(int limit) {
+        Map<String, Long> sums = new HashMap<>();
+        for (Bucket bucket : buckets.values()) {
+            addAll(sums, bucket.itemCents);
+        }
+        return sorted(sums, limit);
+    }
+
+    /**
+     * @return number of buckets with spending
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private static void addAll(Map<String, Long> sums, Map<String, Long> cents) {
+        for (Map.Entry<String, Long> entry : cents.entrySet()) {
+            Long previous = sums.get(entry.getKey());
+            sums.put(entry.getKey(), (previous != null ? previous : 0L) + entry.getValue());
+        }
+    }
+
+    private static Map<String, Long> sorted(Map<String, Long> sums, int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : sums.entrySet()) {
+            // Edits can leave an entry at 0
+            if (entry.getValue() != 0) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries, (a, b) -> !a.getValue().equals(b.getValue())
+                ? Long.compare(b.getValue(), a.getValue()) : a.getKey().compareTo(b.getKey()));
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    private static final class Bucket {
+        private final long totalCents;
+        private final Map<String, Long> roommateCents;
+        private final Map<String, Long> itemCents;
+
+        Bucket(long totalCents, Map<String, Long> roommateCents, Map<String, Long> itemCents) {
+            this.totalCents = totalCents;
+            this.roommateCents = roommateCents;
+            this.itemCents = itemCents;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects quick changes of shopping list items, like ticking check boxes while walking the aisles,
+ * and writes them together. Changes to the same item within the window are merged, the last value
+ * of each field wins, and every pending item is sent in one multi-path update when the window ends.
+ * Each item is only written if nobody changed it since its first change was queued, checked with its
+ * version ({@link ShoppingRepository#compareAndSetItems(Map, Map, ShoppingRepository.Callback)}).
+ * At most maxPendingItems items wait at a time, one more flushes right away.
+ * Meant to be used from one thread, the UI thread in the app.
+ */
+public class WriteCoalescer {
+
+    // Metric names
+    public static final String MUTATIONS = "coalescer.mutations";
+    public static final String WRITES = "coalescer.writes";
+    public static final String WRITES_SAVED = "coalescer.writes.saved";
+
+    // Variables
+    private final ShoppingRepository repository;
+    private final Timer timer;
+    private final long windowMillis;
+    private final int maxPendingItems;
+    private final Map<String, Map<String, Object>> pending = new LinkedHashMap<>();
+    // Version of each pending item when its first change was queued
+    private final Map<String, Long> readVersions = new HashMap<>();
+    private FlushListener flushListener;
+    private int pendingMutations;
+    // Counts flushes, so a timer set for a window that was already flushed does nothing
+    private long generation;
+
+    /**
+     * Constructor
+     * @param repository where the changes are written
+     * @param timer runs the flush at the end of the window
+     * @param windowMillis how long the first change of a batch waits for others
+     * @param maxPendingItems number of items that can wait at the same time
+     */
+    public WriteCoalescer(ShoppingRepository repository, Timer timer, long windowMillis, int maxPendingItems) {
+        this.repository = repository;
+        this.timer = timer;
+        this.windowMillis = windowMillis;
+        this.maxPendingItems = maxPendingItems;
+    }
+
+    /**
+     * Be told about every flush, for example to show one message for the whole batch
+     * @param flushListener
+     */
+    public void setFlushListener(FlushListener flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * Queue the changed fields of an item. The item is marked clean.
+     * @param item copy of the item with the changes made on it, as shown with {@link #applyPending(Item)}
+     */
+    public void enqueue(Item item) {
+        if (!item.hasChanges()) {
+            return;
+        }
+        Map<String, Object> changes = ModelCodec.encodeChanges(item);
+        item.markClean();
+        if (!pending.containsKey(item.getItemId()) && pending.size() >= maxPendingItems) {
+            flush();
+        }
+
+        Map<String, Object> fields = pending.get(item.getItemId());
+        if (fields == null) {
+            fields = new LinkedHashMap<>();
+            pending.put(item.getItemId(), fields);
+            readVersions.put(item.getItemId(), item.getVersion());
+        }
+        fields.putAll(changes);
+        pendingMutations++;
+        PerfMetrics.increment(MUTATIONS);
+
+        if (pending.size() == 1 && pendingMutations == 1) {
+            long scheduledGeneration = generation;
+            timer.schedule(() -> {
+                if (generation == scheduledGeneration) {
+                    flush();
+                }
+            }, windowMillis);
+        }
+    }
+
+    /**
+     * Show an item the way it will be once its queued changes are written
+     * @param stored the item as the database has it
+     * @return the item with the queued changes, or the same item if nothing is queued for it
+     */
+    public Item applyPending(Item stored) {
+        Map<String, Object> fields = pending.get(stored.getItemId());
+        if (fields == null) {
+            return stored;
+        }
+        Map<String, Object> merged = ModelCodec.encodeItem(stored);
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (field.getValue() != null) {
+                merged.put(field.getKey(), field.getValue());
+            } else {
+                merged.remove(field.getKey());
+            }
+        }
+        // The flush counts the version up once
+        merged.put(ModelCodec.VERSION, stored.getVersion() + 1);
+        return ModelCodec.decodeItem(stored.getItemId(), merged);
+    }
+
+    /**
+     * Show a list of items the way they will be once their queued changes are written
+     * @param stored
+     * @return a new list, the stored items are not changed, or the same list if nothing is queued
+     */
+    public List<Item> applyPending(List<Item> stored) {
+        if (pending.isEmpty()) {
+            return stored;
+        }
+        List<Item> items = new ArrayList<>(stored.size());
+        for (Item item : stored) {
+            items.add(applyPending(item));
+        }
+        return items;
+    }
+
+    /**
+     * Check if an item has changes waiting
+     * @param itemId
+     * @return true if the item is in the queue
+     */
+    public boolean isPending(String itemId) {
+        return pending.containsKey(itemId);
+    }
+
+    /**
+     * @return number of items waiting to be written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Write everything that is queued now, for example when the app goes to the background
+     */
+    public void flush() {
+        generation++;
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Object>> batch = new LinkedHashMap<>(pending);
+        Map<String, Long> versions = new HashMap<>(readVersions);
+        int mutations = pendingMutations;
+        pending.clear();
+        readVersions.clear();
+        pendingMutations = 0;
+
+        PerfMetrics.increment(WRITES);
+        PerfMetrics.add(WRITES_SAVED, mutations - 1);
+        repository.compareAndSetItems(versions, batch, (result, error) -> notifyFlushed(batch.size(), error));
+    }
+
+    private void notifyFlushed(int items, Exception error) {
+        if (flushListener != null) {
+            flushListener.onFlushed(items, error);
+        }
+    }
+
+    /**
+     * Runs a task later, Handler.postDelayed in the app
+     */
+    public interface Timer {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    /**
+     * Told when a batch was written
+     */
+    public interface FlushListener {
+        /**
+         * @param items number of items in the batch
+         * @param error null if every item was written, an {@link ItemConflictException} if an item was
+         *              changed by someone else in the meantime and kept their change
+         */
+        void onFlushed(int items, Exception error);
+    }
+}
@@ -0,0 +1,156 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AisleOrder} and {@link AisleOrderedList}.
+ */
+public class AisleOrderTest {
+
+    // The store, aisle by aisle
+    private static final String[] STORE = {
+            "Apples", "Bananas", "Lettuce", "Bread", "Peanut Butter", "Pasta",
+            "Rice", "Milk", "Eggs", "Cheese", "Frozen Pizza", "Paper Towels"
+    };
+
+    private AisleOrder order;
+
+    @Before
+    public void setUp() {
+        order = new AisleOrder();
+    }
+
+    @Test
+    public void trip_countsEachPairOnceWithNormalizedNames() {
+        Map<String, Map<String, Long>> added = order.recordTrip(Arrays.asList("Apples", "Milk", "apple", "Eggs"));
+
+        assertEquals(1, order.countBefore("apple", "milk"));
+        assertEquals(1, order.countBefore("milk", "egg"));
+        assertEquals(0, order.countBefore("egg", "apple"));
+        assertEquals(Long.valueOf(1), added.get("apple").get("egg"));
+        assertEquals(2, added.size());
+        assertTrue(order.positionOf("Apples") > order.positionOf("Milk"));
+        assertTrue(order.positionOf("milk") > order.positionOf("EGGS"));
+        assertNull(order.positionOf("Bread"));
+    }
+
+    @Test
+    public void shuffledTrips_learnTheStoreOrder() {
+        // Every trip buys a few items and checks them off mostly in store order
+        Random random = new Random(7);
+        for (int trip = 0; trip < 60; trip++) {
+            List<Integer> aisles = new ArrayList<>();
+            for (int i = 0; i < STORE.length; i++) {
+                if (random.nextInt(3) > 0) {
+                    aisles.add(i);
+                }
+            }
+            if (random.nextInt(4) == 0 && aisles.size() > 1) {
+                // Someone went back for something
+                Collections.swap(aisles, 0, aisles.size() - 1);
+            }
+            List<String> names = new ArrayList<>();
+            for (int aisle : aisles) {
+                names.add(STORE[aisle]);
+            }
+            order.recordTrip(names);
+        }
+
+        AisleOrderedList list = new AisleOrderedList(order);
+        List<String> ids = new ArrayList<>();
+        for (int i = STORE.length - 1; i >= 0; i--) {
+            list.put(item("item" + i, STORE[i]));
+            ids.add("item" + i);
+        }
+        list.put(item("new", "Batteries"));
+
+        List<String> sorted = new ArrayList<>();
+        for (Item item : list.getItems()) {
+            sorted.add(item.getName());
+        }
+        List<String> expected = new ArrayList<>(Arrays.asList(STORE));
+        expected.add("Batteries");
+        assertEquals(expected, sorted);
+    }
+
+    @Test
+    public void orderedList_updatesItemsOneByOne() {
+        order.recordTrip(Arrays.asList("Bread", "Milk", "Eggs"));
+        AisleOrderedList list = new AisleOrderedList(order);
+        list.put(item("b", "Unknown"));
+        list.put(item("a", "Unknown too"));
+        list.put(item("e", "Eggs"));
+        list.put(item("m", "Milk"));
+
+        assertEquals(Arrays.asList("m", "e", "a", "b"), idsOf(list));
+
+        // Renamed, checked and removed items move without sorting the list again
+        list.put(item("a", "Bread"));
+        Item eggs = item("e", "Eggs");
+        eggs.setPurchased(true);
+        list.put(eggs);
+        list.remove("m");
+
+        assertEquals(Arrays.asList("a", "e", "b"), idsOf(list));
+        assertTrue(list.getItems().get(1).isPurchased());
+        assertEquals(3, list.size());
+
+        // A new order sorts what is there
+        AisleOrder reversed = new AisleOrder();
+        reversed.recordTrip(Arrays.asList("Eggs", "Bread"));
+        list.setOrder(reversed);
+        assertEquals(Arrays.asList("e", "a", "b"), idsOf(list));
+    }
+
+    @Test
+    public void randomChanges_keepTheListInStoreOrder() {
+        Random random = new Random(42);
+        List<String> trip = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            trip.add("name" + i);
+        }
+        order.recordTrip(trip);
+        AisleOrderedList list = new AisleOrderedList(order);
+        for (int i = 0; i < 2000; i++) {
+            list.put(item("item" + i, "name" + random.nextInt(400)));
+        }
+
+        // Check box changes and renames of items already in the list
+        for (int change = 0; change < 200; change++) {
+            Item changed = item("item" + random.nextInt(2000), "name" + random.nextInt(400));
+            changed.setPurchased(random.nextBoolean());
+            list.put(changed);
+        }
+
+        List<Item> items = list.getItems();
+        assertEquals(2000, items.size());
+        for (int i = 1; i < items.size(); i++) {
+            Double before = order.positionOf(items.get(i - 1).getName());
+            Double after = order.positionOf(items.get(i).getName());
+            // Known names come first, earlier aisles first
+            assertTrue(after == null || (before != null && before >= after));
+        }
+    }
+
+    private static List<String> idsOf(AisleOrderedList list) {
+        List<String> ids = new ArrayList<>();
+        for (Item item : list.getItems()) {
+            ids.add(item.getItemId());
+        }
+        return ids;
+    }
+
+    private static Item item(String itemId, String name) {
+        return new Item(itemId, name, 0.0, null, "Ana", "group-1", 1);
+    }
+}
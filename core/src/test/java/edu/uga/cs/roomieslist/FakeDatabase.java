@@ -0,0 +1,749 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Local stand-in for the Realtime Database, for load and performance tests that run offline.
+ * Each device connects as a {@link Client} with its own {@link NetworkProfile}. Like the real SDK,
+ * a client applies its own writes locally right away and fires its listeners, sends the write
+ * to the server, and later gets the server's state back. Messages on each link arrive in order.
+ * Time is virtual, so a test with seconds of simulated latency finishes instantly and
+ * every run with the same seed is the same.
+ */
+public class FakeDatabase {
+
+    // Variables
+    private final VirtualScheduler scheduler;
+    private final Random random;
+    private final DataTree server = new DataTree();
+    private final List<Client> clients = new ArrayList<>();
+    private final Stats stats = new Stats();
+    private WriteObserver writeObserver;
+    private Rule rule;
+
+    /**
+     * Constructor
+     * @param scheduler runs the simulated network
+     * @param seed seed for latency, jitter and failures
+     */
+    public FakeDatabase(VirtualScheduler scheduler, long seed) {
+        this.scheduler = scheduler;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Connect a new device
+     * @param name used in the push keys of the device
+     * @param profile network of the device
+     * @return the client
+     */
+    public Client connect(String name, NetworkProfile profile) {
+        Client client = new Client(name, profile);
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * Read the value stored on the server
+     * @param path
+     * @return the value, null if there is none
+     */
+    public Object getServerValue(String path) {
+        return server.get(path);
+    }
+
+    /**
+     * Store data directly on the server, without notifying anyone. Used to set up a test.
+     * @param path
+     * @param value
+     */
+    public void setServerValue(String path, Object value) {
+        server.set(path, value);
+    }
+
+    public VirtualScheduler getScheduler() {
+        return scheduler;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * Check every write like the database rules do, writes the rule refuses fail
+     * @param rule null to accept everything
+     */
+    public void setRule(Rule rule) {
+        this.rule = rule;
+    }
+
+    /**
+     * Watch every write the server receives, in the order it handles them
+     * @param observer null to stop watching
+     */
+    public void setWriteObserver(WriteObserver observer) {
+        this.writeObserver = observer;
+    }
+
+    /**
+     * A write arrived at the server
+     * @param writer
+     * @param write
+     */
+    private void receiveWrite(Client writer, PendingWrite write) {
+        Map<String, Object> before = currentValues(write.paths.keySet());
+        Exception error = null;
+        if (random.nextDouble() < writer.profile.failureRate) {
+            error = new IllegalStateException("Simulated write failure");
+        } else {
+            if (write.transaction != null && !Objects.equals(server.get(write.transaction.path), write.expected)) {
+                // The transaction ran on an old value, send the stored one back so it can run again
+                writer.send(new Message(before, write, null, true));
+                return;
+            }
+            server.apply(write.paths);
+            if (rule != null && !rule.allows(server, write.paths.keySet())) {
+                // Like the security rules, the whole update is refused
+                for (Map.Entry<String, Object> old : before.entrySet()) {
+                    server.set(old.getKey(), old.getValue());
+                }
+                error = new IllegalStateException("Permission denied");
+            }
+        }
+        if (error != null) {
+            // Rejected, only the writer hears about it and rolls its local change back
+            stats.writesFailed++;
+            if (writeObserver != null) {
+                writeObserver.onWrite(writer, write.tag, before, before, error);
+            }
+            writer.send(new Message(before, write, error, false));
+            return;
+        }
+        stats.writesApplied++;
+        Map<String, Object> values = currentValues(write.paths.keySet());
+        if (writeObserver != null) {
+            writeObserver.onWrite(writer, write.tag, before, values, null);
+        }
+        for (Client client : clients) {
+            if (client == writer) {
+                client.send(new Message(values, write, null, false));
+            } else if (client.isListeningTo(values.keySet())) {
+                client.send(new Message(values, null, null, false));
+            }
+        }
+    }
+
+    private Map<String, Object> currentValues(Collection<String> paths) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String path : paths) {
+            values.put(path, DataTree.copy(server.get(path)));
+        }
+        return values;
+    }
+
+    private long sample(NetworkProfile profile) {
+        long jitter = profile.jitterMillis > 0 ? (long) (random.nextDouble() * profile.jitterMillis) : 0L;
+        return profile.latencyMillis + jitter;
+    }
+
+    /**
+     * Latency, jitter and failure rate of one device's connection
+     */
+    public static final class NetworkProfile {
+        public static final NetworkProfile LOCAL = new NetworkProfile(0, 0, 0.0);
+        public static final NetworkProfile WIFI = new NetworkProfile(20, 15, 0.0);
+        public static final NetworkProfile MOBILE_3G = new NetworkProfile(150, 250, 0.01);
+        public static final NetworkProfile BAD = new NetworkProfile(400, 1200, 0.10);
+
+        private final long latencyMillis;
+        private final long jitterMillis;
+        private final double failureRate;
+
+        /**
+         * Constructor
+         * @param latencyMillis fixed one way delay
+         * @param jitterMillis random extra delay, from 0 up to this value
+         * @param failureRate share of writes the server rejects, between 0 and 1
+         */
+        public NetworkProfile(long latencyMillis, long jitterMillis, double failureRate) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.failureRate = failureRate;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        public long getJitterMillis() {
+            return jitterMillis;
+        }
+
+        public double getFailureRate() {
+            return failureRate;
+        }
+    }
+
+    /**
+     * One connected device, with its own local view of the data
+     */
+    public final class Client {
+        private final String name;
+        private final NetworkProfile profile;
+        // What the client last heard from the server, and that plus its own pending writes
+        private final DataTree serverView = new DataTree();
+        private final DataTree visible = new DataTree();
+        private final List<PendingWrite> pending = new ArrayList<>();
+        private final List<Subscription> subscriptions = new ArrayList<>();
+        private long lastUpstream;
+        private long lastDownstream;
+        private long pushCounter;
+        private Object writeTag;
+
+        private Client(String name, NetworkProfile profile) {
+            this.name = name;
+            this.profile = profile;
+        }
+
+        /**
+         * Get a reference to a path
+         * @param path empty for the root
+         * @return the reference
+         */
+        public Reference getReference(String path) {
+            return new Reference(this, path);
+        }
+
+        /**
+         * Generate a key that sorts after every key generated before it
+         * @return the key
+         */
+        public String pushKey() {
+            return String.format(Locale.US, "%013d-%s-%06d", scheduler.now(), name, pushCounter++);
+        }
+
+        /**
+         * Write several paths atomically
+         * @param paths absolute path to value, null deletes, increments add to the stored number
+         * @param listener called when the server has committed or rejected the write, can be null
+         */
+        public void update(Map<String, Object> paths, CompletionListener listener) {
+            sendWrite(new PendingWrite(new LinkedHashMap<>(paths), listener, writeTag));
+        }
+
+        /**
+         * Change the value of a path with a transaction, like runTransaction. The handler runs on
+         * the local value and its result shows right away. The server only commits it if the stored
+         * value is still the one the handler saw, otherwise the handler runs again on the stored value.
+         * @param path
+         * @param handler throws to give up, the local change is then rolled back
+         * @param listener gets the committed value or the exception of the handler
+         */
+        public void transaction(String path, TransactionHandler handler, TransactionListener listener) {
+            attempt(new Transaction(path, handler, listener, writeTag));
+        }
+
+        /**
+         * Label the writes sent from now on, the write observer gets the label of each write
+         * @param tag null for none
+         */
+        public void setWriteTag(Object tag) {
+            this.writeTag = tag;
+        }
+
+        private void attempt(Transaction transaction) {
+            Object current = DataTree.copy(visible.get(transaction.path));
+            Object next;
+            try {
+                next = transaction.handler.apply(current);
+            } catch (Exception e) {
+                transaction.listener.onComplete(null, e);
+                return;
+            }
+            PendingWrite write = new PendingWrite(Collections.singletonMap(transaction.path, next), null, transaction.tag);
+            write.transaction = transaction;
+            write.expected = current;
+            sendWrite(write);
+        }
+
+        private void sendWrite(PendingWrite write) {
+            pending.add(write);
+            stats.writesSent++;
+            changeVisible(write.paths.keySet(), () -> visible.apply(write.paths));
+
+            long arrival = Math.max(scheduler.now() + sample(profile), lastUpstream);
+            lastUpstream = arrival;
+            scheduler.scheduleAt(arrival, () -> receiveWrite(this, write));
+        }
+
+        /**
+         * Read a path once. Answered from the local view if the path is already being listened to.
+         * @param path
+         * @param listener
+         */
+        public void once(String path, ValueListener listener) {
+            if (isSynced(path)) {
+                listener.onDataChange(DataTree.copy(visible.get(path)));
+                return;
+            }
+            long arrival = Math.max(scheduler.now() + sample(profile), lastUpstream);
+            lastUpstream = arrival;
+            scheduler.scheduleAt(arrival, () -> {
+                Object value = DataTree.copy(server.get(path));
+                long back = Math.max(scheduler.now() + sample(profile), lastDownstream);
+                lastDownstream = back;
+                scheduler.scheduleAt(back, () -> listener.onDataChange(value));
+            });
+        }
+
+        /**
+         * Listen to the value of a path
+         * @param path
+         * @param listener
+         */
+        public void addValueListener(String path, ValueListener listener) {
+            subscribe(new Subscription(path, listener, null));
+        }
+
+        /**
+         * Listen to the children of a path
+         * @param path
+         * @param listener
+         */
+        public void addChildListener(String path, ChildListener listener) {
+            subscribe(new Subscription(path, null, listener));
+        }
+
+        /**
+         * Stop a value or child listener
+         * @param listener
+         */
+        public void removeListener(Object listener) {
+            for (Iterator<Subscription> it = subscriptions.iterator(); it.hasNext(); ) {
+                Subscription subscription = it.next();
+                if (subscription.valueListener == listener || subscription.childListener == listener) {
+                    it.remove();
+                }
+            }
+        }
+
+        /**
+         * Get the value this client currently shows for a path
+         * @param path
+         * @return the value
+         */
+        public Object getLocalValue(String path) {
+            return visible.get(path);
+        }
+
+        /**
+         * @return number of writes not yet committed or rejected by the server
+         */
+        public int getPendingWriteCount() {
+            return pending.size();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public VirtualScheduler getScheduler() {
+            return scheduler;
+        }
+
+        private void subscribe(Subscription subscription) {
+            subscriptions.add(subscription);
+            if (isSynced(subscription.path)) {
+                subscription.initialize(visible.get(subscription.path));
+                return;
+            }
+            // Ask the server for the current value, the answer comes back like any other change
+            long arrival = Math.max(scheduler.now() + sample(profile), lastUpstream);
+            lastUpstream = arrival;
+            scheduler.scheduleAt(arrival, () -> send(new Message(
+                    currentValues(Collections.singletonList(subscription.path)), null, null, false)));
+        }
+
+        private boolean isSynced(String path) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.initialized && DataTree.isAncestorOrSelf(subscription.path, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isListeningTo(Collection<String> paths) {
+            for (Subscription subscription : subscriptions) {
+                for (String path : paths) {
+                    if (DataTree.related(subscription.path, path)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void send(Message message) {
+            long arrival = Math.max(scheduler.now() + sample(profile), lastDownstream);
+            lastDownstream = arrival;
+            scheduler.scheduleAt(arrival, () -> receive(message));
+        }
+
+        /**
+         * A message from the server arrived: take the server's values, put the writes that are
+         * still pending back on top of them, and acknowledge the write the message answers
+         * @param message
+         */
+        private void receive(Message message) {
+            stats.messagesDelivered++;
+            changeVisible(message.values.keySet(), () -> {
+                if (message.ack != null) {
+                    pending.remove(message.ack);
+                }
+                for (Map.Entry<String, Object> value : message.values.entrySet()) {
+                    serverView.set(value.getKey(), value.getValue());
+                    visible.set(value.getKey(), value.getValue());
+                }
+                for (PendingWrite write : pending) {
+                    for (Map.Entry<String, Object> path : write.paths.entrySet()) {
+                        if (relatedToAny(path.getKey(), message.values.keySet())) {
+                            visible.set(path.getKey(), visible.resolve(path.getKey(), path.getValue()));
+                        }
+                    }
+                }
+            });
+
+            // Listeners that were waiting for their first value
+            for (Subscription subscription : new ArrayList<>(subscriptions)) {
+                if (!subscription.initialized && message.values.containsKey(subscription.path)) {
+                    subscription.initialize(visible.get(subscription.path));
+                }
+            }
+            if (message.ack == null) {
+                return;
+            }
+            Transaction transaction = message.ack.transaction;
+            if (transaction != null && message.stale) {
+                attempt(transaction);
+            } else if (transaction != null) {
+                transaction.listener.onComplete(message.error == null ? message.values.get(transaction.path) : null, message.error);
+            } else if (message.ack.listener != null) {
+                message.ack.listener.onComplete(message.error);
+            }
+        }
+
+        /**
+         * Run a change of the local view and fire the listeners whose value changed
+         * @param paths paths touched by the change
+         * @param change
+         */
+        private void changeVisible(Collection<String> paths, Runnable change) {
+            List<Subscription> affected = new ArrayList<>();
+            List<Object> before = new ArrayList<>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.initialized && relatedToAny(subscription.path, paths)) {
+                    affected.add(subscription);
+                    before.add(DataTree.copy(visible.get(subscription.path)));
+                }
+            }
+            change.run();
+            for (int i = 0; i < affected.size(); i++) {
+                Subscription subscription = affected.get(i);
+                if (subscriptions.contains(subscription)) {
+                    subscription.fire(before.get(i), visible.get(subscription.path));
+                }
+            }
+        }
+    }
+
+    /**
+     * A path in the database, in the style of DatabaseReference
+     */
+    public static final class Reference {
+        private final Client client;
+        private final String path;
+
+        private Reference(Client client, String path) {
+            this.client = client;
+            this.path = path;
+        }
+
+        public Reference child(String childPath) {
+            return new Reference(client, path.isEmpty() ? childPath : path + "/" + childPath);
+        }
+
+        public Reference push() {
+            return child(client.pushKey());
+        }
+
+        public String getKey() {
+            return path.isEmpty() ? null : path.substring(path.lastIndexOf('/') + 1);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setValue(Object value, CompletionListener listener) {
+            client.update(Collections.singletonMap(path, value), listener);
+        }
+
+        public void removeValue(CompletionListener listener) {
+            setValue(null, listener);
+        }
+
+        /**
+         * @param children paths relative to this reference
+         * @param listener
+         */
+        public void updateChildren(Map<String, Object> children, CompletionListener listener) {
+            Map<String, Object> paths = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> child : children.entrySet()) {
+                paths.put(path.isEmpty() ? child.getKey() : path + "/" + child.getKey(), child.getValue());
+            }
+            client.update(paths, listener);
+        }
+
+        public void addValueEventListener(ValueListener listener) {
+            client.addValueListener(path, listener);
+        }
+
+        public void addChildEventListener(ChildListener listener) {
+            client.addChildListener(path, listener);
+        }
+
+        public void addListenerForSingleValueEvent(ValueListener listener) {
+            client.once(path, listener);
+        }
+
+        public void removeEventListener(Object listener) {
+            client.removeListener(listener);
+        }
+    }
+
+    /**
+     * Receives the value of a path, once when attached and then every time it changes
+     */
+    public interface ValueListener {
+        void onDataChange(Object value);
+    }
+
+    /**
+     * Receives the changes of the children of a path
+     */
+    public interface ChildListener {
+        void onChildAdded(String key, Object value);
+        void onChildChanged(String key, Object value);
+        void onChildRemoved(String key, Object value);
+    }
+
+    /**
+     * Computes the new value of a transaction
+     */
+    public interface TransactionHandler {
+        /**
+         * @param current value the client knows, null if none
+         * @return the new value
+         * @throws Exception to give up
+         */
+        Object apply(Object current) throws Exception;
+    }
+
+    /**
+     * Receives the outcome of a transaction
+     */
+    public interface TransactionListener {
+        /**
+         * @param committed the value the server stored, null if the transaction failed
+         * @param error null if the server committed the transaction
+         */
+        void onComplete(Object committed, Exception error);
+    }
+
+    /**
+     * Receives the outcome of a write
+     */
+    public interface CompletionListener {
+        /**
+         * @param error null if the server committed the write
+         */
+        void onComplete(Exception error);
+    }
+
+    /**
+     * A validation rule of the server
+     */
+    public interface Rule {
+        /**
+         * @param data the server's data with the write applied
+         * @param paths the written paths
+         * @return false to refuse the write
+         */
+        boolean allows(DataTree data, Collection<String> paths);
+    }
+
+    /**
+     * Sees the writes arriving at the server
+     */
+    public interface WriteObserver {
+        /**
+         * @param writer client that sent the write
+         * @param tag label the writer put on the write, see {@link Client#setWriteTag(Object)}
+         * @param before server values of the written paths before the write
+         * @param after server values of the written paths after the write, the same as before if it was rejected
+         * @param error null if the server committed the write
+         */
+        void onWrite(Client writer, Object tag, Map<String, Object> before, Map<String, Object> after, Exception error);
+    }
+
+    /**
+     * Counters of what went over the simulated network
+     */
+    public static final class Stats {
+        private long writesSent;
+        private long writesApplied;
+        private long writesFailed;
+        private long messagesDelivered;
+        private long listenerCallbacks;
+
+        public long getWritesSent() {
+            return writesSent;
+        }
+
+        public long getWritesApplied() {
+            return writesApplied;
+        }
+
+        public long getWritesFailed() {
+            return writesFailed;
+        }
+
+        /**
+         * @return messages from the server to the clients, acknowledgements included
+         */
+        public long getMessagesDelivered() {
+            return messagesDelivered;
+        }
+
+        /**
+         * @return calls to value and child listeners on every client
+         */
+        public long getListenerCallbacks() {
+            return listenerCallbacks;
+        }
+    }
+
+    private final class Subscription {
+        private final String path;
+        private final ValueListener valueListener;
+        private final ChildListener childListener;
+        private boolean initialized;
+
+        private Subscription(String path, ValueListener valueListener, ChildListener childListener) {
+            this.path = path;
+            this.valueListener = valueListener;
+            this.childListener = childListener;
+        }
+
+        private void initialize(Object value) {
+            initialized = true;
+            fire(null, value);
+            if (valueListener != null && value == null) {
+                // A value listener is always called once, even for a missing node
+                stats.listenerCallbacks++;
+                valueListener.onDataChange(null);
+            }
+        }
+
+        private void fire(Object before, Object after) {
+            if (valueListener != null) {
+                if (!Objects.equals(before, after)) {
+                    stats.listenerCallbacks++;
+                    valueListener.onDataChange(DataTree.copy(after));
+                }
+                return;
+            }
+            Map<?, ?> oldChildren = before instanceof Map ? (Map<?, ?>) before : Collections.emptyMap();
+            Map<?, ?> newChildren = after instanceof Map ? (Map<?, ?>) after : Collections.emptyMap();
+            for (Map.Entry<?, ?> child : newChildren.entrySet()) {
+                Object old = oldChildren.get(child.getKey());
+                if (old == null) {
+                    stats.listenerCallbacks++;
+                    childListener.onChildAdded(String.valueOf(child.getKey()), DataTree.copy(child.getValue()));
+                } else if (!old.equals(child.getValue())) {
+                    stats.listenerCallbacks++;
+                    childListener.onChildChanged(String.valueOf(child.getKey()), DataTree.copy(child.getValue()));
+                }
+            }
+            for (Map.Entry<?, ?> child : oldChildren.entrySet()) {
+                if (!newChildren.containsKey(child.getKey())) {
+                    stats.listenerCallbacks++;
+                    childListener.onChildRemoved(String.valueOf(child.getKey()), child.getValue());
+                }
+            }
+        }
+    }
+
+    private static final class PendingWrite {
+        private final Map<String, Object> paths;
+        private final CompletionListener listener;
+        private final Object tag;
+        // Set for the writes of transactions, with the value the handler saw
+        private Transaction transaction;
+        private Object expected;
+
+        private PendingWrite(Map<String, Object> paths, CompletionListener listener, Object tag) {
+            this.paths = paths;
+            this.listener = listener;
+            this.tag = tag;
+        }
+    }
+
+    private static final class Transaction {
+        private final String path;
+        private final TransactionHandler handler;
+        private final TransactionListener listener;
+        private final Object tag;
+
+        private Transaction(String path, TransactionHandler handler, TransactionListener listener, Object tag) {
+            this.path = path;
+            this.handler = handler;
+            this.listener = listener;
+            this.tag = tag;
+        }
+    }
+
+    private static final class Message {
+        private final Map<String, Object> values;
+        private final PendingWrite ack;
+        private final Exception error;
+        // The acknowledged transaction ran on an old value and has to run again
+        private final boolean stale;
+
+        private Message(Map<String, Object> values, PendingWrite ack, Exception error, boolean stale) {
+            this.values = values;
+            this.ack = ack;
+            this.error = error;
+            this.stale = stale;
+        }
+    }
+
+    private static boolean relatedToAny(String path, Collection<String> paths) {
+        for (String other : paths) {
+            if (DataTree.related(path, other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
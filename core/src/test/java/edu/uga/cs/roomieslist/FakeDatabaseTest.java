@@ -0,0 +1,281 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link FakeDatabase}, and the end-to-end latency of the main shopping operations
+ * on simulated networks.
+ */
+public class FakeDatabaseTest {
+
+    private static final String GROUP = "group-1";
+    private static final int OPERATIONS = 200;
+
+    private VirtualScheduler scheduler;
+    private FakeDatabase database;
+
+    @Before
+    public void setUp() {
+        scheduler = new VirtualScheduler();
+        database = new FakeDatabase(scheduler, 7);
+    }
+
+    @Test
+    public void localWrite_isVisibleBeforeTheServerAnswers() {
+        FakeDatabase.Client phone = database.connect("phone", new FakeDatabase.NetworkProfile(100, 0, 0.0));
+        List<Object> values = new ArrayList<>();
+        phone.addValueListener("ShoppingList/" + GROUP, values::add);
+        scheduler.runUntilIdle();
+
+        List<Exception> acks = new ArrayList<>();
+        phone.getReference("ShoppingList/" + GROUP + "/a").setValue("Milk", acks::add);
+
+        assertEquals(2, values.size());
+        assertNull(database.getServerValue("ShoppingList/" + GROUP + "/a"));
+        assertTrue(acks.isEmpty());
+
+        scheduler.runUntilIdle();
+        assertEquals("Milk", database.getServerValue("ShoppingList/" + GROUP + "/a"));
+        assertEquals(Collections.<Exception>singletonList(null), acks);
+        // The server's answer matches the local value, so no second change is reported
+        assertEquals(2, values.size());
+    }
+
+    @Test
+    public void otherClients_seeTheWriteAfterTheRoundTrip() {
+        FakeDatabase.Client writer = database.connect("writer", new FakeDatabase.NetworkProfile(100, 0, 0.0));
+        FakeDatabase.Client reader = database.connect("reader", new FakeDatabase.NetworkProfile(50, 0, 0.0));
+        List<Long> seenAt = new ArrayList<>();
+        reader.addChildListener("ShoppingList/" + GROUP, new ChildRecorder() {
+            @Override
+            public void onChildAdded(String key, Object value) {
+                seenAt.add(scheduler.now());
+            }
+        });
+        scheduler.runUntilIdle();
+
+        long start = scheduler.now();
+        writer.getReference("ShoppingList/" + GROUP + "/a").setValue("Milk", null);
+        scheduler.runUntilIdle();
+
+        assertEquals(Arrays.asList(start + 150), seenAt);
+    }
+
+    @Test
+    public void failedWrite_isRolledBack() {
+        FakeDatabase.Client phone = database.connect("phone", new FakeDatabase.NetworkProfile(10, 0, 1.0));
+        phone.addValueListener("ShoppingList/" + GROUP, value -> { });
+        scheduler.runUntilIdle();
+
+        List<Exception> acks = new ArrayList<>();
+        phone.getReference("ShoppingList/" + GROUP + "/a").setValue("Milk", acks::add);
+        assertEquals("Milk", phone.getLocalValue("ShoppingList/" + GROUP + "/a"));
+
+        scheduler.runUntilIdle();
+        assertNull(phone.getLocalValue("ShoppingList/" + GROUP + "/a"));
+        assertNotNull(acks.get(0));
+        assertEquals(1, database.getStats().getWritesFailed());
+    }
+
+    @Test
+    public void concurrentIncrements_addUp() {
+        FakeDatabase.Client first = database.connect("first", FakeDatabase.NetworkProfile.MOBILE_3G);
+        FakeDatabase.Client second = database.connect("second", FakeDatabase.NetworkProfile.WIFI);
+        String path = "Ledger/" + GROUP + "/Ana/spentCents";
+        long[] committedCents = new long[1];
+        for (int i = 0; i < 50; i++) {
+            first.update(Collections.<String, Object>singletonMap(path, new GroupUpdate.Increment(100)),
+                    error -> committedCents[0] += error == null ? 100 : 0);
+            second.update(Collections.<String, Object>singletonMap(path, new GroupUpdate.Increment(1)),
+                    error -> committedCents[0] += error == null ? 1 : 0);
+        }
+        scheduler.runUntilIdle();
+
+        // Every committed increment counts, none is overwritten by another device
+        assertEquals(100, database.getStats().getWritesApplied() + database.getStats().getWritesFailed());
+        assertEquals(committedCents[0], database.getServerValue(path));
+    }
+
+    @Test
+    public void transaction_runsAgainOnTheStoredValue() {
+        FakeDatabase.Client writer = database.connect("writer", new FakeDatabase.NetworkProfile(10, 0, 0.0));
+        FakeDatabase.Client counter = database.connect("counter", new FakeDatabase.NetworkProfile(100, 0, 0.0));
+        String path = "Counters/" + GROUP;
+        counter.addValueListener(path, value -> { });
+        scheduler.runUntilIdle();
+
+        // The counter's local value is still null when its transaction reaches the server
+        writer.getReference(path).setValue(5L, null);
+        List<Object> seen = new ArrayList<>();
+        List<Object> committed = new ArrayList<>();
+        counter.transaction(path, current -> {
+            seen.add(current);
+            return current == null ? 1L : (Long) current + 1;
+        }, (value, error) -> committed.add(value));
+        assertEquals(1L, counter.getLocalValue(path));
+        scheduler.runUntilIdle();
+
+        assertEquals(Arrays.<Object>asList(null, 5L), seen);
+        assertEquals(Collections.<Object>singletonList(6L), committed);
+        assertEquals(6L, database.getServerValue(path));
+        assertEquals(6L, counter.getLocalValue(path));
+    }
+
+    @Test
+    public void childListener_reportsEachChange() {
+        FakeDatabase.Client phone = database.connect("phone", FakeDatabase.NetworkProfile.LOCAL);
+        List<String> events = new ArrayList<>();
+        phone.addChildListener("ShoppingList/" + GROUP, new FakeDatabase.ChildListener() {
+            @Override
+            public void onChildAdded(String key, Object value) {
+                events.add("added " + key);
+            }
+
+            @Override
+            public void onChildChanged(String key, Object value) {
+                events.add("changed " + key);
+            }
+
+            @Override
+            public void onChildRemoved(String key, Object value) {
+                events.add("removed " + key);
+            }
+        });
+        scheduler.runUntilIdle();
+
+        FakeDatabase.Reference list = phone.getReference("ShoppingList/" + GROUP);
+        list.child("a").setValue("Milk", null);
+        list.child("a").setValue("Oat Milk", null);
+        list.child("a").removeValue(null);
+        scheduler.runUntilIdle();
+
+        assertEquals(Arrays.asList("added a", "changed a", "removed a"), events);
+    }
+
+    @Test
+    public void endToEndLatency_onSimulatedNetworks() {
+        Map<String, FakeDatabase.NetworkProfile> profiles = new LinkedHashMap<>();
+        profiles.put("wifi", FakeDatabase.NetworkProfile.WIFI);
+        profiles.put("3g", FakeDatabase.NetworkProfile.MOBILE_3G);
+        profiles.put("bad", FakeDatabase.NetworkProfile.BAD);
+
+        for (Map.Entry<String, FakeDatabase.NetworkProfile> profile : profiles.entrySet()) {
+            setUp();
+            FakeShoppingRepository phone = new FakeShoppingRepository(GROUP, database.connect("phone", profile.getValue()));
+            FakeShoppingRepository roommate = new FakeShoppingRepository(GROUP, database.connect("roommate", FakeDatabase.NetworkProfile.WIFI));
+            Map<String, Long> seenByRoommate = new HashMap<>();
+            roommate.getClient().addChildListener(GroupUpdate.SHOPPING_BASKET + "/" + GROUP, new ChildRecorder() {
+                @Override
+                public void onChildAdded(String key, Object value) {
+                    seenByRoommate.put(key, scheduler.now());
+                }
+            });
+            scheduler.runUntilIdle();
+
+            Latencies move = new Latencies();
+            Latencies visible = new Latencies();
+            Latencies checkout = new Latencies();
+            Latencies save = new Latencies();
+            for (int i = 0; i < OPERATIONS; i++) {
+                Item item = phone.addItem("Item " + i, 1, "Ana", (result, error) -> { });
+                item.setPrice(1.25);
+                scheduler.runUntilIdle();
+
+                // markItemsAsPurchased
+                long start = scheduler.now();
+                phone.moveToBasket(Arrays.asList(item), move.recorder(scheduler, start));
+                scheduler.runUntilIdle();
+                if (seenByRoommate.containsKey(item.getItemId())) {
+                    visible.add(seenByRoommate.get(item.getItemId()) - start);
+                }
+
+                // checkoutItems
+                start = scheduler.now();
+                PurchasedRecord record = phone.checkout("Ana", Arrays.asList(item), checkout.recorder(scheduler, start));
+                scheduler.runUntilIdle();
+
+                // saveChanges
+                start = scheduler.now();
+                phone.saveRecord(record, Collections.<Item>emptyList(), save.recorder(scheduler, start));
+                scheduler.runUntilIdle();
+            }
+
+            assertEquals(OPERATIONS, move.count() + move.failures);
+            assertEquals(OPERATIONS, checkout.count() + checkout.failures);
+            assertEquals(OPERATIONS, save.count() + save.failures);
+            // A write is confirmed after a round trip, the roommate sees it after the way up and the way down
+            assertTrue(move.percentile(50) >= 2 * profile.getValue().getLatencyMillis());
+            assertTrue(visible.count() > 0);
+            assertTrue(visible.percentile(50) >= profile.getValue().getLatencyMillis()
+                    + FakeDatabase.NetworkProfile.WIFI.getLatencyMillis());
+        }
+    }
+
+    /**
+     * Collects the latencies of one operation
+     */
+    private static final class Latencies {
+        private final List<Long> values = new ArrayList<>();
+        private int failures;
+
+        ShoppingRepository.Callback<Void> recorder(VirtualScheduler scheduler, long start) {
+            return (result, error) -> {
+                if (error != null) {
+                    failures++;
+                } else {
+                    add(scheduler.now() - start);
+                }
+            };
+        }
+
+        void add(long millis) {
+            values.add(millis);
+        }
+
+        int count() {
+            return values.size();
+        }
+
+        long percentile(int percent) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("p50 %4dms p95 %4dms failed %d", percentile(50), percentile(95), failures);
+        }
+    }
+
+    /**
+     * Child listener that ignores the events a test does not care about
+     */
+    private abstract static class ChildRecorder implements FakeDatabase.ChildListener {
+        @Override
+        public void onChildAdded(String key, Object value) {
+        }
+
+        @Override
+        public void onChildChanged(String key, Object value) {
+        }
+
+        @Override
+        public void onChildRemoved(String key, Object value) {
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the shopping rules of {@link AbstractShoppingRepository} against one client of a {@link FakeDatabase},
+ * the same way FirebaseShoppingRepository runs them against the real database.
+ */
+public class FakeShoppingRepository extends AbstractShoppingRepository {
+
+    // Variables
+    private final FakeDatabase.Client client;
+
+    /**
+     * Constructor
+     * @param groupId
+     * @param client connection of the device using the repository
+     */
+    public FakeShoppingRepository(String groupId, FakeDatabase.Client client) {
+        super(groupId);
+        this.client = client;
+    }
+
+    public FakeDatabase.Client getClient() {
+        return client;
+    }
+
+    @Override
+    protected long now() {
+        // Purchases are stamped with the simulated time
+        return client.getScheduler().now();
+    }
+
+    @Override
+    protected String newKey(String node) {
+        return client.pushKey();
+    }
+
+    @Override
+    protected void commit(GroupUpdate update, Callback<Void> callback) {
+        if (update.isEmpty()) {
+            callback.onComplete(null, null);
+            return;
+        }
+        client.update(update.toPaths(), error -> callback.onComplete(null, error));
+    }
+
+    @Override
+    protected void runTransaction(String path, Mutation mutation, Callback<Object> callback) {
+        client.transaction(path, mutation::apply, callback::onComplete);
+    }
+
+    @Override
+    protected void loadItems(String node, Callback<List<Item>> callback) {
+        client.once(node + "/" + groupId, raw -> {
+            List<Item> items = new ArrayList<>();
+            for (Map.Entry<?, ?> child : children(raw)) {
+                Item item = ModelCodec.decodeItem(String.valueOf(child.getKey()), child.getValue());
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            callback.onComplete(Collections.unmodifiableList(items), null);
+        });
+    }
+
+    @Override
+    public void loadRecord(String purchaseId, Callback<PurchasedRecord> callback) {
+        client.once(GroupUpdate.PURCHASED_ITEMS + "/" + groupId + "/" + purchaseId,
+                raw -> callback.onComplete(ModelCodec.decodeRecord(purchaseId, raw), null));
+    }
+
+    @Override
+    protected void loadValue(String path, Callback<Object> callback) {
+        client.once(path, raw -> callback.onComplete(raw, null));
+    }
+
+    @Override
+    protected void loadAisleCounts(Callback<Map<String, Map<String, Long>>> callback) {
+        client.once(GroupUpdate.AISLE_ORDER + "/" + groupId, raw -> callback.onComplete(ModelCodec.decodeAisleCounts(raw), null));
+    }
+
+    @Override
+    protected void loadRollups(String period, String fromBucket, String toBucket, Callback<SpendingRollup> callback) {
+        client.once(GroupUpdate.SPENDING + "/" + groupId + "/" + period,
+                raw -> callback.onComplete(ModelCodec.decodeSpending(period, raw).between(fromBucket, toBucket), null));
+    }
+
+    @Override
+    protected void loadMemberIndex(Callback<Map<String, String>> callback) {
+        client.once(GroupUpdate.GROUPS + "/" + groupId + "/" + GroupUpdate.MEMBERS, raw -> {
+            Map<String, String> members = new HashMap<>();
+            for (Map.Entry<?, ?> child : children(raw)) {
+                members.put(String.valueOf(child.getKey()), String.valueOf(child.getValue()));
+            }
+            callback.onComplete(members, null);
+        });
+    }
+
+    @Override
+    protected void loadGroupUsers(Callback<Map<String, User>> callback) {
+        // The fake has no queries, the filter on groupId is done here
+        client.once(GroupUpdate.USERS, raw -> {
+            Map<String, User> users = new HashMap<>();
+            for (Map.Entry<?, ?> child : children(raw)) {
+                User user = ModelCodec.decodeUser(child.getValue());
+                if (user != null && groupId.equals(user.groupId)) {
+                    users.put(String.valueOf(child.getKey()), user);
+                }
+            }
+            callback.onComplete(users, null);
+        });
+    }
+
+    private static Collection<? extends Map.Entry<?, ?>> children(Object raw) {
+        return raw instanceof Map ? ((Map<?, ?>) raw).entrySet() : Collections.<Map.Entry<?, ?>>emptySet();
+    }
+}
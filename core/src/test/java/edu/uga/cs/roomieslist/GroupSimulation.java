@@ -0,0 +1,674 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Runs several roommates' devices against one group on a {@link FakeDatabase}.
+ * Every device adds, edits, checks off and checks out items at random times, the way the
+ * activities do: edits and check boxes write the whole item from the device's copy of the list,
+ * or as chosen with {@link Config#writeMode(WriteMode)}.
+ * The server watches every write to count the changes that overwrite someone else's.
+ * Time is virtual and every random choice comes from the seed, so a run can be repeated exactly.
+ */
+public class GroupSimulation {
+
+    private static final String GROUP = "group-1";
+    private static final String LIST_PATH = GroupUpdate.SHOPPING_LIST + "/" + GROUP;
+    private static final String BASKET_PATH = GroupUpdate.SHOPPING_BASKET + "/" + GROUP;
+    private static final int INITIAL_ITEMS = 20;
+
+    // Fields of an item written by each kind of change
+    private static final Set<String> EDIT_FIELDS = new HashSet<>(Arrays.asList(ModelCodec.NAME, ModelCodec.AMOUNT));
+    private static final Set<String> TOGGLE_FIELDS = new HashSet<>(Arrays.asList(
+            ModelCodec.PURCHASED, ModelCodec.PRICE, ModelCodec.PURCHASED_BY, ModelCodec.SELECTED));
+
+    // Variables
+    private final Config config;
+    private final VirtualScheduler scheduler = new VirtualScheduler();
+    private final FakeDatabase database;
+    private final Random random;
+    private final List<Device> devices = new ArrayList<>();
+    private final Map<String, Long> addedAt = new HashMap<>();
+    private final Map<String, Device> addedBy = new HashMap<>();
+    private final List<Long> propagation = new ArrayList<>();
+    private long operations;
+    private long lostUpdates;
+    private long resurrectedItems;
+    private long doubleCheckouts;
+
+    /**
+     * Constructor
+     * @param config devices, network and rates of the run
+     */
+    public GroupSimulation(Config config) {
+        this.config = config;
+        this.database = new FakeDatabase(scheduler, config.seed);
+        this.random = new Random(config.seed);
+    }
+
+    /**
+     * Run the simulation once
+     * @return what happened
+     */
+    public Report run() {
+        for (int i = 0; i < INITIAL_ITEMS; i++) {
+            Item item = new Item(String.format(Locale.US, "initial-%02d", i), "Item " + i, 0.0, null, "setup", GROUP, 1);
+            database.setServerValue(LIST_PATH + "/" + item.getItemId(), ModelCodec.encodeItem(item));
+        }
+        // A group in use already has the time zone its spending is counted in
+        database.setServerValue(GroupUpdate.GROUPS + "/" + GROUP + "/" + GroupUpdate.TIME_ZONE, "America/New_York");
+        for (int i = 0; i < config.devices; i++) {
+            devices.add(new Device("device" + i, database.connect("device" + i, config.profile)));
+        }
+        database.setWriteObserver(this::onServerWrite);
+        database.setRule(GroupSimulation::hasNamedItems);
+        PerfMetrics.reset();
+        scheduler.runUntilIdle();
+
+        // Only count the load itself, not the first sync of the devices
+        long start = scheduler.now();
+        long end = start + config.durationMillis;
+        long callbacksBefore = database.getStats().getListenerCallbacks();
+        long messagesBefore = database.getStats().getMessagesDelivered();
+        long appliedBefore = database.getStats().getWritesApplied();
+        for (Device device : devices) {
+            for (Operation operation : Operation.values()) {
+                scheduleNext(device, operation, end);
+            }
+        }
+        scheduler.runUntilIdle();
+
+        long applied = database.getStats().getWritesApplied() - appliedBefore;
+        return new Report(
+                config.devices,
+                operations,
+                applied,
+                database.getStats().getWritesFailed(),
+                applied * 1000.0 / config.durationMillis,
+                Math.max(0, scheduler.now() - end),
+                hasConverged(),
+                percentile(propagation, 50),
+                percentile(propagation, 95),
+                lostUpdates,
+                resurrectedItems,
+                doubleCheckouts,
+                database.getStats().getListenerCallbacks() - callbacksBefore,
+                database.getStats().getMessagesDelivered() - messagesBefore,
+                PayloadSize.averageBytes(config.writeMode.operation),
+                PerfMetrics.get(AbstractShoppingRepository.TRANSACTION_CONFLICTS),
+                PerfMetrics.get(AbstractShoppingRepository.TRANSACTION_RETRIES));
+    }
+
+    private void scheduleNext(Device device, Operation operation, long end) {
+        double perMinute = config.rate(operation);
+        if (perMinute <= 0) {
+            return;
+        }
+        // Poisson arrivals, the time between two operations is exponential
+        long delay = (long) (-Math.log(1.0 - random.nextDouble()) * 60_000 / perMinute);
+        if (scheduler.now() + delay >= end) {
+            return;
+        }
+        scheduler.schedule(delay, () -> {
+            perform(device, operation);
+            scheduleNext(device, operation, end);
+        });
+    }
+
+    private void perform(Device device, Operation operation) {
+        switch (operation) {
+            case ADD:
+                add(device);
+                break;
+            case EDIT:
+                edit(device);
+                break;
+            case TOGGLE:
+                toggle(device);
+                break;
+            case CHECKOUT:
+                checkout(device);
+                break;
+        }
+    }
+
+    /**
+     * Add a new item, like the add item dialog
+     * @param device
+     */
+    private void add(Device device) {
+        operations++;
+        device.client.setWriteTag(new Change(Operation.ADD, Collections.<String>emptySet()));
+        Item item = device.repository.addItem("Item " + operations, 1 + random.nextInt(3), device.name, (result, error) -> { });
+        addedAt.put(item.getItemId(), scheduler.now());
+        addedBy.put(item.getItemId(), device);
+    }
+
+    /**
+     * Change the name or the amount of an item, like showEditItemDialog
+     * @param device
+     */
+    private void edit(Device device) {
+        Item item = pick(device.list);
+        if (item == null) {
+            return;
+        }
+        operations++;
+        Item copy = new Item(item);
+        if (random.nextBoolean()) {
+            copy.setName(item.getName() + "*");
+        } else {
+            copy.setAmount(item.getAmount() + 1);
+        }
+        device.client.setWriteTag(new Change(Operation.EDIT, EDIT_FIELDS));
+        write(device, copy);
+    }
+
+    /**
+     * Check or uncheck an item, like the check box of ShoppingListAdapter
+     * @param device
+     */
+    private void toggle(Device device) {
+        Item item = pick(device.list);
+        if (item == null) {
+            return;
+        }
+        operations++;
+        Item copy = new Item(item);
+        boolean purchased = !item.isPurchased();
+        copy.setPurchased(purchased);
+        copy.setSelected(purchased);
+        copy.setPrice(purchased ? 1 + random.nextInt(500) / 100.0 : 0.0);
+        copy.setPurchasedBy(purchased ? device.name : null);
+        device.client.setWriteTag(new Change(Operation.TOGGLE, TOGGLE_FIELDS));
+        write(device, copy);
+    }
+
+    private void write(Device device, Item item) {
+        switch (config.writeMode) {
+            case WHOLE_ITEM:
+                device.repository.updateItem(item, (result, error) -> { });
+                break;
+            case CHANGED_FIELDS:
+                device.repository.updateItemFields(item, (result, error) -> { });
+                break;
+            case COMPARE_AND_SET:
+                device.repository.compareAndSetItem(item, (result, error) -> { });
+                break;
+        }
+    }
+
+    /**
+     * Move the checked items to the basket, like markItemsAsPurchased,
+     * then check out the basket, like checkoutItems
+     * @param device
+     */
+    private void checkout(Device device) {
+        List<Item> checked = new ArrayList<>();
+        for (Item item : device.list.values()) {
+            if (item.isPurchased()) {
+                checked.add(new Item(item));
+            }
+        }
+        if (!checked.isEmpty()) {
+            operations++;
+            device.client.setWriteTag(new Change(Operation.CHECKOUT, Collections.<String>emptySet()));
+            device.repository.moveToBasket(checked, (result, error) -> { });
+        }
+        // The local view already holds the moved items, the database applies local writes right away
+        List<Item> basket = new ArrayList<>(device.basket.values());
+        if (!basket.isEmpty()) {
+            operations++;
+            device.client.setWriteTag(new Change(Operation.CHECKOUT, Collections.<String>emptySet()));
+            device.repository.checkout(device.name, basket, (result, error) -> { });
+        }
+    }
+
+    /**
+     * Compare each write with what the server held before it. A write that changes a field its
+     * change did not touch has put back an older value, so someone else's update is lost.
+     */
+    private void onServerWrite(FakeDatabase.Client writer, Object tag, Map<String, Object> before, Map<String, Object> after, Exception error) {
+        Change change = (Change) tag;
+        if (change == null || error != null) {
+            return;
+        }
+        for (Map.Entry<String, Object> path : after.entrySet()) {
+            Object old = before.get(path.getKey());
+            Object now = path.getValue();
+            if (isItemPath(LIST_PATH, path.getKey())) {
+                if (old == null && now != null && change.operation != Operation.ADD) {
+                    // The item had already been moved or bought, the stale copy brings it back
+                    resurrectedItems++;
+                } else if (old instanceof Map && now instanceof Map && !change.fields.containsAll(changedFields((Map<?, ?>) old, (Map<?, ?>) now))) {
+                    lostUpdates++;
+                }
+            } else if (isItemPath(BASKET_PATH, path.getKey())) {
+                if (old == null && now == null && change.operation == Operation.CHECKOUT) {
+                    // Someone else checked the item out first, it is paid for twice
+                    doubleCheckouts++;
+                } else if (old == null && now != null && !wasInList(before, path.getKey())) {
+                    resurrectedItems++;
+                }
+            }
+        }
+    }
+
+    /**
+     * The rule of database.rules.json: items in the list and the basket always have an id and a name,
+     * so a partial update can not bring back a stub of an item that was removed
+     */
+    private static boolean hasNamedItems(DataTree data, Collection<String> paths) {
+        for (String path : paths) {
+            String[] keys = path.split("/");
+            if (keys.length < 3 || !(keys[0].equals(GroupUpdate.SHOPPING_LIST) || keys[0].equals(GroupUpdate.SHOPPING_BASKET))) {
+                continue;
+            }
+            Object item = data.get(keys[0] + "/" + keys[1] + "/" + keys[2]);
+            if (item instanceof Map && !(((Map<?, ?>) item).containsKey(ModelCodec.ITEM_ID) && ((Map<?, ?>) item).containsKey(ModelCodec.NAME))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Field updates are left out, they can not change the fields of someone else's change
+     */
+    private static boolean isItemPath(String node, String path) {
+        return path.startsWith(node + "/") && path.indexOf('/', node.length() + 1) < 0;
+    }
+
+    private static boolean wasInList(Map<String, Object> before, String basketPath) {
+        String itemId = basketPath.substring(BASKET_PATH.length() + 1);
+        return before.get(LIST_PATH + "/" + itemId) != null;
+    }
+
+    private static Set<String> changedFields(Map<?, ?> old, Map<?, ?> now) {
+        Set<String> fields = new HashSet<>();
+        Set<Object> keys = new HashSet<>(old.keySet());
+        keys.addAll(now.keySet());
+        // Every kind of write counts the version up
+        keys.remove(ModelCodec.VERSION);
+        for (Object key : keys) {
+            if (!Objects.equals(old.get(key), now.get(key))) {
+                fields.add(String.valueOf(key));
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * @return true if every device shows exactly what the server holds and has nothing left to send
+     */
+    private boolean hasConverged() {
+        for (Device device : devices) {
+            if (device.client.getPendingWriteCount() > 0
+                    || !Objects.equals(device.client.getLocalValue(LIST_PATH), database.getServerValue(LIST_PATH))
+                    || !Objects.equals(device.client.getLocalValue(BASKET_PATH), database.getServerValue(BASKET_PATH))
+                    || !device.list.equals(decode(database.getServerValue(LIST_PATH)))
+                    || !device.basket.equals(decode(database.getServerValue(BASKET_PATH)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Item> decode(Object raw) {
+        Map<String, Item> items = new HashMap<>();
+        if (raw instanceof Map) {
+            for (Map.Entry<?, ?> child : ((Map<?, ?>) raw).entrySet()) {
+                items.put(String.valueOf(child.getKey()), ModelCodec.decodeItem(String.valueOf(child.getKey()), child.getValue()));
+            }
+        }
+        return items;
+    }
+
+    private Item pick(Map<String, Item> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        List<Item> values = new ArrayList<>(items.values());
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static long percentile(List<Long> values, int percent) {
+        if (values.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100));
+    }
+
+    /**
+     * What a roommate can do to the shared list
+     */
+    public enum Operation {
+        ADD, EDIT, TOGGLE, CHECKOUT
+    }
+
+    /**
+     * How edits and check boxes are written
+     */
+    public enum WriteMode {
+        // updateItem, the whole item from the device's copy
+        WHOLE_ITEM("updateItem"),
+        // updateItemFields, only the changed fields
+        CHANGED_FIELDS("updateItemFields"),
+        // compareAndSetItem, only if nobody changed the item since it was read
+        COMPARE_AND_SET("compareAndSetItem");
+
+        private final String operation;
+
+        WriteMode(String operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * One roommate's phone, keeping its own copy of the list and the basket up to date
+     * from child listeners, the way ItemSyncEngine does in the app
+     */
+    private final class Device {
+        private final String name;
+        private final FakeDatabase.Client client;
+        private final FakeShoppingRepository repository;
+        private final Map<String, Item> list = new LinkedHashMap<>();
+        private final Map<String, Item> basket = new LinkedHashMap<>();
+        private final Set<String> seen = new HashSet<>();
+
+        private Device(String name, FakeDatabase.Client client) {
+            this.name = name;
+            this.client = client;
+            this.repository = new FakeShoppingRepository(GROUP, client);
+            client.addChildListener(LIST_PATH, new ItemMirror(list) {
+                @Override
+                public void onChildAdded(String key, Object value) {
+                    super.onChildAdded(key, value);
+                    Long start = addedAt.get(key);
+                    if (start != null && addedBy.get(key) != Device.this && seen.add(key)) {
+                        propagation.add(scheduler.now() - start);
+                    }
+                }
+            });
+            client.addChildListener(BASKET_PATH, new ItemMirror(basket));
+        }
+    }
+
+    /**
+     * Keeps a map of items in step with the children of a node
+     */
+    private static class ItemMirror implements FakeDatabase.ChildListener {
+        private final Map<String, Item> items;
+
+        ItemMirror(Map<String, Item> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void onChildAdded(String key, Object value) {
+            items.put(key, ModelCodec.decodeItem(key, value));
+        }
+
+        @Override
+        public void onChildChanged(String key, Object value) {
+            items.put(key, ModelCodec.decodeItem(key, value));
+        }
+
+        @Override
+        public void onChildRemoved(String key, Object value) {
+            items.remove(key);
+        }
+    }
+
+    /**
+     * A write on its way to the server, with the item fields it means to change
+     */
+    private static final class Change {
+        private final Operation operation;
+        private final Set<String> fields;
+
+        private Change(Operation operation, Set<String> fields) {
+            this.operation = operation;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Settings of a run. Rates are operations per minute on each device.
+     */
+    public static final class Config {
+        private int devices = 4;
+        private FakeDatabase.NetworkProfile profile = FakeDatabase.NetworkProfile.WIFI;
+        private long durationMillis = 10 * 60_000;
+        private double addsPerMinute = 2;
+        private double editsPerMinute = 2;
+        private double togglesPerMinute = 3;
+        private double checkoutsPerMinute = 0.5;
+        private long seed = 1;
+        private WriteMode writeMode = WriteMode.WHOLE_ITEM;
+
+        public Config devices(int devices) {
+            this.devices = devices;
+            return this;
+        }
+
+        public Config network(FakeDatabase.NetworkProfile profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        public Config duration(long millis) {
+            this.durationMillis = millis;
+            return this;
+        }
+
+        /**
+         * Set how often each device does each operation
+         * @param adds per minute
+         * @param edits per minute
+         * @param toggles per minute
+         * @param checkouts per minute
+         * @return this config
+         */
+        public Config rates(double adds, double edits, double toggles, double checkouts) {
+            this.addsPerMinute = adds;
+            this.editsPerMinute = edits;
+            this.togglesPerMinute = toggles;
+            this.checkoutsPerMinute = checkouts;
+            return this;
+        }
+
+        /**
+         * Choose how edits and check boxes are written
+         * @param writeMode
+         * @return this config
+         */
+        public Config writeMode(WriteMode writeMode) {
+            this.writeMode = writeMode;
+            return this;
+        }
+
+        public Config seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        private double rate(Operation operation) {
+            switch (operation) {
+                case ADD:
+                    return addsPerMinute;
+                case EDIT:
+                    return editsPerMinute;
+                case TOGGLE:
+                    return togglesPerMinute;
+                default:
+                    return checkoutsPerMinute;
+            }
+        }
+    }
+
+    /**
+     * Outcome of a run
+     */
+    public static final class Report {
+        private final int devices;
+        private final long operations;
+        private final long writesCommitted;
+        private final long writesFailed;
+        private final double writesPerSecond;
+        private final long convergenceMillis;
+        private final boolean converged;
+        private final long propagationP50;
+        private final long propagationP95;
+        private final long lostUpdates;
+        private final long resurrectedItems;
+        private final long doubleCheckouts;
+        private final long listenerCallbacks;
+        private final long messagesDelivered;
+        private final double bytesPerEdit;
+        private final long conflicts;
+        private final long retries;
+
+        private Report(int devices, long operations, long writesCommitted, long writesFailed, double writesPerSecond,
+                       long convergenceMillis, boolean converged, long propagationP50, long propagationP95,
+                       long lostUpdates, long resurrectedItems, long doubleCheckouts,
+                       long listenerCallbacks, long messagesDelivered, double bytesPerEdit, long conflicts, long retries) {
+            this.devices = devices;
+            this.operations = operations;
+            this.writesCommitted = writesCommitted;
+            this.writesFailed = writesFailed;
+            this.writesPerSecond = writesPerSecond;
+            this.convergenceMillis = convergenceMillis;
+            this.converged = converged;
+            this.propagationP50 = propagationP50;
+            this.propagationP95 = propagationP95;
+            this.lostUpdates = lostUpdates;
+            this.resurrectedItems = resurrectedItems;
+            this.doubleCheckouts = doubleCheckouts;
+            this.listenerCallbacks = listenerCallbacks;
+            this.messagesDelivered = messagesDelivered;
+            this.bytesPerEdit = bytesPerEdit;
+            this.conflicts = conflicts;
+            this.retries = retries;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getWritesCommitted() {
+            return writesCommitted;
+        }
+
+        /**
+         * @return committed writes per simulated second
+         */
+        public double getWritesPerSecond() {
+            return writesPerSecond;
+        }
+
+        /**
+         * @return time from the end of the load until every device showed the server's data
+         */
+        public long getConvergenceMillis() {
+            return convergenceMillis;
+        }
+
+        public boolean hasConverged() {
+            return converged;
+        }
+
+        /**
+         * @return time for a new item to show up on another device, 50th percentile
+         */
+        public long getPropagationP50() {
+            return propagationP50;
+        }
+
+        public long getPropagationP95() {
+            return propagationP95;
+        }
+
+        /**
+         * @return committed edits that put back an older value of a field they did not change
+         */
+        public long getLostUpdates() {
+            return lostUpdates;
+        }
+
+        /**
+         * @return items written back to the list or basket from a stale copy after they had left it
+         */
+        public long getResurrectedItems() {
+            return resurrectedItems;
+        }
+
+        /**
+         * @return items checked out again after another device had already checked them out
+         */
+        public long getDoubleCheckouts() {
+            return doubleCheckouts;
+        }
+
+        /**
+         * @return listener calls on every device for each committed write
+         */
+        public double getCallbacksPerWrite() {
+            return writesCommitted == 0 ? 0 : (double) listenerCallbacks / writesCommitted;
+        }
+
+        /**
+         * @return server to device messages for each committed write
+         */
+        public double getMessagesPerWrite() {
+            return writesCommitted == 0 ? 0 : (double) messagesDelivered / writesCommitted;
+        }
+
+        /**
+         * @return average payload of the writes of edits and check boxes
+         */
+        public double getBytesPerEdit() {
+            return bytesPerEdit;
+        }
+
+        /**
+         * @return compare-and-set writes refused because the item had changed
+         */
+        public long getConflicts() {
+            return conflicts;
+        }
+
+        /**
+         * @return compare-and-set writes that had to run again on a newer value
+         */
+        public long getRetries() {
+            return retries;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%3d devices | %5d ops %5d writes (%d failed) %.2f/s | converged %s in %dms"
+                            + " | seen p50 %dms p95 %dms | lost %d resurrected %d double checkouts %d"
+                            + " | %.1f callbacks %.1f messages per write | %.0f bytes per edit"
+                            + " | %d conflicts %d retries",
+                    devices, operations, writesCommitted, writesFailed, writesPerSecond,
+                    converged ? "yes" : "no", convergenceMillis, propagationP50, propagationP95,
+                    lostUpdates, resurrectedItems, doubleCheckouts, getCallbacksPerWrite(), getMessagesPerWrite(), bytesPerEdit, conflicts, retries);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link GroupSimulation} to see how the shared list behaves as the group grows
+ */
+public class GroupSimulationTest {
+
+    @Test
+    public void sameSeed_givesTheSameRun() {
+        GroupSimulation.Config config = new GroupSimulation.Config().devices(4).network(FakeDatabase.NetworkProfile.MOBILE_3G).seed(3);
+
+        assertEquals(new GroupSimulation(config).run().toString(), new GroupSimulation(config).run().toString());
+    }
+
+    @Test
+    public void singleDevice_neverLosesItsOwnUpdates() {
+        GroupSimulation.Report report = new GroupSimulation(new GroupSimulation.Config()
+                .devices(1).network(FakeDatabase.NetworkProfile.MOBILE_3G).rates(5, 10, 10, 1)).run();
+
+        assertTrue(report.hasConverged());
+        assertEquals(0, report.getLostUpdates());
+        assertEquals(0, report.getResurrectedItems());
+        assertEquals(0, report.getDoubleCheckouts());
+    }
+
+    @Test
+    public void concurrentEdits_overwriteEachOther() {
+        // Whole item writes from stale copies: the last writer wins and the other change is gone
+        GroupSimulation.Report report = new GroupSimulation(new GroupSimulation.Config()
+                .devices(8).network(FakeDatabase.NetworkProfile.MOBILE_3G).rates(1, 10, 10, 0.5)).run();
+
+        assertTrue(report.hasConverged());
+        assertTrue(report.getLostUpdates() > 0);
+    }
+
+    @Test
+    public void partialUpdates_keepConcurrentEdits() {
+        GroupSimulation.Config config = new GroupSimulation.Config()
+                .devices(8).network(FakeDatabase.NetworkProfile.MOBILE_3G).rates(1, 10, 10, 0.5);
+        GroupSimulation.Report whole = new GroupSimulation(config).run();
+        GroupSimulation.Report partial = new GroupSimulation(config.writeMode(GroupSimulation.WriteMode.CHANGED_FIELDS)).run();
+
+        assertTrue(partial.hasConverged());
+        assertEquals(0, partial.getLostUpdates());
+        assertTrue(partial.getBytesPerEdit() < whole.getBytesPerEdit() * 2 / 3);
+    }
+
+    @Test
+    public void compareAndSet_refusesStaleEdits() {
+        GroupSimulation.Report report = new GroupSimulation(new GroupSimulation.Config()
+                .devices(8).network(FakeDatabase.NetworkProfile.MOBILE_3G).rates(1, 10, 10, 0.5)
+                .writeMode(GroupSimulation.WriteMode.COMPARE_AND_SET)).run();
+
+        assertTrue(report.hasConverged());
+        assertEquals(0, report.getLostUpdates());
+        assertTrue(report.getConflicts() > 0);
+    }
+
+    @Test
+    public void scaling_withTheSizeOfTheGroup() {
+        for (int devices = 1; devices <= 32; devices *= 2) {
+            GroupSimulation.Report wifi = new GroupSimulation(new GroupSimulation.Config()
+                    .devices(devices).network(FakeDatabase.NetworkProfile.WIFI)).run();
+            GroupSimulation.Report mobile = new GroupSimulation(new GroupSimulation.Config()
+                    .devices(devices).network(FakeDatabase.NetworkProfile.MOBILE_3G)).run();
+
+            // Whatever was lost on the way, every device ends up showing the same data
+            assertTrue(wifi.hasConverged());
+            assertTrue(mobile.hasConverged());
+            // Every write is sent to every device of the group, on 3G a few are sent again
+            assertEquals(devices, wifi.getMessagesPerWrite(), 0.01);
+            assertEquals(devices, mobile.getMessagesPerWrite(), devices * 0.05);
+            if (devices > 1) {
+                // A roommate sees a change after the way up and the way down
+                assertTrue(wifi.getPropagationP50() >= 2 * FakeDatabase.NetworkProfile.WIFI.getLatencyMillis());
+                assertTrue(mobile.getPropagationP50() >= 2 * FakeDatabase.NetworkProfile.MOBILE_3G.getLatencyMillis());
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Brings the purchase history of a group up to date with the indexes added after it was written
+ */
+public class HistoryMigrationTest {
+
+    private static final String GROUP = "g1";
+
+    @Test
+    public void planSummaries_onlyWritesTheMissingOnes() {
+        Map<String, Object> records = new HashMap<>();
+        records.put("p1", ModelCodec.encodeRecord(record("Ana", 1000, item("Milk", 2.00))));
+        records.put("p2", ModelCodec.encodeRecord(record("Ben", 2000, item("Bread", 3.00))));
+        Map<String, Object> summaries = new HashMap<>();
+        summaries.put("p2", ModelCodec.encodeSummary(PurchaseSummary.of("p2", record("Ben", 2000, item("Bread", 3.00)))));
+
+        Map<String, Object> paths = HistoryMigration.planSummaries(GROUP, records, summaries).toPaths();
+
+        assertEquals(2, paths.size());
+        assertTrue(paths.containsKey("PurchaseSummaries/g1/p1"));
+        assertEquals(Boolean.TRUE, paths.get("Migrations/g1/summaries"));
+        assertEquals(Collections.singletonMap("Migrations/g1/summaries", (Object) true),
+                HistoryMigration.planSummaries(GROUP, null, null).toPaths());
+    }
+
+    @Test
+    public void backfillSummaries_findsOldRecordsAfterANewCheckout() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository(GROUP);
+        repository.addLegacyRecord("old", record("Ana", 1000, item("Milk", 2.00)));
+        Item bread = repository.addItem("Bread", 1, "Ben", (result, error) -> assertNull(error));
+        bread.setPrice(3.00);
+        repository.checkout("Ben", Arrays.asList(bread), (result, error) -> assertNull(error));
+
+        Integer[] written = new Integer[1];
+        repository.backfillSummaries((result, error) -> written[0] = result);
+        assertEquals(Integer.valueOf(1), written[0]);
+        assertNotNull(repository.getValue("PurchaseSummaries/g1/old"));
+
+        // Done once per group
+        repository.addLegacyRecord("older", record("Ana", 500, item("Eggs", 4.00)));
+        repository.backfillSummaries((result, error) -> written[0] = result);
+        assertEquals(Integer.valueOf(0), written[0]);
+        assertNull(repository.getValue("PurchaseSummaries/g1/older"));
+    }
+
+    @Test
+    public void planRollups_skipsRecordsThatAreRolledUp() {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        PurchasedRecord checkedOut = record("Ben", 2000, item("Bread", 3.00));
+        checkedOut.setRolledUp(true);
+        Map<String, Object> records = new HashMap<>();
+        records.put("p1", ModelCodec.encodeRecord(record("Ana", 1000, item("Milk", 2.00))));
+        records.put("p2", ModelCodec.encodeRecord(checkedOut));
+
+        Map<String, Object> paths = HistoryMigration.planRollups(GROUP, records, utc).toPaths();
+
+        assertEquals(Boolean.TRUE, paths.get("PurchasedItems/g1/p1/rolledUp"));
+        assertFalse(paths.containsKey("PurchasedItems/g1/p2/rolledUp"));
+        assertEquals(200L, ((GroupUpdate.Increment) paths.get("Spending/g1/week/1969-12-29/totalCents")).getDelta());
+        assertNull(paths.get("Spending/g1/week/1969-12-29/roommates/Ben"));
+        assertEquals(Boolean.TRUE, paths.get("Migrations/g1/rollups"));
+    }
+
+    @Test
+    public void planPriceHistory_keepsTheNewerLastPurchase() {
+        PurchasedRecord checkedOut = record("Ben", 3000, item("Milk", 2.50));
+        checkedOut.setId("p3");
+        checkedOut.setInPriceHistory(true);
+        Map<String, Object> records = new HashMap<>();
+        records.put("p1", ModelCodec.encodeRecord(record("Ana", 1000, item("Milk", 2.00), item("Eggs", 4.00))));
+        records.put("p2", ModelCodec.encodeRecord(record("Ana", 2000, item("Eggs", 5.00))));
+        records.put("p3", ModelCodec.encodeRecord(checkedOut));
+        Map<String, Object> milk = new HashMap<>();
+        milk.put(ModelCodec.NAME, "Milk");
+        milk.put(ModelCodec.COUNT, 1L);
+        milk.put(ModelCodec.TIMESTAMP, 3000L);
+        milk.put(ModelCodec.LAST_CENTS, 250L);
+
+        Map<String, Object> paths = HistoryMigration.planPriceHistory(GROUP, records,
+                Collections.singletonMap("milk", milk)).toPaths();
+
+        assertEquals(1L, ((GroupUpdate.Increment) paths.get("PriceHistory/g1/milk/count")).getDelta());
+        assertEquals(2L, ((GroupUpdate.Increment) paths.get("PriceHistory/g1/egg/count")).getDelta());
+        assertEquals(900L, ((GroupUpdate.Increment) paths.get("PriceHistory/g1/egg/totalCents")).getDelta());
+        assertFalse(paths.containsKey("PriceHistory/g1/milk/lastCents"));
+        assertEquals(500L, paths.get("PriceHistory/g1/egg/lastCents"));
+        assertEquals(2000L, paths.get("PriceHistory/g1/egg/timestamp"));
+        assertEquals(Boolean.TRUE, paths.get("PurchasedItems/g1/p1/inPriceHistory"));
+        assertFalse(paths.containsKey("PurchasedItems/g1/p3/inPriceHistory"));
+        assertEquals(Boolean.TRUE, paths.get("Migrations/g1/priceHistory"));
+    }
+
+    @Test
+    public void editingAnOldRecord_neverTakesItsWeekBelowZero() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository(GROUP);
+        repository.addLegacyRecord("old", record("Ana", 1000, item("Milk", 10.00), item("Eggs", 4.00)));
+
+        List<PurchasedRecord> loaded = new ArrayList<>();
+        repository.loadRecord("old", (result, error) -> loaded.add(result));
+        repository.saveRecord(loaded.get(0), Arrays.asList(loaded.get(0).getItems().get(0)),
+                (result, error) -> assertNull(error));
+
+        String week = SpendingRollup.bucketOf(SpendingRollup.WEEK, 1000, 0, TimeZone.getDefault());
+        assertEquals(1000L, repository.getValue("Spending/g1/week/" + week + "/totalCents"));
+        assertEquals(1000L, repository.getValue("Spending/g1/week/" + week + "/roommates/Ana"));
+        assertEquals(0L, repository.getValue("Spending/g1/week/" + week + "/items/egg"));
+        assertEquals(Boolean.TRUE, repository.getValue("PurchasedItems/g1/old/rolledUp"));
+        assertEquals(Boolean.TRUE, repository.getValue("Migrations/g1/rollups"));
+    }
+
+    @Test
+    public void buildLedger_addsTheCheckoutsMadeWhileTheRecordsWereRead() {
+        Map<String, Object> records = new HashMap<>();
+        records.put("p1", ModelCodec.encodeRecord(record("Ana", 1000, item("Milk", 2.00))));
+        records.put("p2", ModelCodec.encodeRecord(record("Ana B.", 2000, item("Bread", 3.00))));
+        Map<String, Object> read = ledger("Ana B.", 300L);
+        Map<String, Object> current = ledger("Ana B.", 300L);
+        current.putAll(ledger("Ben", 450L));
+
+        List<LedgerEntry> entries = ModelCodec.decodeLedger(HistoryMigration.buildLedger(records, read, current));
+        Map<String, Long> spentCents = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            spentCents.put(entry.getName(), entry.getSpentCents());
+        }
+
+        assertEquals(3, spentCents.size());
+        assertEquals(Long.valueOf(200), spentCents.get("Ana"));
+        assertEquals(Long.valueOf(300), spentCents.get("Ana B."));
+        assertEquals(Long.valueOf(450), spentCents.get("Ben"));
+        assertTrue(HistoryMigration.isLedgerBuilt(HistoryMigration.buildLedger(records, read, current)));
+        // Built by another device in the meantime
+        Map<String, Object> built = ledger("Ben", 450L);
+        built.put(HistoryMigration.LEDGER_BUILT, true);
+        assertSame(built, HistoryMigration.buildLedger(records, read, built));
+    }
+
+    @Test
+    public void settle_countsOldRecordsAfterANewCheckout() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository(GROUP);
+        repository.addUser("u1", new User("Ana", null, GROUP));
+        repository.addUser("u2", new User("Ben", null, GROUP));
+        repository.addLegacyRecord("old", record("Ana", 1000, item("Milk", 10.00)));
+        Item bread = repository.addItem("Bread", 1, "Ben", (result, error) -> assertNull(error));
+        bread.setPrice(4.00);
+        repository.checkout("Ben", Arrays.asList(bread), (result, error) -> assertNull(error));
+
+        List<SettlementCalculator.Settlement> settlements = new ArrayList<>();
+        repository.settle((settlement, error) -> settlements.add(settlement));
+        repository.settle((settlement, error) -> settlements.add(settlement));
+
+        for (SettlementCalculator.Settlement settlement : settlements) {
+            SettlementCalculator.Transfer transfer = settlement.getTransfers().get(0);
+            assertEquals("Ben", transfer.getFrom());
+            assertEquals("Ana", transfer.getTo());
+            assertEquals(300L, transfer.getCents());
+        }
+        assertEquals(1000L, repository.getValue("Ledger/g1/Ana/spentCents"));
+        assertEquals(Boolean.TRUE, repository.getValue("Ledger/g1/" + HistoryMigration.LEDGER_BUILT));
+    }
+
+    private static Map<String, Object> ledger(String name, long spentCents) {
+        Map<String, Object> ledger = new HashMap<>();
+        ledger.put(FirebaseKeys.encode(name), ModelCodec.encodeLedgerEntry(new LedgerEntry(name, spentCents)));
+        return ledger;
+    }
+
+    private static PurchasedRecord record(String purchasedBy, long timestamp, Item... items) {
+        List<Item> list = Arrays.asList(items);
+        return new PurchasedRecord(purchasedBy, list, PurchasedRecord.totalOf(list), timestamp);
+    }
+
+    private static Item item(String name, double price) {
+        return new Item(null, name, price, null, "Ana", GROUP, 1);
+    }
+}
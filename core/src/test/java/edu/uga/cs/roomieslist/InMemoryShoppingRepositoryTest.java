@@ -0,0 +1,300 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the shopping rules of {@link AbstractShoppingRepository} on the in-memory backend.
+ */
+public class InMemoryShoppingRepositoryTest {
+
+    private static final String GROUP = "group-1";
+    private InMemoryShoppingRepository repository;
+
+    @Before
+    public void setUp() {
+        repository = new InMemoryShoppingRepository(GROUP);
+        repository.addUser("u1", new User("Ana", "ana@example.com", GROUP));
+        repository.addUser("u2", new User("Ben", "ben@example.com", GROUP));
+        repository.addUser("u3", new User("Cam", "cam@example.com", "other-group"));
+    }
+
+    @Test
+    public void movedItems_areOnlyInTheBasket() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+
+        repository.moveToBasket(Arrays.asList(milk), this::assertSucceeded);
+
+        assertEquals(Arrays.asList("Eggs"), names(loadShoppingList()));
+        assertEquals(Arrays.asList("Milk"), names(loadBasket()));
+        assertNotNull(eggs.getItemId());
+    }
+
+    @Test
+    public void checkout_writesRecordSummaryAndLedger() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+        milk.setPrice(3.49);
+        eggs.setPrice(5.01);
+        repository.moveToBasket(Arrays.asList(milk, eggs), this::assertSucceeded);
+
+        PurchasedRecord record = repository.checkout("Ana", loadBasket(), this::assertSucceeded);
+
+        assertTrue(loadBasket().isEmpty());
+        assertEquals(8.50, record.getTotalPrice(), 0.001);
+        assertNotNull(repository.getValue("PurchaseSummaries/" + GROUP + "/" + record.getId()));
+        assertEquals(850L, repository.getValue("Ledger/" + GROUP + "/Ana/spentCents"));
+    }
+
+    @Test
+    public void editingARecord_correctsTheLedger() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+        milk.setPrice(2.00);
+        eggs.setPrice(4.00);
+        PurchasedRecord record = repository.checkout("Ana", Arrays.asList(milk, eggs), this::assertSucceeded);
+
+        List<PurchasedRecord> loaded = new ArrayList<>();
+        repository.loadRecord(record.getId(), (result, error) -> loaded.add(result));
+        repository.saveRecord(loaded.get(0), Arrays.asList(milk), this::assertSucceeded);
+
+        assertEquals(200L, repository.getValue("Ledger/" + GROUP + "/Ana/spentCents"));
+        repository.loadRecord(record.getId(), (result, error) -> assertEquals(1, result.getItems().size()));
+    }
+
+    @Test
+    public void updateItemFields_keepsOtherRoommatesChanges() {
+        repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item anasCopy = loadShoppingList().get(0);
+        Item bensCopy = loadShoppingList().get(0);
+        assertFalse(anasCopy.hasChanges());
+
+        anasCopy.setAmount(2);
+        bensCopy.setPurchased(true);
+        bensCopy.setPurchasedBy("Ben");
+        repository.updateItemFields(anasCopy, this::assertSucceeded);
+        repository.updateItemFields(bensCopy, this::assertSucceeded);
+
+        Item stored = loadShoppingList().get(0);
+        assertEquals(2, (int) stored.getAmount());
+        assertTrue(stored.isPurchased());
+        assertEquals("Ben", stored.getPurchasedBy());
+        assertFalse(bensCopy.hasChanges());
+    }
+
+    @Test
+    public void increaseAmount_addsToWhatIsStored() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+
+        // Ana and Ben both add milk again, neither amount is lost
+        repository.increaseAmount(milk.getItemId(), 2, this::assertSucceeded);
+        repository.increaseAmount(milk.getItemId(), 3, this::assertSucceeded);
+
+        List<Item> items = loadShoppingList();
+        assertEquals(1, items.size());
+        assertEquals(Integer.valueOf(6), items.get(0).getAmount());
+        assertEquals(milk.getVersion() + 2, items.get(0).getVersion());
+    }
+
+    @Test
+    public void recordTrip_addsToTheSavedAisleOrder() {
+        AisleOrder mine = new AisleOrder();
+        repository.recordTrip(mine, Arrays.asList("Bread", "Milk"), this::assertSucceeded);
+        repository.recordTrip(new AisleOrder(), Arrays.asList("Bread", "Milk", "Eggs"), this::assertSucceeded);
+
+        repository.loadAisleOrder((order, error) -> {
+            assertNull(error);
+            assertEquals(2, order.countBefore("bread", "milk"));
+            assertEquals(1, order.countBefore("milk", "egg"));
+            assertTrue(order.positionOf("Bread") > order.positionOf("Eggs"));
+        });
+        // The order given to the trip is updated right away
+        assertEquals(1, mine.countBefore("bread", "milk"));
+    }
+
+    @Test
+    public void updateItemFields_sendsOnlyTheChangedFields() {
+        PerfMetrics.reset();
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item copy = new Item(milk);
+
+        repository.updateItemFields(copy, this::assertSucceeded);
+        assertEquals(0, PerfMetrics.get("payload.updateItemFields.writes"));
+
+        copy.setAmount(3);
+        repository.updateItemFields(copy, this::assertSucceeded);
+        // A whole item is only accepted on top of the version it was read at
+        Item stored = loadShoppingList().get(0);
+        stored.setAmount(4);
+        repository.updateItem(stored, this::assertSucceeded);
+
+        assertEquals(1, PerfMetrics.get("payload.updateItemFields.writes"));
+        assertTrue(PayloadSize.averageBytes("updateItemFields") * 2 < PayloadSize.averageBytes("updateItem"));
+    }
+
+    @Test
+    public void compareAndSet_refusesAStaleCopy() {
+        PerfMetrics.reset();
+        repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item anasCopy = loadShoppingList().get(0);
+        Item bensCopy = loadShoppingList().get(0);
+
+        anasCopy.setPurchased(true);
+        bensCopy.setAmount(4);
+        List<Item> committed = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        repository.compareAndSetItem(anasCopy, (result, error) -> committed.add(result));
+        repository.compareAndSetItem(bensCopy, (result, error) -> errors.add(error));
+
+        Item stored = loadShoppingList().get(0);
+        assertTrue(stored.isPurchased());
+        assertEquals(1, (int) stored.getAmount());
+        assertEquals(1, stored.getVersion());
+        assertEquals(stored, committed.get(0));
+        assertEquals(stored, ((ItemConflictException) errors.get(0)).getCurrent());
+        assertEquals(1, PerfMetrics.get(AbstractShoppingRepository.TRANSACTION_CONFLICTS));
+    }
+
+    @Test
+    public void compareAndSet_seesFieldUpdates() {
+        repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item anasCopy = loadShoppingList().get(0);
+        Item bensCopy = loadShoppingList().get(0);
+
+        anasCopy.setName("Oat Milk");
+        repository.updateItemFields(anasCopy, this::assertSucceeded);
+        bensCopy.setPurchased(true);
+        List<Exception> errors = new ArrayList<>();
+        repository.compareAndSetItem(bensCopy, (result, error) -> errors.add(error));
+
+        assertTrue(errors.get(0) instanceof ItemConflictException);
+        assertFalse(loadShoppingList().get(0).isPurchased());
+    }
+
+    @Test
+    public void settle_splitsBetweenGroupMembersOnly() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        milk.setPrice(10.00);
+        repository.checkout("Ana", Arrays.asList(milk), this::assertSucceeded);
+
+        List<SettlementCalculator.Settlement> settlements = new ArrayList<>();
+        repository.settle((settlement, error) -> settlements.add(settlement));
+
+        SettlementCalculator.Transfer transfer = settlements.get(0).getTransfers().get(0);
+        assertEquals(2, settlements.get(0).getShareCents().size());
+        assertEquals("Ben", transfer.getFrom());
+        assertEquals("Ana", transfer.getTo());
+        assertEquals(500L, transfer.getCents());
+    }
+
+    @Test
+    public void clearHistory_removesHistoryAndLedger() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        milk.setPrice(1.00);
+        repository.checkout("Ana", Arrays.asList(milk), this::assertSucceeded);
+
+        repository.clearHistory(this::assertSucceeded);
+
+        assertNull(repository.getValue("PurchasedItems/" + GROUP));
+        assertNull(repository.getValue("Ledger/" + GROUP + "/Ana"));
+        assertTrue(HistoryMigration.isLedgerBuilt(repository.getValue("Ledger/" + GROUP)));
+    }
+
+    @Test
+    public void spendingRollups_followEditsAndOutliveTheHistory() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+        milk.setPrice(2.00);
+        eggs.setPrice(4.00);
+        PurchasedRecord record = repository.checkout("Ana", Arrays.asList(milk, eggs), this::assertSucceeded);
+        Item bread = repository.addItem("Bread", 1, "Ben", this::assertSucceeded);
+        bread.setPrice(3.00);
+        repository.checkout("Ben", Arrays.asList(bread), this::assertSucceeded);
+
+        // The eggs are taken out of Ana's purchase, then its total is corrected by hand
+        List<PurchasedRecord> loaded = new ArrayList<>();
+        repository.loadRecord(record.getId(), (result, error) -> loaded.add(result));
+        repository.saveRecord(loaded.get(0), Arrays.asList(milk), this::assertSucceeded);
+        repository.updatePurchasePrice(PurchaseSummary.of(record.getId(), loaded.get(0)), 2.50, this::assertSucceeded);
+        repository.clearHistory(this::assertSucceeded);
+
+        TimeZone zone = TimeZone.getDefault();
+        String week = SpendingRollup.bucketOf(SpendingRollup.WEEK, record.getTimestamp(), 0, zone);
+        String month = SpendingRollup.bucketOf(SpendingRollup.MONTH, record.getTimestamp(), 0, zone);
+        SpendingRollup[] rollup = new SpendingRollup[1];
+        repository.loadSpending(SpendingRollup.WEEK, week, week, (result, error) -> rollup[0] = result);
+        assertEquals(550, rollup[0].getTotalCents());
+        assertEquals(Long.valueOf(250), rollup[0].byRoommate().get("Ana"));
+        assertEquals(Arrays.asList("bread", "milk"), new ArrayList<>(rollup[0].byItem(5).keySet()));
+
+        repository.loadSpending(SpendingRollup.MONTH, month, month, (result, error) -> rollup[0] = result);
+        assertEquals(550, rollup[0].getTotalCents());
+        repository.loadSpending("day", week, week, (result, error) -> assertTrue(error instanceof IllegalArgumentException));
+    }
+
+    @Test
+    public void spendingRollups_startTheWeekInTheGroupsZone() {
+        TimeZone newYork = TimeZone.getTimeZone("America/New_York");
+        Calendar sundayNight = Calendar.getInstance(newYork);
+        sundayNight.clear();
+        sundayNight.set(2026, Calendar.OCTOBER, 18, 23, 30);
+        repository.setClock(sundayNight.getTimeInMillis());
+        repository.commit(new GroupUpdate(GROUP).put(GroupUpdate.GROUPS, GroupUpdate.TIME_ZONE, newYork.getID()),
+                this::assertSucceeded);
+
+        TimeZone deviceZone = TimeZone.getDefault();
+        try {
+            // A roommate travelling in Tokyo, where it is Monday already
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+            milk.setPrice(2.00);
+            repository.checkout("Ana", Arrays.asList(milk), this::assertSucceeded);
+        } finally {
+            TimeZone.setDefault(deviceZone);
+        }
+
+        assertEquals(200L, repository.getValue("Spending/" + GROUP + "/week/2026-10-12/totalCents"));
+        assertNull(repository.getValue("Spending/" + GROUP + "/week/2026-10-19"));
+        repository.loadTimeZone((zone, error) -> assertEquals(newYork, zone));
+    }
+
+    @Test
+    public void groupWithoutATimeZone_keepsTheZoneOfTheFirstDevice() {
+        repository.loadTimeZone((zone, error) -> assertEquals(TimeZone.getDefault(), zone));
+
+        assertEquals(TimeZone.getDefault().getID(), repository.getValue("Groups/" + GROUP + "/timeZone"));
+    }
+
+    private List<Item> loadShoppingList() {
+        List<Item> items = new ArrayList<>();
+        repository.loadShoppingList((result, error) -> items.addAll(result));
+        return items;
+    }
+
+    private List<Item> loadBasket() {
+        List<Item> items = new ArrayList<>();
+        repository.loadBasket((result, error) -> items.addAll(result));
+        return items;
+    }
+
+    private static List<String> names(List<Item> items) {
+        List<String> names = new ArrayList<>();
+        for (Item item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+
+    private void assertSucceeded(Void result, Exception error) {
+        assertNull(error);
+    }
+}
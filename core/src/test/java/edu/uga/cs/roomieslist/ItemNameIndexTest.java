@@ -0,0 +1,95 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link NameNormalizer} and {@link ItemNameIndex}.
+ */
+public class ItemNameIndexTest {
+
+    private ItemNameIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ItemNameIndex();
+    }
+
+    @Test
+    public void caseSpacesAndPlurals_areFolded() {
+        assertEquals("milk", NameNormalizer.normalize("  Milk "));
+        assertEquals("paper towel", NameNormalizer.normalize("Paper   Towels"));
+        assertEquals("paper towel", NameNormalizer.normalize("paper-towel"));
+        assertEquals("berry", NameNormalizer.normalize("Berries"));
+        assertEquals("box", NameNormalizer.normalize("boxes"));
+        assertEquals("dish soap", NameNormalizer.normalize("Dishes Soap"));
+        assertEquals("glass", NameNormalizer.normalize("Glasses"));
+        assertEquals("tomato", NameNormalizer.normalize("Tomatoes"));
+        assertEquals("egg", NameNormalizer.normalize("EGGS"));
+        assertEquals("hummus", NameNormalizer.normalize("Hummus"));
+        assertEquals("gas", NameNormalizer.normalize("gas"));
+        assertEquals("creme brulee", NameNormalizer.normalize("Cr\u00e8me br\u00fbl\u00e9e"));
+        assertEquals("", NameNormalizer.normalize(" - "));
+    }
+
+    @Test
+    public void sameName_isFoundWhateverTheSpelling() {
+        index.put(item("1", "Paper Towels"));
+        index.put(item("2", "Milk"));
+
+        assertEquals("1", index.findSame("paper towel"));
+        assertEquals("2", index.findSame("MILK "));
+        assertNull(index.findSame("Oat milk"));
+    }
+
+    @Test
+    public void renamedAndRemovedItems_areUpdated() {
+        index.put(item("1", "Milk"));
+        index.put(item("1", "Oat Milk"));
+
+        assertNull(index.findSame("milk"));
+        assertEquals("1", index.findSame("oat milk"));
+
+        index.remove("1");
+        assertNull(index.findSame("oat milk"));
+        assertEquals(Collections.emptyList(), index.findSimilar("oat milks", 3));
+
+        // A name can come back after all of its items were removed
+        index.put(item("2", "Oat Milk"));
+        assertEquals(Arrays.asList("2"), index.findSimilar("oat mik", 3));
+    }
+
+    @Test
+    public void typos_findTheClosestItems() {
+        index.put(item("1", "Bananas"));
+        index.put(item("2", "Bandanas"));
+        index.put(item("3", "Bread"));
+        index.put(item("4", "Paper Towels"));
+
+        assertEquals(Arrays.asList("1", "2"), index.findSimilar("bananna", 5));
+        assertEquals(Arrays.asList("1"), index.findSimilar("bananna", 1));
+        assertEquals(Arrays.asList("4"), index.findSimilar("paper towl", 5));
+        // Short names have to match exactly
+        index.put(item("5", "Tea"));
+        assertEquals(Collections.emptyList(), index.findSimilar("pea", 5));
+        // The same name is found by findSame, not as a typo
+        assertFalse(index.findSimilar("Bread", 5).contains("3"));
+    }
+
+    @Test
+    public void distance_countsEdits() {
+        assertEquals(0, ItemNameIndex.distance("milk", "milk"));
+        assertEquals(1, ItemNameIndex.distance("milk", "mik"));
+        assertEquals(2, ItemNameIndex.distance("banana", "bandanas"));
+        assertEquals(4, ItemNameIndex.distance("", "salt"));
+    }
+
+    private static Item item(String itemId, String name) {
+        return new Item(itemId, name, 0.0, null, "Ana", "group-1", 1);
+    }
+}
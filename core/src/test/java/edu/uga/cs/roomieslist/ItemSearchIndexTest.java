@@ -0,0 +1,131 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ItemSearchIndex}.
+ */
+public class ItemSearchIndexTest {
+
+    private static final String[] WORDS = {"paper", "towels", "milk", "eggs", "bread", "rice", "beans", "soap",
+            "dish", "coffee", "tea", "apples", "pasta", "sauce", "cheese", "butter", "chips", "salt", "oil", "foil"};
+    private ItemSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ItemSearchIndex();
+    }
+
+    @Test
+    public void prefixesOfEveryWord_findTheItem() {
+        index.put(item("1", "Paper Towels", "Ana", false));
+        index.put(item("2", "Toilet paper", "Ben", false));
+        index.put(item("3", "Milk", "Ana", true));
+
+        assertEquals(ids("1", "2"), index.search("pap"));
+        assertEquals(ids("1"), index.search("pap tow"));
+        assertEquals(ids("1", "2"), index.search("  PAPER "));
+        assertEquals(ids("1", "3"), index.search("ana"));
+        assertEquals(ids("3"), index.search("purchased"));
+        assertEquals(ids("1", "2"), index.search("unpurchased"));
+        assertEquals(Collections.emptySet(), index.search("papers"));
+        assertNull(index.search(" "));
+    }
+
+    @Test
+    public void changedAndRemovedItems_areUpdated() {
+        index.put(item("1", "Paper Towels", "Ana", false));
+        index.put(item("1", "Paper Plates", "Ana", true));
+
+        assertEquals(Collections.emptySet(), index.search("tow"));
+        assertEquals(ids("1"), index.search("pla purch"));
+
+        index.remove("1");
+        assertEquals(Collections.emptySet(), index.search("p"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void wordsSharingAPrefix_countOnce() {
+        // "pa" is reached twice by the same item, removing one word keeps the other
+        index.put(item("1", "Paper pack", "Ana", false));
+        index.put(item("1", "Paper", "Ana", false));
+
+        assertEquals(ids("1"), index.search("pa"));
+        assertEquals(Collections.emptySet(), index.search("pac"));
+    }
+
+    @Test
+    public void filter_returnsTheMatchesInStoreOrder() {
+        List<Item> items = Arrays.asList(item("a", "Eggs", "Ben", false), item("b", "Milk", "Ana", false),
+                item("c", "Egg noodles", "Cam", false));
+        AisleOrder order = new AisleOrder();
+        order.recordTrip(Arrays.asList("Egg noodles", "Milk", "Eggs"));
+        AisleOrderedList list = new AisleOrderedList(order);
+        for (Item item : items) {
+            list.put(item);
+            index.put(item);
+        }
+
+        assertEquals(Arrays.asList(items.get(2), items.get(0)), index.filter(list, "egg"));
+        assertEquals(Arrays.asList(items.get(2), items.get(1), items.get(0)), index.filter(list, ""));
+        assertEquals(Collections.emptyList(), index.filter(list, "bread"));
+    }
+
+    @Test
+    public void filter_findsWhatAScanOfTheListFinds() {
+        Random random = new Random(42);
+        List<Item> items = new ArrayList<>();
+        AisleOrderedList list = new AisleOrderedList(new AisleOrder());
+        for (int i = 0; i < 2000; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            Item item = item("item" + i, name, "roommate" + random.nextInt(6), random.nextBoolean());
+            items.add(item);
+            list.put(item);
+            index.put(item);
+        }
+
+        // Every prefix of a query typed one letter at a time
+        String query = "paper tow";
+        for (int length = 1; length <= query.length(); length++) {
+            String typed = query.substring(0, length);
+            assertEquals(scan(items, typed.trim().split(" ")), index.filter(list, typed).size());
+        }
+    }
+
+    private static int scan(List<Item> items, String... prefixes) {
+        int count = 0;
+        for (Item item : items) {
+            boolean all = true;
+            for (String prefix : prefixes) {
+                boolean found = false;
+                for (String word : ItemSearchIndex.wordsOf(item)) {
+                    found |= word.startsWith(prefix);
+                }
+                all &= found;
+            }
+            count += all ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static Item item(String itemId, String name, String addedBy, boolean purchased) {
+        Item item = new Item(itemId, name, 0.0, null, addedBy, "group-1", 1);
+        item.setPurchased(purchased);
+        return item;
+    }
+
+    private static HashSet<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
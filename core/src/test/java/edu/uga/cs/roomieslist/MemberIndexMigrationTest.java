@@ -0,0 +1,102 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keeps the member index of a group up to date with users saved the old way
+ */
+public class MemberIndexMigrationTest {
+
+    @Test
+    public void usersMissingFromTheIndex_areAddedToIt() {
+        Map<String, String> members = new HashMap<>();
+        members.put("u1", "Ana");
+        Map<String, User> users = new HashMap<>();
+        users.put("u1", new User("Ana", "ana@example.com", "g1"));
+        users.put("u2", new User("Ben", "ben@example.com", "g1"));
+        users.put("u3", new User("Cam", "cam@example.com", "g2"));
+
+        Map<String, Object> paths = MemberIndexMigration.plan("g1", members, users).toPaths();
+
+        assertEquals(Collections.singletonMap("Groups/g1/members/u2", (Object) "Ben"), paths);
+        assertTrue(MemberIndexMigration.plan("g1", Collections.singletonMap("u2", "Ben"),
+                Collections.singletonMap("u2", users.get("u2"))).isEmpty());
+    }
+
+    @Test
+    public void names_comeFromTheIndexAndTheUsers() {
+        Map<String, String> members = new HashMap<>();
+        members.put("u1", "Ana");
+        members.put("u4", "Dee");
+        Map<String, User> users = new HashMap<>();
+        users.put("u1", new User("Ana", null, "g1"));
+        users.put("u2", new User("Ben", null, "g1"));
+
+        List<String> names = MemberIndexMigration.names(members, users);
+        Collections.sort(names);
+
+        assertEquals(Arrays.asList("Ana", "Ben", "Dee"), names);
+    }
+
+    @Test
+    public void legacyUsers_areCountedWhenSettlingAndIndexed() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository("g1");
+        repository.addMember("u1", new User("Ana", null, "g1"), (result, error) -> assertNull(error));
+        // Signed up with a version of the app from before the index, after the group had one
+        repository.addLegacyUser("u2", new User("Ben", null, "g1"));
+        repository.addLegacyUser("u3", new User("Cam", null, "g2"));
+
+        List<String> members = new ArrayList<>();
+        repository.settle((settlement, error) -> {
+            assertNull(error);
+            members.addAll(settlement.getShareCents().keySet());
+        });
+
+        assertTrue(members.containsAll(Arrays.asList("Ana", "Ben")));
+        assertFalse(members.contains("Cam"));
+        assertEquals("Ben", repository.getValue("Groups/g1/members/u2"));
+        assertNull(repository.getValue("Groups/g2"));
+        assertEquals(Boolean.TRUE, repository.getValue("Migrations/g1/" + MemberIndexMigration.STEP));
+    }
+
+    @Test
+    public void reconciledGroups_onlyReadTheIndex() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository("g1");
+        repository.addMember("u1", new User("Ana", null, "g1"), (result, error) -> assertNull(error));
+        repository.settle((settlement, error) -> assertNull(error));
+
+        // The users are not read anymore, so a user missing from the index is not found
+        repository.addLegacyUser("u2", new User("Ben", null, "g1"));
+        List<String> members = new ArrayList<>();
+        repository.settle((settlement, error) -> members.addAll(settlement.getShareCents().keySet()));
+
+        assertEquals(Arrays.asList("Ana"), members);
+        assertNull(repository.getValue("Groups/g1/members/u2"));
+    }
+
+    @Test
+    public void addMember_isCountedWhenSettling() {
+        InMemoryShoppingRepository repository = new InMemoryShoppingRepository("g1");
+        repository.addMember("u1", new User("Ana", null, "g1"), (result, error) -> assertNull(error));
+        repository.addMember("u2", new User("Ben", null, "g1"), (result, error) -> assertNull(error));
+
+        assertEquals("Ana", repository.getValue("Groups/g1/members/u1"));
+        assertNotNull(repository.getValue("Users/u1"));
+
+        List<String> members = new ArrayList<>();
+        repository.settle((settlement, error) -> {
+            assertNull(error);
+            members.addAll(settlement.getShareCents().keySet());
+        });
+        assertTrue(members.containsAll(Arrays.asList("Ana", "Ben")));
+    }
+}
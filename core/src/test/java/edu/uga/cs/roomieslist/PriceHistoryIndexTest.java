@@ -0,0 +1,193 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PriceHistoryIndex} and the price history kept by checkouts.
+ */
+public class PriceHistoryIndexTest {
+
+    private static final String GROUP = "group-1";
+    private static final String[] WORDS = {
+            "milk", "oat", "paper", "towel", "egg", "bread", "apple", "banana", "rice", "pasta",
+            "cheese", "soap", "dish", "coffee", "tea", "butter", "sugar", "salt", "pepper", "onion"
+    };
+
+    private InMemoryShoppingRepository repository;
+    private PriceHistoryIndex index;
+
+    @Before
+    public void setUp() {
+        repository = new InMemoryShoppingRepository(GROUP);
+        index = new PriceHistoryIndex();
+    }
+
+    @Test
+    public void prefix_completesMostBoughtFirst() {
+        buy(1, item("Milk", 3.49), item("Mint", 1.99));
+        buy(2, item("milk", 3.59), item("Mangoes", 4.00));
+        buy(3, item("Milks", 3.29), item("Mangoes", 4.50));
+        load();
+
+        assertEquals(Arrays.asList("Milks", "Mangoes", "Mint"), index.complete("m", 5));
+        assertEquals(Arrays.asList("Milks", "Mint"), index.complete("Mi", 5));
+        assertEquals(Arrays.asList("Milks"), index.complete("m", 1));
+        assertEquals(Collections.emptyList(), index.complete("bread", 5));
+        assertEquals(3, index.countOf("MILK"));
+    }
+
+    @Test
+    public void prices_lastAndUsual() {
+        buy(1, item("Eggs", 2.00));
+        buy(2, item("Eggs", 3.00));
+        buy(3, item("Eggs", 5.00));
+        // Checked out without a price, the last price is still the one paid
+        buy(4, item("Eggs", 0.0));
+        load();
+
+        assertEquals(Long.valueOf(500), index.lastPriceCents("egg"));
+        assertEquals(Long.valueOf(333), index.usualPriceCents("eggs"));
+        assertEquals(4, index.countOf("eggs"));
+        assertNull(index.lastPriceCents("milk"));
+        assertNull(index.usualPriceCents("milk"));
+    }
+
+    @Test
+    public void editedRecords_areNotCountedTwice() {
+        PurchasedRecord first = buy(1, item("Bread", 2.50), item("Butter", 4.00));
+        buy(2, item("Bread", 3.00));
+
+        // The record is edited, butter was taken out and the bread price fixed
+        repository.saveRecord(first, Arrays.asList(item("Bread", 2.75)), (result, error) -> assertNull(error));
+        load();
+
+        assertEquals(2, index.countOf("bread"));
+        assertEquals(0, index.countOf("butter"));
+        assertEquals(Arrays.asList("Bread"), index.complete("b", 5));
+        assertEquals(Long.valueOf(288), index.usualPriceCents("bread"));
+        assertEquals(Long.valueOf(275), index.lastPriceCents("bread"));
+    }
+
+    @Test
+    public void editingAnOldRecord_neverTakesACountBelowZero() {
+        // Saved before the price history existed
+        List<Item> oldItems = Arrays.asList(item("Bread", 2.50), item("Butter", 4.00));
+        repository.addLegacyRecord("old", new PurchasedRecord("Ana", oldItems, PurchasedRecord.totalOf(oldItems), 1));
+        buy(2, item("Bread", 3.00));
+
+        List<PurchasedRecord> loaded = new ArrayList<>();
+        repository.loadRecord("old", (result, error) -> loaded.add(result));
+        repository.saveRecord(loaded.get(0), Arrays.asList(item("Bread", 2.75)), (result, error) -> assertNull(error));
+        load();
+
+        assertEquals(2, index.countOf("bread"));
+        assertEquals(0L, repository.getValue(GroupUpdate.PRICE_HISTORY + "/" + GROUP + "/butter/count"));
+        assertEquals("Butter", repository.getValue(GroupUpdate.PRICE_HISTORY + "/" + GROUP + "/butter/name"));
+        assertEquals(Boolean.TRUE, repository.getValue(GroupUpdate.PURCHASED_ITEMS + "/" + GROUP + "/old/inPriceHistory"));
+    }
+
+    @Test
+    public void entriesTakenBelowZero_areDropped() {
+        index.put(new PriceHistoryEntry("Butter", 1, 1, 400, 1, 400));
+
+        // Left by an edit of a record that was never counted, without a name or a time
+        index.put(ModelCodec.decodePriceHistoryEntry("butter", Collections.singletonMap(ModelCodec.COUNT, -1L)));
+
+        assertEquals(0, index.size());
+        assertEquals(0, index.countOf("butter"));
+    }
+
+    @Test
+    public void clearedHistory_keepsThePrices() {
+        buy(1, item("Coffee", 8.99));
+        repository.clearHistory((result, error) -> assertNull(error));
+        load();
+
+        assertEquals(Long.valueOf(899), index.lastPriceCents("coffee"));
+        assertNull(repository.getValue(GroupUpdate.PURCHASED_ITEMS + "/" + GROUP));
+    }
+
+    @Test
+    public void changedAndRemovedNames_areUpdated() {
+        index.put(new PriceHistoryEntry("Tea", 1, 1, 300, 1, 300));
+        index.put(new PriceHistoryEntry("Toast", 2, 2, 0, 0, 0));
+        assertEquals(Arrays.asList("Toast", "Tea"), index.complete("t", 5));
+
+        // Bought again, tea moves up
+        index.put(new PriceHistoryEntry("Tea", 3, 3, 400, 3, 1000));
+        assertEquals(Arrays.asList("Tea", "Toast"), index.complete("t", 5));
+        assertEquals(Long.valueOf(333), index.usualPriceCents("tea"));
+
+        // Every purchase of the tea was edited away, then the toast was deleted
+        index.put(new PriceHistoryEntry("Tea", 0, 3, 400, 0, 0));
+        assertEquals(Arrays.asList("Toast"), index.complete("t", 5));
+        index.remove("toast");
+        assertEquals(0, index.size());
+        assertEquals(Collections.emptyList(), index.complete("t", 5));
+    }
+
+    @Test
+    public void manyNames_keepTheOnesBoughtMostRecently() {
+        for (int i = 0; i < 3000; i++) {
+            index.put(new PriceHistoryEntry("thing " + i, 1, i, 100, 1, 100));
+            index.put(new PriceHistoryEntry("Milk", i + 1, i, i, i + 1, i * (i + 1) / 2));
+        }
+
+        assertEquals(PriceHistoryIndex.MAX_NAMES, index.size());
+        assertEquals(3000, index.countOf("milk"));
+        assertEquals(1, index.countOf("thing 2999"));
+        assertEquals(0, index.countOf("thing 0"));
+        assertEquals(Arrays.asList("thing 2999", "thing 2998"), index.complete("thing", 2));
+    }
+
+    @Test
+    public void longHistories_keepTheNamesBoughtAgain() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            List<Item> items = new ArrayList<>();
+            for (int j = 0; j < 8; j++) {
+                // Some names only show up now and then, like "rice 12"
+                String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + (random.nextInt(4) == 0 ? " " + random.nextInt(100) : "");
+                items.add(item(name, random.nextInt(1000) / 100.0));
+            }
+            buy(i, items.toArray(new Item[0]));
+        }
+        load();
+
+        // A name is one small node however often it was bought
+        assertTrue(index.size() <= PriceHistoryIndex.MAX_NAMES);
+        assertEquals(Arrays.asList("paper towel"), index.complete("paper towel", PriceHistoryIndex.SUGGESTIONS));
+        assertTrue(index.countOf("paper towel") > 10);
+    }
+
+    private PurchasedRecord buy(long timestamp, Item... items) {
+        repository.setClock(timestamp);
+        return repository.checkout("Ana", Arrays.asList(items), (result, error) -> assertNull(error));
+    }
+
+    /**
+     * Read the price history node the way the shopping list does
+     */
+    private void load() {
+        index.clear();
+        Object raw = repository.getValue(GroupUpdate.PRICE_HISTORY + "/" + GROUP);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) raw).entrySet()) {
+            index.put(ModelCodec.decodePriceHistoryEntry(String.valueOf(entry.getKey()), entry.getValue()));
+        }
+    }
+
+    private static Item item(String name, double price) {
+        return new Item(null, name, price, null, "Ana", GROUP, 1);
+    }
+}
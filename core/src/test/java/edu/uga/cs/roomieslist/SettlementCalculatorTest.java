@@ -0,0 +1,117 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests and a small benchmark for {@link SettlementCalculator}.
+ */
+public class SettlementCalculatorTest {
+
+    private static final int[] GROUP_SIZES = {2, 10, 100, 1000};
+
+    @Test
+    public void membersWhoSpentNothing_payTheirShare() {
+        Map<String, Long> spent = new HashMap<>();
+        spent.put("Ana", 9000L);
+        SettlementCalculator.Settlement settlement =
+                SettlementCalculator.settle(Arrays.asList("Ana", "Ben", "Cam"), spent);
+
+        assertEquals(9000L, settlement.getTotalCents());
+        assertEquals(3, settlement.getShareCents().size());
+        assertEquals(2, settlement.getTransfers().size());
+        for (SettlementCalculator.Transfer transfer : settlement.getTransfers()) {
+            assertEquals("Ana", transfer.getTo());
+            assertEquals(3000L, transfer.getCents());
+        }
+    }
+
+    @Test
+    public void leftoverCents_areSplitExactly() {
+        Map<String, Long> spent = new HashMap<>();
+        spent.put("Ana", 1000L);
+        SettlementCalculator.Settlement settlement =
+                SettlementCalculator.settle(Arrays.asList("Ana", "Ben", "Cam"), spent);
+
+        // 10.00 does not split in three, one roommate pays the extra cent
+        assertEquals(Arrays.asList(334L, 333L, 333L), new ArrayList<>(settlement.getShareCents().values()));
+        assertBalanced(settlement);
+    }
+
+    @Test
+    public void evenGroup_hasNoTransfers() {
+        Map<String, Long> spent = new HashMap<>();
+        spent.put("Ana", 2500L);
+        spent.put("Ben", 2500L);
+        SettlementCalculator.Settlement settlement =
+                SettlementCalculator.settle(Arrays.asList("Ana", "Ben"), spent);
+
+        assertTrue(settlement.getTransfers().isEmpty());
+    }
+
+    @Test
+    public void ledgerNamesOutsideTheGroup_areStillSettled() {
+        Map<String, Long> spent = new HashMap<>();
+        spent.put("Former", 4000L);
+        SettlementCalculator.Settlement settlement =
+                SettlementCalculator.settle(Collections.singletonList("Ana"), spent);
+
+        assertEquals(1, settlement.getTransfers().size());
+        assertEquals("Ana", settlement.getTransfers().get(0).getFrom());
+        assertEquals(2000L, settlement.getTransfers().get(0).getCents());
+    }
+
+    @Test
+    public void emptyGroup_isEmpty() {
+        SettlementCalculator.Settlement settlement =
+                SettlementCalculator.settle(Collections.<String>emptyList(), new HashMap<String, Long>());
+
+        assertEquals(0L, settlement.getTotalCents());
+        assertTrue(settlement.getTransfers().isEmpty());
+    }
+
+    @Test
+    public void largeGroups_balanceWithFewerTransfersThanMembers() {
+        Random random = new Random(42);
+        for (int size : GROUP_SIZES) {
+            List<String> members = new ArrayList<>();
+            Map<String, Long> spent = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = "roommate" + i;
+                members.add(name);
+                // About half of the group bought something
+                if (random.nextBoolean()) {
+                    spent.put(name, (long) random.nextInt(50000));
+                }
+            }
+
+            SettlementCalculator.Settlement settlement = SettlementCalculator.settle(members, spent);
+
+            assertBalanced(settlement);
+            assertTrue(settlement.getTransfers().size() <= size - 1);
+        }
+    }
+
+    /**
+     * After the transfers everyone has paid exactly their share
+     * @param settlement
+     */
+    private static void assertBalanced(SettlementCalculator.Settlement settlement) {
+        Map<String, Long> paid = new HashMap<>(settlement.getSpentCents());
+        for (SettlementCalculator.Transfer transfer : settlement.getTransfers()) {
+            assertTrue(transfer.getCents() > 0);
+            paid.put(transfer.getFrom(), paid.get(transfer.getFrom()) + transfer.getCents());
+            paid.put(transfer.getTo(), paid.get(transfer.getTo()) - transfer.getCents());
+        }
+        assertEquals(settlement.getShareCents(), paid);
+    }
+}
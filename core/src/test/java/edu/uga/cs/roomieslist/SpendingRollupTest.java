@@ -0,0 +1,133 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpendingRollup} and the rollup increments of {@link GroupUpdate}.
+ */
+public class SpendingRollupTest {
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+    @Test
+    public void buckets_startOnMondayAndOnTheFirstInTheGroupsZone() {
+        // Sunday 2026-10-18 23:30 in New York is still in the week of Monday 2026-10-12 there
+        long sundayNight = time(2026, Calendar.OCTOBER, 18, 23, 30);
+
+        assertEquals("2026-10-12", SpendingRollup.bucketOf(SpendingRollup.WEEK, sundayNight, 0, NEW_YORK));
+        assertEquals("2026-10-05", SpendingRollup.bucketOf(SpendingRollup.WEEK, sundayNight, -1, NEW_YORK));
+        assertEquals("2026-10", SpendingRollup.bucketOf(SpendingRollup.MONTH, sundayNight, 0, NEW_YORK));
+        assertEquals("2025-12", SpendingRollup.bucketOf(SpendingRollup.MONTH, sundayNight, -10, NEW_YORK));
+        // but already Monday in UTC
+        assertEquals("2026-10-19", SpendingRollup.bucketOf(SpendingRollup.WEEK, sundayNight, 0, TimeZone.getTimeZone("UTC")));
+        // Weeks over the turn of the year
+        assertEquals("2025-12-29", SpendingRollup.bucketOf(SpendingRollup.WEEK, time(2026, Calendar.JANUARY, 1, 12, 0), 0, NEW_YORK));
+    }
+
+    @Test
+    public void devicesInOtherTimeZones_writeToTheGroupsBuckets() {
+        PurchasedRecord record = record("Ana", time(2026, Calendar.OCTOBER, 18, 23, 30), item("Milk", 2.00));
+        TimeZone deviceZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(NEW_YORK);
+            Map<String, Object> newYork = new GroupUpdate("g").addToRollups(record, 1, NEW_YORK).toPaths();
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            Map<String, Object> tokyo = new GroupUpdate("g").addToRollups(record, 1, NEW_YORK).toPaths();
+
+            assertEquals(newYork.keySet(), tokyo.keySet());
+            assertTrue(tokyo.containsKey("Spending/g/week/2026-10-12/totalCents"));
+        } finally {
+            TimeZone.setDefault(deviceZone);
+        }
+    }
+
+    @Test
+    public void checkoutAndEdit_writeOnlyTheDifference() {
+        long timestamp = time(2026, Calendar.OCTOBER, 14, 18, 0);
+        PurchasedRecord before = record("Ana", timestamp, item("Milk", 2.00), item("Eggs", 4.00));
+        PurchasedRecord after = record("Ana", timestamp, item("Milk", 2.50), item("Eggs", 4.00));
+
+        Map<String, Object> paths = new GroupUpdate("g")
+                .addToRollups(before, -1, NEW_YORK)
+                .addToRollups(after, 1, NEW_YORK)
+                .toPaths();
+
+        assertEquals(6, paths.size());
+        assertEquals(50L, ((GroupUpdate.Increment) paths.get("Spending/g/week/2026-10-12/totalCents")).getDelta());
+        assertEquals(50L, ((GroupUpdate.Increment) paths.get("Spending/g/month/2026-10/roommates/Ana")).getDelta());
+        assertEquals(50L, ((GroupUpdate.Increment) paths.get("Spending/g/week/2026-10-12/items/milk")).getDelta());
+        assertFalse(paths.containsKey("Spending/g/week/2026-10-12/items/egg"));
+    }
+
+    @Test
+    public void ranges_areAnsweredFromTheBuckets() {
+        SpendingRollup rollup = new SpendingRollup(SpendingRollup.WEEK);
+        rollup.addBucket("2026-09-28", 1000, cents("Ana", 1000), cents("milk", 400, "bread", 600));
+        rollup.addBucket("2026-10-12", 500, cents("Ben", 500), cents("milk", 500));
+        rollup.addBucket("2026-10-19", 700, cents("Ana", 300, "Ben", 400), cents("egg", 700));
+
+        Map<String, Long> series = rollup.series("2026-09-28", "2026-10-19");
+        assertEquals(Arrays.asList("2026-09-28", "2026-10-05", "2026-10-12", "2026-10-19"), new ArrayList<>(series.keySet()));
+        assertEquals(Arrays.asList(1000L, 0L, 500L, 700L), new ArrayList<>(series.values()));
+
+        SpendingRollup october = rollup.between("2026-10-05", "2026-10-19");
+        assertEquals(2, october.size());
+        assertEquals(1200, october.getTotalCents());
+        assertEquals(Arrays.asList("Ben", "Ana"), new ArrayList<>(october.byRoommate().keySet()));
+        assertEquals(Arrays.asList("egg"), new ArrayList<>(october.byItem(1).keySet()));
+        assertEquals(Long.valueOf(900), rollup.byItem(5).get("milk"));
+
+        SpendingRollup months = new SpendingRollup(SpendingRollup.MONTH);
+        months.addBucket("2026-01", 100, cents(), cents());
+        assertEquals(Arrays.asList(0L, 100L, 0L), new ArrayList<>(months.series("2025-12", "2026-02").values()));
+        assertEquals(Collections.emptyMap(), months.byRoommate());
+    }
+
+    @Test
+    public void decode_readsEncodedNames() {
+        Map<String, Object> bucket = new HashMap<>();
+        bucket.put(SpendingRollup.TOTAL_CENTS, 300L);
+        bucket.put(SpendingRollup.ROOMMATES, Collections.singletonMap(FirebaseKeys.encode("Ana B."), 300L));
+        bucket.put(SpendingRollup.ITEMS, Collections.singletonMap(FirebaseKeys.encode("soy sauce"), 300L));
+
+        SpendingRollup rollup = ModelCodec.decodeSpending(SpendingRollup.MONTH, Collections.singletonMap("2026-10", bucket));
+
+        assertEquals(300, rollup.getTotalCents());
+        assertEquals(Long.valueOf(300), rollup.byRoommate().get("Ana B."));
+        assertEquals(Long.valueOf(300), rollup.byItem(5).get("soy sauce"));
+        assertEquals(0, ModelCodec.decodeSpending(SpendingRollup.MONTH, null).size());
+    }
+
+    private static Map<String, Long> cents(Object... namesAndCents) {
+        Map<String, Long> cents = new HashMap<>();
+        for (int i = 0; i < namesAndCents.length; i += 2) {
+            cents.put((String) namesAndCents[i], ((Integer) namesAndCents[i + 1]).longValue());
+        }
+        return cents;
+    }
+
+    private static long time(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(NEW_YORK);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    private static PurchasedRecord record(String purchasedBy, long timestamp, Item... items) {
+        return new PurchasedRecord(purchasedBy, Arrays.asList(items), PurchasedRecord.totalOf(Arrays.asList(items)), timestamp);
+    }
+
+    private static Item item(String name, double price) {
+        return new Item(null, name, price, null, "Ana", "group-1", 1);
+    }
+}
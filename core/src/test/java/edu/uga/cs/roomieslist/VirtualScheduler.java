@@ -0,0 +1,103 @@
+package edu.uga.cs.roomieslist;
+
+import java.util.PriorityQueue;
+
+/**
+ * A clock that only moves when tasks are run, so simulated network delays
+ * take no real time and every run with the same seed is identical.
+ * Tasks due at the same time run in the order they were scheduled.
+ */
+public class VirtualScheduler {
+
+    // Variables
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long now;
+    private long sequence;
+    private long executed;
+
+    /**
+     * Get the virtual time
+     * @return milliseconds since the scheduler was created
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Run a task after a delay
+     * @param delayMillis
+     * @param task
+     */
+    public void schedule(long delayMillis, Runnable task) {
+        queue.add(new Task(now + Math.max(0, delayMillis), sequence++, task));
+    }
+
+    /**
+     * Run a task at a point in time, or right after the current task if that time has passed
+     * @param timeMillis
+     * @param task
+     */
+    public void scheduleAt(long timeMillis, Runnable task) {
+        schedule(timeMillis - now, task);
+    }
+
+    /**
+     * Run every task, including the ones scheduled while running, until nothing is left
+     */
+    public void runUntilIdle() {
+        while (!queue.isEmpty()) {
+            runNext();
+        }
+    }
+
+    /**
+     * Run every task due within the given time and move the clock to the end of it
+     * @param millis
+     */
+    public void advanceBy(long millis) {
+        long end = now + millis;
+        while (!queue.isEmpty() && queue.peek().time <= end) {
+            runNext();
+        }
+        now = end;
+    }
+
+    /**
+     * @return true if there is nothing left to run
+     */
+    public boolean isIdle() {
+        return queue.isEmpty();
+    }
+
+    /**
+     * @return number of tasks run so far
+     */
+    public long getExecutedCount() {
+        return executed;
+    }
+
+    private void runNext() {
+        Task task = queue.poll();
+        now = task.time;
+        executed++;
+        task.runnable.run();
+    }
+
+    private static final class Task implements Comparable<Task> {
+        private final long time;
+        private final long sequence;
+        private final Runnable runnable;
+
+        private Task(long time, long sequence, Runnable runnable) {
+            this.time = time;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package edu.uga.cs.roomieslist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ticks check boxes through {@link WriteCoalescer} on the in-memory backend, with a virtual clock
+ */
+public class WriteCoalescerTest {
+
+    private static final String GROUP = "group-1";
+    private static final long WINDOW = 1500;
+    private InMemoryShoppingRepository repository;
+    private VirtualScheduler scheduler;
+    private WriteCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        PerfMetrics.reset();
+        repository = new InMemoryShoppingRepository(GROUP);
+        scheduler = new VirtualScheduler();
+        coalescer = new WriteCoalescer(repository, (task, delayMillis) -> scheduler.schedule(delayMillis, task), WINDOW, 3);
+    }
+
+    @Test
+    public void togglesOfOneItem_areWrittenOnce() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+
+        // Every tap starts from what the list shows, which includes the taps before it
+        for (int i = 0; i < 5; i++) {
+            toggle(coalescer.applyPending(milk));
+        }
+        assertEquals(0, PerfMetrics.get(WriteCoalescer.WRITES));
+
+        scheduler.advanceBy(WINDOW);
+
+        Item stored = loadShoppingList().get(0);
+        assertTrue(stored.isPurchased());
+        assertEquals(milk.getVersion() + 1, stored.getVersion());
+        assertEquals(5, PerfMetrics.get(WriteCoalescer.MUTATIONS));
+        assertEquals(1, PerfMetrics.get(WriteCoalescer.WRITES));
+        assertEquals(4, PerfMetrics.get(WriteCoalescer.WRITES_SAVED));
+    }
+
+    @Test
+    public void togglesOfSeveralItems_goInOneUpdate() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+
+        toggle(milk);
+        scheduler.advanceBy(WINDOW / 2);
+        toggle(eggs);
+        scheduler.advanceBy(WINDOW / 2);
+
+        assertEquals(0, coalescer.getPendingCount());
+        assertEquals(1, PerfMetrics.get(WriteCoalescer.WRITES));
+        assertEquals(0, PerfMetrics.get(AbstractShoppingRepository.BATCH_REJECTIONS));
+        for (Item item : loadShoppingList()) {
+            assertTrue(item.isPurchased());
+        }
+    }
+
+    @Test
+    public void itemChangedInTheMeantime_keepsTheOtherChange() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        Item eggs = repository.addItem("Eggs", 12, "Ana", this::assertSucceeded);
+        List<Exception> errors = new ArrayList<>();
+        coalescer.setFlushListener((items, error) -> errors.add(error));
+        toggle(milk);
+        toggle(eggs);
+
+        // Ben checks the milk off with a price before the batch goes out
+        Item bensCopy = new Item(milk);
+        bensCopy.setPurchased(true);
+        bensCopy.setPrice(2.50);
+        repository.compareAndSetItem(bensCopy, (result, error) -> assertNull(error));
+        scheduler.advanceBy(WINDOW);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof ItemConflictException);
+        assertEquals(1, PerfMetrics.get(AbstractShoppingRepository.BATCH_REJECTIONS));
+        for (Item item : loadShoppingList()) {
+            assertTrue(item.isPurchased());
+            if (item.getItemId().equals(milk.getItemId())) {
+                assertEquals(2.50, item.getPrice(), 0.001);
+                assertFalse(item.isSelected());
+            } else {
+                assertTrue(item.isSelected());
+            }
+        }
+    }
+
+    @Test
+    public void pendingToggles_showBeforeTheyAreWritten() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        toggle(milk);
+
+        List<Item> shown = coalescer.applyPending(loadShoppingList());
+
+        assertFalse(loadShoppingList().get(0).isPurchased());
+        assertTrue(shown.get(0).isPurchased());
+        assertFalse(shown.get(0).hasChanges());
+
+        scheduler.advanceBy(WINDOW);
+        assertEquals(loadShoppingList(), shown);
+        // Nothing queued, the rows are shown as they are
+        assertSame(shown, coalescer.applyPending(shown));
+    }
+
+    @Test
+    public void tooManyItems_flushRightAway() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            items.add(repository.addItem("Item " + i, 1, "Ana", this::assertSucceeded));
+        }
+
+        for (Item item : items) {
+            toggle(item);
+        }
+
+        assertEquals(1, coalescer.getPendingCount());
+        assertEquals(1, PerfMetrics.get(WriteCoalescer.WRITES));
+
+        scheduler.advanceBy(WINDOW);
+        assertEquals(2, PerfMetrics.get(WriteCoalescer.WRITES));
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void flush_writesWithoutWaiting() {
+        Item milk = repository.addItem("Milk", 1, "Ana", this::assertSucceeded);
+        int[] flushed = new int[1];
+        coalescer.setFlushListener((items, error) -> {
+            assertNull(error);
+            flushed[0] += items;
+        });
+        toggle(milk);
+
+        coalescer.flush();
+
+        assertEquals(1, flushed[0]);
+        assertTrue(loadShoppingList().get(0).isPurchased());
+
+        // The timer of the flushed window finds nothing to do
+        scheduler.runUntilIdle();
+        assertEquals(1, PerfMetrics.get(WriteCoalescer.WRITES));
+    }
+
+    private void toggle(Item item) {
+        Item copy = new Item(item);
+        copy.setPurchased(!item.isPurchased());
+        copy.setSelected(!item.isSelected());
+        coalescer.enqueue(copy);
+    }
+
+    private List<Item> loadShoppingList() {
+        List<Item> items = new ArrayList<>();
+        repository.loadShoppingList((result, error) -> items.addAll(result));
+        return items;
+    }
+
+    private void assertSucceeded(Void result, Exception error) {
+        assertNull(error);
+    }
+}